@@ -0,0 +1,92 @@
+package fcu.web.benchmarks;
+
+import fcu.web.CsrGraph;
+import fcu.web.FastRandom;
+import fcu.web.GraphSearch;
+import fcu.web.GraphSolver;
+import fcu.web.PathResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// GraphPathFinder 的 DFS 與 BFS：固定種子的隨機連通無向圖，依序輪流查詢預先抽好的起訖點
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GraphSearchBenchmark {
+    private static final long SEED = 42L;
+    private static final int QUERIES = 64;
+
+    @Param({"1000", "100000"})
+    int vertices;
+
+    // 平均度數
+    @Param({"4", "16"})
+    int degree;
+
+    private CsrGraph graph;
+    private int[] sources, targets;
+    private int query;
+    private GraphSearch search;
+    private GraphSolver solver;
+
+    @Setup
+    public void setUp() {
+        FastRandom random = new FastRandom(SEED);
+        CsrGraph.Builder builder = new CsrGraph.Builder(vertices);
+        // 先以隨機生成樹保證連通，其餘的邊隨機連接
+        for (int v = 1; v < vertices; v++) {
+            builder.addUndirectedEdge(v, random.nextInt(v), 1f);
+        }
+        long extra = (long) vertices * degree / 2 - (vertices - 1);
+        for (long i = 0; i < extra; i++) {
+            builder.addUndirectedEdge(random.nextInt(vertices), random.nextInt(vertices), 1f);
+        }
+        graph = builder.build();
+        sources = new int[QUERIES];
+        targets = new int[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            sources[q] = random.nextInt(vertices);
+            targets[q] = random.nextInt(vertices);
+        }
+        search = new GraphSearch(graph);
+        solver = GraphSolver.undirected(graph);
+    }
+
+    private int next() {
+        if (++query == QUERIES) query = 0;
+        return query;
+    }
+
+    @Benchmark
+    public int[] dfs() {
+        int q = next();
+        return search.dfs(sources[q], targets[q]);
+    }
+
+    @Benchmark
+    public int[] bfs() {
+        int q = next();
+        return search.bfs(sources[q], targets[q]);
+    }
+
+    // 經由執行緒安全的 GraphSolver，與 bfs 的差距即為 ThreadLocal 查找、路徑成本與結果物件的成本
+    @Benchmark
+    public PathResult solverBfs() {
+        int q = next();
+        return solver.solve(GraphSolver.Algorithm.BFS, sources[q], targets[q]);
+    }
+}
@@ -0,0 +1,43 @@
+package fcu.web.benchmarks;
+
+import fcu.web.BitGrid;
+import fcu.web.MazeSearch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// MazeGame 的 IDDFS：每加深一層就從頭走訪，成本約為路徑長度乘以格數，因此只測較小的迷宮
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IddfsBenchmark {
+    @Param({"21", "51", "101"})
+    int size;
+
+    private BitGrid maze;
+    private MazeSearch search;
+
+    @Setup
+    public void setUp() {
+        maze = MazeSearchBenchmark.backtrackerMaze(size);
+        search = new MazeSearch();
+    }
+
+    @Benchmark
+    public int[] iddfs() {
+        return search.iddfs(maze, 0, 0, size - 1, size - 1);
+    }
+}
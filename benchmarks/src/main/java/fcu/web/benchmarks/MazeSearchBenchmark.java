@@ -0,0 +1,79 @@
+package fcu.web.benchmarks;
+
+import fcu.web.BitGrid;
+import fcu.web.FastRandom;
+import fcu.web.GridAStar;
+import fcu.web.MazeGenerator;
+import fcu.web.MazeSearch;
+import fcu.web.MazeSolver;
+import fcu.web.PathResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// MazeGame 的 DFS、BFS 與 A*：固定種子的回溯法迷宮，由左上角搜索到右下角
+// 迷宮大小須為奇數，終點才會落在通道上
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MazeSearchBenchmark {
+    static final long SEED = 42L;
+
+    @Param({"101", "501", "1001"})
+    int size;
+
+    private BitGrid maze;
+    private MazeSearch search;
+    private GridAStar aStar;
+    private int end;
+
+    @Setup
+    public void setUp() {
+        maze = backtrackerMaze(size);
+        search = new MazeSearch();
+        aStar = new GridAStar();
+        end = size - 1;
+    }
+
+    static BitGrid backtrackerMaze(int size) {
+        if ((size & 1) == 0) throw new IllegalArgumentException("迷宮大小須為奇數: " + size);
+        BitGrid maze = new BitGrid(size);
+        maze.setAll();
+        MazeGenerator.of("Backtracker").generate(maze, 0, 0, new FastRandom(SEED));
+        return maze;
+    }
+
+    @Benchmark
+    public int[] dfs() {
+        return search.dfs(maze, 0, 0, end, end);
+    }
+
+    @Benchmark
+    public int[] bfs() {
+        return search.bfs(maze, 0, 0, end, end);
+    }
+
+    @Benchmark
+    public int[] aStar() {
+        return aStar.search(maze, 0, 0, end, end) ? aStar.path() : null;
+    }
+
+    // 經由執行緒安全的 MazeSolver，與 bfs 的差距即為 ThreadLocal 查找與結果物件的成本
+    @Benchmark
+    public PathResult solverBfs() {
+        return MazeSolver.solve(maze, MazeSolver.Algorithm.BFS, 0, 0, end, end);
+    }
+}
@@ -0,0 +1,75 @@
+package fcu.web.benchmarks;
+
+import fcu.web.CsrGraph;
+import fcu.web.DijkstraSearch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// RandomRoadMapGUI 的 Dijkstra，在稠密的隨機圖上：隨機撒點、每對點以固定機率連路 (早期 generateMap 的做法)，邊權為歐氏距離
+// 節點數與連路機率可調，固定種子；依序輪流查詢預先抽好的起訖點並取出路徑
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RoadDijkstraBenchmark {
+    private static final long SEED = 42L;
+    private static final int MAP_SIZE = 800;
+    private static final int QUERIES = 64;
+
+    @Param({"100", "1000", "5000"})
+    int nodes;
+
+    // 每對節點之間連路的機率，GUI 預設為 0.3
+    @Param({"0.01", "0.3"})
+    double edgeProbability;
+
+    private DijkstraSearch dijkstra;
+    private int[] sources, targets;
+    private int query;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(SEED);
+        int[] x = new int[nodes], y = new int[nodes];
+        for (int i = 0; i < nodes; i++) {
+            x[i] = random.nextInt(MAP_SIZE);
+            y[i] = random.nextInt(MAP_SIZE);
+        }
+        CsrGraph.Builder builder = new CsrGraph.Builder(nodes);
+        for (int i = 0; i < nodes; i++) {
+            for (int j = i + 1; j < nodes; j++) {
+                if (random.nextDouble() < edgeProbability) {
+                    builder.addUndirectedEdge(i, j, (float) Math.hypot(x[i] - x[j], y[i] - y[j]));
+                }
+            }
+        }
+        dijkstra = new DijkstraSearch(builder.build());
+        sources = new int[QUERIES];
+        targets = new int[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            sources[q] = random.nextInt(nodes);
+            targets[q] = random.nextInt(nodes);
+        }
+    }
+
+    @Benchmark
+    public int[] shortestPath() {
+        if (++query == QUERIES) query = 0;
+        int end = targets[query];
+        return dijkstra.search(sources[query], end) ? dijkstra.path(end) : null;
+    }
+}
@@ -0,0 +1,201 @@
+package fcu.web;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+// 以地標下界為啟發函數的 A* (ALT)
+// 每次查詢先挑出對 (起點, 終點) 下界最緊的幾個地標，展開時只計算這些地標的下界
+// 下界滿足三角不等式，因此啟發函數一致，展開過的頂點不需重新開啟
+// 非執行緒安全，暫存陣列在多次查詢之間重複使用；多個 AltSearch 可共用同一份 Landmarks
+public final class AltSearch implements PathEngine {
+    // 每次查詢使用的地標數
+    static final int ACTIVE_LANDMARKS = 4;
+    // 距離表以 float 存放，略微縮小下界以避免捨入誤差使啟發函數不一致
+    private static final double HEURISTIC_SCALE = 1.0 - 1e-6;
+
+    private final IntGraph graph;
+    private final Landmarks landmarks;
+    private final IndexedMinHeap heap;
+    private final double[] distance;
+    private final int[] parent, stamp;
+    private final int[] active;
+    private final double[] activeBounds;
+    private final int[] single = new int[1];
+    private int activeCount;
+    private int generation;
+    private int expanded;
+    private double result;
+
+    public AltSearch(IntGraph graph, Landmarks landmarks) {
+        if (landmarks.vertexCount() != graph.vertexCount()) {
+            throw new IllegalArgumentException("地標表與圖的頂點數不符");
+        }
+        this.graph = graph;
+        this.landmarks = landmarks;
+        int n = graph.vertexCount();
+        heap = new IndexedMinHeap(n);
+        distance = new double[n];
+        parent = new int[n];
+        stamp = new int[n];
+        active = new int[Math.min(ACTIVE_LANDMARKS, landmarks.count())];
+        activeBounds = new double[active.length];
+    }
+
+    // 回傳由 start 到 end 的最短路徑，不可達時回傳空陣列
+    @Override
+    public int[] search(int start, int end) {
+        return run(start, end) ? path(end) : new int[0];
+    }
+
+    @Override
+    public double shortestDistance(int start, int end) {
+        run(start, end);
+        return result;
+    }
+
+    // 回傳 end 是否可達
+    private boolean run(int start, int end) {
+        if (++generation == 0) {
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+        heap.clear();
+        expanded = 0;
+        result = Double.POSITIVE_INFINITY;
+        chooseActive(start, end);
+
+        stamp[start] = generation;
+        distance[start] = 0.0;
+        parent[start] = -1;
+        heap.insert(start, heuristic(start, end));
+        while (!heap.isEmpty()) {
+            int v = heap.poll();
+            expanded++;
+            if (v == end) {
+                result = distance[v];
+                return true;
+            }
+            double dv = distance[v];
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                int w = graph.target(e);
+                double candidate = dv + graph.weight(e);
+                // 已展開的頂點 (不在堆中) 在一致的啟發函數下不會再變短
+                if (stamp[w] == generation && (candidate >= distance[w] || !heap.contains(w))) continue;
+                double h = heuristic(w, end);
+                // 下界為無限大表示 w 到不了終點
+                if (h == Double.POSITIVE_INFINITY) continue;
+                stamp[w] = generation;
+                distance[w] = candidate;
+                parent[w] = v;
+                heap.insertOrDecrease(w, candidate + h);
+            }
+        }
+        return false;
+    }
+
+    // 依起點到終點的下界挑出最緊的幾個地標
+    private void chooseActive(int start, int end) {
+        int k = landmarks.count();
+        double[] bounds = activeBounds;
+        activeCount = 0;
+        for (int i = 0; i < k; i++) {
+            single[0] = i;
+            double bound = landmarks.lowerBound(start, end, single, 1);
+            if (activeCount < active.length) {
+                active[activeCount] = i;
+                bounds[activeCount++] = bound;
+            } else {
+                int weakest = 0;
+                for (int a = 1; a < activeCount; a++) {
+                    if (bounds[a] < bounds[weakest]) weakest = a;
+                }
+                if (bound > bounds[weakest]) {
+                    active[weakest] = i;
+                    bounds[weakest] = bound;
+                }
+            }
+        }
+    }
+
+    private double heuristic(int v, int end) {
+        return HEURISTIC_SCALE * landmarks.lowerBound(v, end, active, activeCount);
+    }
+
+    private int[] path(int end) {
+        int length = 0;
+        for (int at = end; at != -1; at = parent[at]) length++;
+        int[] path = new int[length];
+        for (int at = end, i = length - 1; at != -1; at = parent[at]) {
+            path[i--] = at;
+        }
+        return path;
+    }
+
+    // 最近一次搜索展開的頂點數
+    @Override
+    public int expandedCount() {
+        return expanded;
+    }
+
+    // 最近一次搜索的最短距離，不可達時為無限大
+    @Override
+    public double distance() {
+        return result;
+    }
+
+    public Landmarks landmarks() {
+        return landmarks;
+    }
+
+    // 與 Dijkstra 比較展開數與延遲: AltSearch [格網邊長 | DIMACS .gr 檔] [地標數] [查詢數] [種子]
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42L;
+        Random random = new Random(seed);
+        IntGraph graph = BenchmarkGraphs.load(args.length > 0 ? args[0] : null, 200, random);
+        int n = graph.vertexCount();
+        System.out.printf("圖: %,d 個頂點, %,d 條弧%n", n, graph.edgeCount());
+
+        int[] sources = new int[queries], targets = new int[queries];
+        for (int q = 0; q < queries; q++) {
+            sources[q] = random.nextInt(n);
+            targets[q] = random.nextInt(n);
+        }
+        DijkstraSearch dijkstra = new DijkstraSearch(graph);
+        double[] expected = new double[queries];
+        long dijkstraNanos = 0, dijkstraSettled = 0;
+        for (int q = 0; q < queries; q++) {
+            long t0 = System.nanoTime();
+            dijkstra.search(sources[q], targets[q]);
+            dijkstraNanos += System.nanoTime() - t0;
+            dijkstraSettled += dijkstra.settledCount();
+            expected[q] = dijkstra.distance(targets[q]);
+        }
+        System.out.printf("Dijkstra: 平均 %.1f 微秒, 確定 %,d 個頂點%n",
+                dijkstraNanos / 1e3 / queries, dijkstraSettled / queries);
+
+        for (Landmarks.Selection selection : Landmarks.Selection.values()) {
+            long startTime = System.nanoTime();
+            Landmarks landmarks = Landmarks.build(graph, graph, count, selection, seed, ForkJoinPool.commonPool());
+            long buildNanos = System.nanoTime() - startTime;
+            AltSearch alt = new AltSearch(graph, landmarks);
+            long altNanos = 0, altExpanded = 0;
+            for (int q = 0; q < queries; q++) {
+                long t0 = System.nanoTime();
+                int[] path = alt.search(sources[q], targets[q]);
+                altNanos += System.nanoTime() - t0;
+                altExpanded += alt.expandedCount();
+                if (Math.abs(alt.distance() - expected[q]) > 1e-3 * Math.max(1.0, expected[q])
+                        || (path.length == 0) != Double.isInfinite(expected[q])) {
+                    throw new IllegalStateException("ALT 距離 " + alt.distance() + "，Dijkstra 為 " + expected[q]);
+                }
+            }
+            System.out.printf("ALT %-8s 前處理 %.1f 毫秒 (%s): 平均 %.1f 微秒, 展開 %,d 個頂點, 加速 %.1f 倍%n",
+                    selection, buildNanos / 1e6, landmarks, altNanos / 1e3 / queries, altExpanded / queries,
+                    (double) dijkstraNanos / altNanos);
+        }
+    }
+}
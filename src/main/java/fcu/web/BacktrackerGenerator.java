@@ -0,0 +1,40 @@
+package fcu.web;
+
+// 以明確堆疊實作的遞迴回溯法，不受呼叫堆疊深度限制
+public final class BacktrackerGenerator implements MazeGenerator {
+    @Override
+    public String name() {
+        return "Backtracker";
+    }
+
+    @Override
+    public void generate(BitGrid walls, int startX, int startY, FastRandom random) {
+        MazeLattice lattice = new MazeLattice(walls.size(), startX, startY);
+        if (lattice.cells() == 0) return;
+        int rows = lattice.rows, cols = lattice.cols;
+        int[] stack = new int[lattice.cells()];
+        int[] candidates = new int[4];
+        int top = 0;
+
+        int first = lattice.cellOf(startX, startY);
+        walls.clear(startX, startY);
+        stack[top++] = first;
+        while (top > 0) {
+            int cell = stack[top - 1];
+            int r = cell / cols, c = cell - r * cols;
+            // 尚未挖開的格點其位置仍為牆壁
+            int count = 0;
+            if (r + 1 < rows && walls.get(lattice.cellX(cell + cols), lattice.cellY(cell))) candidates[count++] = cell + cols;
+            if (r > 0 && walls.get(lattice.cellX(cell - cols), lattice.cellY(cell))) candidates[count++] = cell - cols;
+            if (c + 1 < cols && walls.get(lattice.cellX(cell), lattice.cellY(cell) + 2)) candidates[count++] = cell + 1;
+            if (c > 0 && walls.get(lattice.cellX(cell), lattice.cellY(cell) - 2)) candidates[count++] = cell - 1;
+            if (count == 0) {
+                top--;
+                continue;
+            }
+            int next = candidates[random.nextInt(count)];
+            lattice.carve(walls, cell, next);
+            stack[top++] = next;
+        }
+    }
+}
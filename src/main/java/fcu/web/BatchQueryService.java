@@ -0,0 +1,291 @@
+package fcu.web;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// 無介面的批次最短路徑查詢服務，供夜間大量重算路徑使用
+// 固定數量的工作執行緒各自持有一個 PathEngine，暫存陣列在整個服務生命週期內重複使用；
+// 查詢以區塊為單位動態分派，結果連同單筆延遲逐筆送往 ResultSink
+// 只需距離時使用 shortestDistance，每筆查詢不配置任何物件
+// run 同一時間只允許一個批次，多個批次會依序執行
+public final class BatchQueryService implements AutoCloseable {
+    // 每次領取的查詢數；夠大以分攤原子操作，夠小以平衡各執行緒的負載
+    private static final int CHUNK = 256;
+
+    // 接收單筆查詢結果；由多個工作執行緒同時呼叫，實作必須是執行緒安全的
+    // path 只在要求路徑時提供，否則為 null；distance 不可達時為無限大
+    @FunctionalInterface
+    public interface ResultSink {
+        void accept(int query, double distance, int[] path, int expanded, long nanos);
+    }
+
+    private final PathEngine[] engines;
+    private final LatencyHistogram[] histograms;
+    private final ExecutorService workers;
+
+    // factory 會被呼叫 threads 次，每個工作執行緒一個引擎
+    public BatchQueryService(Supplier<? extends PathEngine> factory, int threads) {
+        if (threads < 1) throw new IllegalArgumentException("執行緒數必須至少為 1: " + threads);
+        engines = new PathEngine[threads];
+        histograms = new LatencyHistogram[threads];
+        for (int i = 0; i < threads; i++) {
+            engines[i] = factory.get();
+            histograms[i] = new LatencyHistogram();
+        }
+        AtomicInteger counter = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "batch-query-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int threads() {
+        return engines.length;
+    }
+
+    // 執行 sources[i] -> targets[i] 的所有查詢，全部完成後回傳統計
+    // withPaths 為 false 時只計算距離；sink 可為 null
+    public synchronized Summary run(int[] sources, int[] targets, boolean withPaths, ResultSink sink)
+            throws InterruptedException {
+        if (sources.length != targets.length) {
+            throw new IllegalArgumentException("起點與終點數量不符: " + sources.length + " / " + targets.length);
+        }
+        int queries = sources.length;
+        AtomicInteger cursor = new AtomicInteger();
+        List<Callable<Integer>> tasks = new ArrayList<>(engines.length);
+        for (int i = 0; i < engines.length; i++) {
+            PathEngine engine = engines[i];
+            LatencyHistogram histogram = histograms[i];
+            histogram.clear();
+            tasks.add(() -> {
+                int reachable = 0;
+                for (int begin; (begin = cursor.getAndAdd(CHUNK)) < queries; ) {
+                    int end = Math.min(queries, begin + CHUNK);
+                    for (int q = begin; q < end; q++) {
+                        long t0 = System.nanoTime();
+                        int[] path = null;
+                        double distance;
+                        if (withPaths) {
+                            path = engine.search(sources[q], targets[q]);
+                            distance = engine.distance();
+                        } else {
+                            distance = engine.shortestDistance(sources[q], targets[q]);
+                        }
+                        long nanos = System.nanoTime() - t0;
+                        histogram.record(nanos);
+                        if (distance != Double.POSITIVE_INFINITY) reachable++;
+                        if (sink != null) sink.accept(q, distance, path, engine.expandedCount(), nanos);
+                    }
+                    if (Thread.currentThread().isInterrupted()) break;
+                }
+                return reachable;
+            });
+        }
+
+        long startTime = System.nanoTime();
+        List<Future<Integer>> futures = workers.invokeAll(tasks);
+        long wallNanos = System.nanoTime() - startTime;
+        int reachable = 0;
+        try {
+            for (Future<Integer> future : futures) reachable += future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException r) throw r;
+            if (e.getCause() instanceof Error error) throw error;
+            throw new IllegalStateException(e.getCause());
+        }
+        LatencyHistogram merged = new LatencyHistogram();
+        for (LatencyHistogram histogram : histograms) merged.add(histogram);
+        return new Summary(queries, reachable, wallNanos, engines.length, merged);
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    // 一個批次的統計；延遲百分位數以對數分桶估計，相對誤差不超過 1/8
+    public static final class Summary {
+        private final int queries, reachable, threads;
+        private final long wallNanos;
+        private final LatencyHistogram latency;
+
+        private Summary(int queries, int reachable, long wallNanos, int threads, LatencyHistogram latency) {
+            this.queries = queries;
+            this.reachable = reachable;
+            this.wallNanos = wallNanos;
+            this.threads = threads;
+            this.latency = latency;
+        }
+
+        public int queries() {
+            return queries;
+        }
+
+        public int reachable() {
+            return reachable;
+        }
+
+        public long wallNanos() {
+            return wallNanos;
+        }
+
+        // 每秒完成的查詢數
+        public double throughput() {
+            return wallNanos == 0 ? 0.0 : queries * 1e9 / wallNanos;
+        }
+
+        public double meanNanos() {
+            return latency.mean();
+        }
+
+        // p 介於 0 與 1 之間，例如 0.99
+        public long percentileNanos(double p) {
+            return latency.percentile(p);
+        }
+
+        public long maxNanos() {
+            return latency.max();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d 筆查詢 (%,d 筆可達), %d 執行緒, 耗時 %.1f 毫秒, 每秒 %,.0f 筆, "
+                            + "延遲 平均 %.1f / p50 %.1f / p99 %.1f / 最大 %.1f 微秒",
+                    queries, reachable, threads, wallNanos / 1e6, throughput(), meanNanos() / 1e3,
+                    percentileNanos(0.5) / 1e3, percentileNanos(0.99) / 1e3, maxNanos() / 1e3);
+        }
+    }
+
+    // 對數分桶的延遲直方圖：每個 2 的冪次區間再分為 8 桶，記錄時不配置物件
+    private static final class LatencyHistogram {
+        private static final int SUB_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private final long[] counts = new long[(64 - SUB_BITS + 1) * SUB_BUCKETS];
+        private long total, sum, max;
+
+        void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            counts[bucket(nanos)]++;
+            total++;
+            sum += nanos;
+            if (nanos > max) max = nanos;
+        }
+
+        void add(LatencyHistogram other) {
+            for (int i = 0; i < counts.length; i++) counts[i] += other.counts[i];
+            total += other.total;
+            sum += other.sum;
+            max = Math.max(max, other.max);
+        }
+
+        void clear() {
+            Arrays.fill(counts, 0);
+            total = sum = max = 0;
+        }
+
+        double mean() {
+            return total == 0 ? 0.0 : (double) sum / total;
+        }
+
+        long max() {
+            return max;
+        }
+
+        long percentile(double p) {
+            if (total == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(p * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(max, upperBound(i));
+            }
+            return max;
+        }
+
+        // 小於 8 的值各佔一桶，其餘依最高位元與其後 3 個位元分桶
+        private static int bucket(long value) {
+            if (value < SUB_BUCKETS) return (int) value;
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int shift = exponent - SUB_BITS;
+            return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+        }
+
+        private static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) return bucket;
+            int shift = bucket / SUB_BUCKETS - 1;
+            long base = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+            return base + (1L << shift) - 1;
+        }
+    }
+
+    // 批次吞吐量測試: BatchQueryService [格網邊長 | DIMACS .gr 檔] [dijkstra | ch | alt] [查詢數] [最多執行緒數] [種子]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String engineName = args.length > 1 ? args[1] : "ch";
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        int maxThreads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42L;
+        Random random = new Random(seed);
+        IntGraph graph = BenchmarkGraphs.load(args.length > 0 ? args[0] : null, 200, random);
+        int n = graph.vertexCount();
+        System.out.printf("圖: %,d 個頂點, %,d 條弧%n", n, graph.edgeCount());
+
+        Supplier<PathEngine> factory;
+        long startTime = System.nanoTime();
+        switch (engineName) {
+            case "dijkstra" -> factory = () -> PathEngine.dijkstra(graph);
+            case "ch" -> {
+                ContractionHierarchy ch = ContractionHierarchy.build(graph, ForkJoinPool.commonPool());
+                factory = () -> new ChQuery(ch);
+            }
+            case "alt" -> {
+                Landmarks landmarks = Landmarks.build(graph, graph, 16, Landmarks.Selection.AVOID, seed,
+                        ForkJoinPool.commonPool());
+                factory = () -> new AltSearch(graph, landmarks);
+            }
+            default -> throw new IllegalArgumentException("未知的引擎: " + engineName);
+        }
+        System.out.printf("引擎 %s, 前處理 %.1f 毫秒%n", engineName, (System.nanoTime() - startTime) / 1e6);
+
+        int[] sources = new int[queries], targets = new int[queries];
+        for (int q = 0; q < queries; q++) {
+            sources[q] = random.nextInt(n);
+            targets[q] = random.nextInt(n);
+        }
+        // 前幾筆查詢以 Dijkstra 驗證
+        int checked = Math.min(queries, 200);
+        double[] expected = new double[checked];
+        DijkstraSearch dijkstra = new DijkstraSearch(graph);
+        for (int q = 0; q < checked; q++) {
+            dijkstra.search(sources[q], targets[q]);
+            expected[q] = dijkstra.distance(targets[q]);
+        }
+        ResultSink validator = (query, distance, path, expanded, nanos) -> {
+            // 兩者皆為無限大時差值為 NaN，比較結果為 false
+            if (query < checked && Math.abs(distance - expected[query]) > 1e-3 * Math.max(1.0, expected[query])) {
+                throw new IllegalStateException("查詢 " + query + " 距離 " + distance + "，Dijkstra 為 " + expected[query]);
+            }
+        };
+
+        for (int threads = 1; ; threads = Math.min(maxThreads, 2 * threads)) {
+            try (BatchQueryService service = new BatchQueryService(factory, threads)) {
+                // 第一輪讓 JIT 編譯熱點，第二輪才計時
+                service.run(sources, targets, false, validator);
+                System.out.println("距離: " + service.run(sources, targets, false, validator));
+                System.out.println("路徑: " + service.run(sources, targets, true, validator));
+            }
+            if (threads == maxThreads) break;
+        }
+    }
+}
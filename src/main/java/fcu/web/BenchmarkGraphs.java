@@ -0,0 +1,41 @@
+package fcu.web;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Random;
+
+// 效能測試用的圖：命令列參數為數字時產生合成道路格網，否則視為 DIMACS .gr 檔匯入
+final class BenchmarkGraphs {
+    // 每隔幾條街設一條幹道，幹道的行車時間為一般道路的 1/5
+    private static final int ARTERIAL_SPACING = 16;
+    private static final float ARTERIAL_FACTOR = 0.2f;
+
+    private BenchmarkGraphs() {
+    }
+
+    static IntGraph load(String arg, int defaultSide, Random random) throws IOException {
+        if (arg != null && !arg.matches("\\d+")) {
+            return EdgeListImporter.importDimacs(Paths.get(arg), null).graph;
+        }
+        return arterialGrid(arg == null ? defaultSide : Integer.parseInt(arg), random);
+    }
+
+    // 邊長為 side 的無向格網，邊權在 1 到 2 之間隨機，加上幹道以近似道路網的層次
+    static CsrGraph arterialGrid(int side, Random random) {
+        CsrGraph.Builder builder = new CsrGraph.Builder(side * side);
+        for (int x = 0; x < side; x++) {
+            for (int y = 0; y < side; y++) {
+                int v = x * side + y;
+                if (x + 1 < side) {
+                    float factor = y % ARTERIAL_SPACING == 0 ? ARTERIAL_FACTOR : 1f;
+                    builder.addUndirectedEdge(v, v + side, factor * (1f + random.nextFloat()));
+                }
+                if (y + 1 < side) {
+                    float factor = x % ARTERIAL_SPACING == 0 ? ARTERIAL_FACTOR : 1f;
+                    builder.addUndirectedEdge(v, v + 1, factor * (1f + random.nextFloat()));
+                }
+            }
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,148 @@
+package fcu.web;
+
+import java.util.Arrays;
+
+// 無權圖的雙向 BFS：從起點與終點同時逐層展開，每次展開前緣較小的一側，兩側相遇時停止
+// 無向圖時 backward 可傳入與 forward 相同的圖；非執行緒安全，暫存陣列在多次查詢之間重複使用
+public final class BidirectionalBfs implements SearchCounters {
+    private final IntGraph forward, backward;
+    private final int[] distF, distB, parentF, parentB, stampF, stampB;
+    private final int[] queueF, queueB;
+    private int generation;
+    private int expanded, peak;
+    private long relaxed;
+    private SearchMonitor monitor;
+
+    public BidirectionalBfs(IntGraph forward, IntGraph backward) {
+        this.forward = forward;
+        this.backward = backward;
+        int n = forward.vertexCount();
+        distF = new int[n];
+        distB = new int[n];
+        parentF = new int[n];
+        parentB = new int[n];
+        stampF = new int[n];
+        stampB = new int[n];
+        queueF = new int[n];
+        queueB = new int[n];
+    }
+
+    // 回傳由 start 到 end 的最短路徑，不可達時回傳空陣列
+    public int[] search(int start, int end) {
+        if (++generation == 0) {
+            Arrays.fill(stampF, 0);
+            Arrays.fill(stampB, 0);
+            generation = 1;
+        }
+        expanded = 0;
+        relaxed = 0;
+        peak = 0;
+        if (start == end) return new int[]{start};
+
+        stampF[start] = generation;
+        distF[start] = 0;
+        parentF[start] = -1;
+        stampB[end] = generation;
+        distB[end] = 0;
+        parentB[end] = -1;
+        int headF = 0, tailF = 0, headB = 0, tailB = 0;
+        queueF[tailF++] = start;
+        queueB[tailB++] = end;
+
+        while (headF < tailF && headB < tailB) {
+            peak = Math.max(peak, tailF - headF + tailB - headB);
+            boolean fromStart = tailF - headF <= tailB - headB;
+            IntGraph graph = fromStart ? forward : backward;
+            int[] queue = fromStart ? queueF : queueB;
+            int[] dist = fromStart ? distF : distB;
+            int[] parent = fromStart ? parentF : parentB;
+            int[] stamp = fromStart ? stampF : stampB;
+            int[] otherDist = fromStart ? distB : distF;
+            int[] otherStamp = fromStart ? stampB : stampF;
+            int head = fromStart ? headF : headB;
+            int tail = fromStart ? tailF : tailB;
+
+            // 展開完整的一層，在這一層內找出最短的相遇邊
+            int best = Integer.MAX_VALUE, meetNear = -1, meetFar = -1;
+            int levelEnd = tail;
+            while (head < levelEnd) {
+                int v = queue[head++];
+                expanded++;
+                if (monitor != null && (expanded & SearchMonitor.CHECK_MASK) == 0 && monitor.checkpoint()) {
+                    if (fromStart) monitor.publish(queueF, head, tail, queueB, headB, tailB, expanded);
+                    else monitor.publish(queueF, headF, tailF, queueB, head, tail, expanded);
+                }
+                relaxed += graph.endEdge(v) - graph.firstEdge(v);
+                for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                    int w = graph.target(e);
+                    if (otherStamp[w] == generation && dist[v] + 1 + otherDist[w] < best) {
+                        best = dist[v] + 1 + otherDist[w];
+                        meetNear = v;
+                        meetFar = w;
+                    }
+                    if (stamp[w] != generation) {
+                        stamp[w] = generation;
+                        dist[w] = dist[v] + 1;
+                        parent[w] = v;
+                        queue[tail++] = w;
+                    }
+                }
+            }
+            if (fromStart) {
+                headF = head;
+                tailF = tail;
+            } else {
+                headB = head;
+                tailB = tail;
+            }
+            if (meetNear >= 0) {
+                return fromStart ? join(meetNear, meetFar) : join(meetFar, meetNear);
+            }
+        }
+        return new int[0];
+    }
+
+    // 由起點樹中的 a 與終點樹中的 b (a -> b 為一條邊) 組合完整路徑
+    private int[] join(int a, int b) {
+        int length = 0;
+        for (int at = a; at != -1; at = parentF[at]) length++;
+        for (int at = b; at != -1; at = parentB[at]) length++;
+        int[] path = new int[length];
+        int i = 0;
+        for (int at = a; at != -1; at = parentF[at]) path[i++] = at;
+        for (int l = 0, r = i - 1; l < r; l++, r--) {
+            int t = path[l];
+            path[l] = path[r];
+            path[r] = t;
+        }
+        for (int at = b; at != -1; at = parentB[at]) path[i++] = at;
+        return path;
+    }
+
+    // 設定之後搜索使用的 SearchMonitor (取消、逾時與進度快照)，null 表示不監看
+    public void setMonitor(SearchMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    // 最近一次搜索展開的頂點數
+    @Override
+    public int expandedCount() {
+        return expanded;
+    }
+
+    @Override
+    public long relaxedCount() {
+        return relaxed;
+    }
+
+    // 每層開始時兩側隊列的總大小的最大值
+    @Override
+    public int peakOpenSize() {
+        return peak;
+    }
+
+    @Override
+    public long heapOperations() {
+        return 0;
+    }
+}
@@ -0,0 +1,191 @@
+package fcu.web;
+
+import java.util.Arrays;
+
+// 帶權圖的雙向 Dijkstra / 雙向 A*
+// 提供節點座標時使用平均位勢 p(v) = (h_t(v) - h_s(v)) / 2 (h 為歐氏距離)，兩側在同一個約化圖上搜索；
+// 兩側堆頂鍵值之和不小於目前最佳相遇距離 mu 時即可停止，結果仍為最短路徑
+// 非執行緒安全，暫存陣列在多次查詢之間重複使用
+public final class BidirectionalDijkstra implements PathEngine, SearchCounters {
+    // 邊權以 float 存放，略微縮小啟發值以避免捨入誤差使位勢不一致
+    private static final double HEURISTIC_SCALE = 1.0 - 1e-6;
+
+    private final IntGraph forward, backward;
+    // 節點座標 x0, y0, x1, y1, ...；為 null 時即為雙向 Dijkstra
+    private final float[] coordinates;
+    private final IndexedMinHeap heapF, heapB;
+    private final double[] distF, distB;
+    private final int[] parentF, parentB, stampF, stampB;
+    private int generation;
+    private int expanded, peak;
+    private long relaxed;
+    private SearchMonitor monitor;
+    private double distance;
+    // 最近一次搜索的相遇邊 meetA -> meetB，不可達時為 -1
+    private int meetA, meetB;
+    private float startX, startY, endX, endY;
+
+    public BidirectionalDijkstra(IntGraph forward, IntGraph backward, float[] coordinates) {
+        this.forward = forward;
+        this.backward = backward;
+        this.coordinates = coordinates;
+        int n = forward.vertexCount();
+        heapF = new IndexedMinHeap(n);
+        heapB = new IndexedMinHeap(n);
+        distF = new double[n];
+        distB = new double[n];
+        parentF = new int[n];
+        parentB = new int[n];
+        stampF = new int[n];
+        stampB = new int[n];
+    }
+
+    // 回傳由 start 到 end 的最短路徑，不可達時回傳空陣列
+    @Override
+    public int[] search(int start, int end) {
+        run(start, end);
+        if (start == end) return new int[]{start};
+        if (meetA < 0) return new int[0];
+        return join(meetA, meetB);
+    }
+
+    @Override
+    public double shortestDistance(int start, int end) {
+        run(start, end);
+        return distance;
+    }
+
+    private void run(int start, int end) {
+        if (++generation == 0) {
+            Arrays.fill(stampF, 0);
+            Arrays.fill(stampB, 0);
+            generation = 1;
+        }
+        heapF.clear();
+        heapB.clear();
+        heapF.resetCounters();
+        heapB.resetCounters();
+        expanded = 0;
+        relaxed = 0;
+        peak = 0;
+        distance = Double.POSITIVE_INFINITY;
+        if (coordinates != null) {
+            startX = coordinates[2 * start];
+            startY = coordinates[2 * start + 1];
+            endX = coordinates[2 * end];
+            endY = coordinates[2 * end + 1];
+        }
+        meetA = meetB = -1;
+        if (start == end) {
+            distance = 0;
+            return;
+        }
+
+        label(stampF, distF, parentF, start, 0.0, -1);
+        label(stampB, distB, parentB, end, 0.0, -1);
+        heapF.insert(start, potential(start));
+        heapB.insert(end, -potential(end));
+        double mu = Double.POSITIVE_INFINITY;
+
+        while (!heapF.isEmpty() && !heapB.isEmpty()) {
+            peak = Math.max(peak, heapF.size() + heapB.size());
+            if (heapF.peekKey() + heapB.peekKey() >= mu) break;
+            boolean fromStart = heapF.peekKey() <= heapB.peekKey();
+            IntGraph graph = fromStart ? forward : backward;
+            IndexedMinHeap heap = fromStart ? heapF : heapB;
+            double[] dist = fromStart ? distF : distB;
+            int[] parent = fromStart ? parentF : parentB;
+            int[] stamp = fromStart ? stampF : stampB;
+            double[] otherDist = fromStart ? distB : distF;
+            int[] otherStamp = fromStart ? stampB : stampF;
+            double sign = fromStart ? 1.0 : -1.0;
+
+            int v = heap.poll();
+            expanded++;
+            if (monitor != null && (expanded & SearchMonitor.CHECK_MASK) == 0 && monitor.checkpoint()) {
+                monitor.publish(heapF, heapB, expanded);
+            }
+            relaxed += graph.endEdge(v) - graph.firstEdge(v);
+            double dv = dist[v];
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                int w = graph.target(e);
+                double candidate = dv + graph.weight(e);
+                if (stamp[w] != generation || candidate < dist[w]) {
+                    label(stamp, dist, parent, w, candidate, v);
+                    heap.insertOrDecrease(w, candidate + sign * potential(w));
+                }
+                if (otherStamp[w] == generation && candidate + otherDist[w] < mu) {
+                    mu = candidate + otherDist[w];
+                    meetA = fromStart ? v : w;
+                    meetB = fromStart ? w : v;
+                }
+            }
+        }
+        distance = mu;
+    }
+
+    private void label(int[] stamp, double[] dist, int[] parent, int v, double d, int from) {
+        stamp[v] = generation;
+        dist[v] = d;
+        parent[v] = from;
+    }
+
+    // 平均位勢；沒有座標時為 0
+    private double potential(int v) {
+        if (coordinates == null) return 0.0;
+        double x = coordinates[2 * v], y = coordinates[2 * v + 1];
+        double toEnd = Math.hypot(x - endX, y - endY);
+        double toStart = Math.hypot(x - startX, y - startY);
+        return 0.5 * HEURISTIC_SCALE * (toEnd - toStart);
+    }
+
+    // a 在起點樹、b 在終點樹，a -> b 為一條邊
+    private int[] join(int a, int b) {
+        int left = 0, right = 0;
+        for (int at = a; at != -1; at = parentF[at]) left++;
+        for (int at = b; at != -1; at = parentB[at]) right++;
+        int[] path = new int[left + right];
+        int i = left - 1;
+        for (int at = a; at != -1; at = parentF[at]) path[i--] = at;
+        i = left;
+        for (int at = b; at != -1; at = parentB[at]) path[i++] = at;
+        return path;
+    }
+
+    // 設定之後搜索使用的 SearchMonitor (取消、逾時與進度快照)，null 表示不監看
+    public void setMonitor(SearchMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    // 最近一次搜索兩側共展開的頂點數
+    @Override
+    public int expandedCount() {
+        return expanded;
+    }
+
+    @Override
+    public long relaxedCount() {
+        return relaxed;
+    }
+
+    // 兩側堆的總大小的最大值
+    @Override
+    public int peakOpenSize() {
+        return peak;
+    }
+
+    @Override
+    public long heapOperations() {
+        return heapF.operationCount() + heapB.operationCount();
+    }
+
+    // 最近一次搜索的最短距離，不可達時為無限大
+    @Override
+    public double distance() {
+        return distance;
+    }
+
+    public boolean usesHeuristic() {
+        return coordinates != null;
+    }
+}
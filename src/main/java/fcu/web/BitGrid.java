@@ -0,0 +1,163 @@
+package fcu.web;
+
+import java.util.Arrays;
+
+// 以列為主序、每格 1 位元的正方形位元格，(x, y) 對應索引 x * size + y
+// 索引使用 long，因此 50k x 50k 的格子 (25 億位元，約 300 MB) 也能存放
+// 位元分頁存放，頁面在第一次設為 1 時才配置，稀疏的搜索標記只佔用走過的區域
+public final class BitGrid implements MazeView {
+    // 每頁 4096 個字組 (32 KB, 262144 位元)
+    private static final int PAGE_WORD_SHIFT = 12;
+    private static final int PAGE_BIT_SHIFT = PAGE_WORD_SHIFT + 6;
+    private static final int PAGE_WORDS = 1 << PAGE_WORD_SHIFT;
+
+    private final int size;
+    private final long cells;
+    private final long[][] pages;
+
+    public BitGrid(int size) {
+        if (size < 0) throw new IllegalArgumentException("大小不可為負: " + size);
+        this.size = size;
+        this.cells = (long) size * size;
+        long pageCount = (cells + (1L << PAGE_BIT_SHIFT) - 1) >>> PAGE_BIT_SHIFT;
+        this.pages = new long[(int) pageCount][];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public long cellCount() {
+        return cells;
+    }
+
+    public long index(int x, int y) {
+        return (long) x * size + y;
+    }
+
+    @Override
+    public boolean get(int x, int y) {
+        return get(index(x, y));
+    }
+
+    public boolean get(long i) {
+        long[] page = pages[(int) (i >>> PAGE_BIT_SHIFT)];
+        return page != null && (page[(int) (i >>> 6) & (PAGE_WORDS - 1)] & (1L << i)) != 0;
+    }
+
+    public void set(int x, int y) {
+        set(index(x, y));
+    }
+
+    public void set(long i) {
+        int p = (int) (i >>> PAGE_BIT_SHIFT);
+        long[] page = pages[p];
+        if (page == null) {
+            page = pages[p] = new long[PAGE_WORDS];
+        }
+        page[(int) (i >>> 6) & (PAGE_WORDS - 1)] |= 1L << i;
+    }
+
+    public void clear(int x, int y) {
+        clear(index(x, y));
+    }
+
+    public void clear(long i) {
+        long[] page = pages[(int) (i >>> PAGE_BIT_SHIFT)];
+        if (page != null) {
+            page[(int) (i >>> 6) & (PAGE_WORDS - 1)] &= ~(1L << i);
+        }
+    }
+
+    public void set(int x, int y, boolean value) {
+        if (value) set(x, y);
+        else clear(x, y);
+    }
+
+    // 將所有格子設為 1 (超出範圍的位元保持為 0)
+    public void setAll() {
+        for (int p = 0; p < pages.length; p++) {
+            if (pages[p] == null) {
+                pages[p] = new long[PAGE_WORDS];
+            }
+            Arrays.fill(pages[p], -1L);
+        }
+        long tail = cells & ((1L << PAGE_BIT_SHIFT) - 1);
+        if (tail != 0) {
+            long[] last = pages[pages.length - 1];
+            int word = (int) (tail >>> 6);
+            if ((tail & 63) != 0) {
+                last[word++] = (1L << tail) - 1;
+            }
+            Arrays.fill(last, word, PAGE_WORDS, 0L);
+        }
+    }
+
+    // 清除所有位元，已配置的頁面保留以便重複使用
+    public void clearAll() {
+        for (long[] page : pages) {
+            if (page != null) Arrays.fill(page, 0L);
+        }
+    }
+
+    // 1 的數量，逐字組計算
+    public long cardinality() {
+        long count = 0;
+        for (long[] page : pages) {
+            if (page == null) continue;
+            for (long word : page) {
+                count += Long.bitCount(word);
+            }
+        }
+        return count;
+    }
+
+    // 從 from 開始第一個為 1 的索引，不存在時回傳 limit；一次掃描 64 格，跳過未配置的頁面
+    public long nextSetBit(long from, long limit) {
+        if (from >= limit) return limit;
+        long w = from >>> 6;
+        long word = word(w) & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return Math.min((w << 6) + Long.numberOfTrailingZeros(word), limit);
+            }
+            if ((++w << 6) >= limit) return limit;
+            if ((w & (PAGE_WORDS - 1)) == 0) {
+                while (pages[(int) (w >>> PAGE_WORD_SHIFT)] == null) {
+                    w += PAGE_WORDS;
+                    if ((w << 6) >= limit) return limit;
+                }
+            }
+            word = word(w);
+        }
+    }
+
+    // 從 from 開始第一個為 0 的索引，不存在時回傳 limit
+    public long nextClearBit(long from, long limit) {
+        if (from >= limit) return limit;
+        long w = from >>> 6;
+        long word = ~word(w) & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return Math.min((w << 6) + Long.numberOfTrailingZeros(word), limit);
+            }
+            if ((++w << 6) >= limit) return limit;
+            word = ~word(w);
+        }
+    }
+
+    private long word(long w) {
+        long[] page = pages[(int) (w >>> PAGE_WORD_SHIFT)];
+        return page == null ? 0L : page[(int) w & (PAGE_WORDS - 1)];
+    }
+
+    // 已配置頁面佔用的位元組數
+    public long memoryBytes() {
+        long bytes = 16L + 8L * pages.length;
+        for (long[] page : pages) {
+            if (page != null) bytes += 16L + 8L * PAGE_WORDS;
+        }
+        return bytes;
+    }
+}
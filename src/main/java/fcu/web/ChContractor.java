@@ -0,0 +1,414 @@
+package fcu.web;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+// Contraction Hierarchies 的前處理，由 ContractionHierarchy.build 使用
+// 節點以回合收縮：每回合選出優先值 (邊差與深度) 在鄰居中最小的獨立集合，
+// 平行做見證搜索求出捷徑，再依序套用並平行更新受影響鄰居的優先值
+// 經過本回合其他收縮節點的見證路徑必須嚴格較短，否則兩個節點可能互相以對方為見證而都不加捷徑
+final class ChContractor {
+    // 每次見證搜索最多確定的節點數，超過時保守地加入捷徑；估計優先值時用較小的上限
+    private static final int WITNESS_SETTLE_LIMIT = 128;
+    private static final int ESTIMATE_SETTLE_LIMIT = 32;
+    // 每個平行任務至少處理的節點數
+    private static final int NODES_PER_TASK = 64;
+
+    private final int n;
+    private final ForkJoinPool pool;
+    // 每個平行步驟之後檢查是否已取消或逾時，null 表示不檢查
+    private final SearchMonitor monitor;
+    // 尚未收縮的動態鄰接串列，中間節點為 -1 表示原始邊
+    private final int[][] outTarget, outMiddle, inTarget, inMiddle;
+    private final float[][] outWeight, inWeight;
+    private final int[] outSize, inSize;
+    private final boolean[] contracted, inBatch;
+    // 優先值、節點在階層中的深度 (收縮鄰居時加深)
+    private final int[] priority;
+    private final int[] level;
+    private final ThreadLocal<Witness> witnesses;
+
+    // 收縮時記錄的上行 (往高等級) 邊與下行邊，下行邊存在較低等級的端點
+    private final int[][] upTarget, upMiddle, downTarget, downMiddle;
+    private final float[][] upWeight, downWeight;
+    private final int[] rank;
+    private int shortcuts;
+    // 記錄在覆蓋圖中，讀入覆蓋檔時確認屬於同一張圖
+    private final int sourceArcs;
+    private final long sourceFingerprint;
+
+    ChContractor(IntGraph graph, ForkJoinPool pool, SearchMonitor monitor) {
+        n = graph.vertexCount();
+        this.pool = pool;
+        this.monitor = monitor;
+        sourceArcs = graph.edgeCount();
+        sourceFingerprint = ContractionHierarchy.fingerprint(graph);
+        outTarget = new int[n][];
+        outMiddle = new int[n][];
+        outWeight = new float[n][];
+        inTarget = new int[n][];
+        inMiddle = new int[n][];
+        inWeight = new float[n][];
+        outSize = new int[n];
+        inSize = new int[n];
+        for (int v = 0; v < n; v++) {
+            int degree = graph.degree(v);
+            outTarget[v] = new int[Math.max(2, degree)];
+            outMiddle[v] = new int[outTarget[v].length];
+            outWeight[v] = new float[outTarget[v].length];
+            inTarget[v] = new int[4];
+            inMiddle[v] = new int[4];
+            inWeight[v] = new float[4];
+        }
+        for (int v = 0; v < n; v++) {
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                int w = graph.target(e);
+                if (w != v) addOrImprove(v, w, graph.weight(e), -1);
+            }
+        }
+        contracted = new boolean[n];
+        inBatch = new boolean[n];
+        priority = new int[n];
+        level = new int[n];
+        witnesses = ThreadLocal.withInitial(() -> new Witness(n));
+        upTarget = new int[n][];
+        upMiddle = new int[n][];
+        upWeight = new float[n][];
+        downTarget = new int[n][];
+        downMiddle = new int[n][];
+        downWeight = new float[n][];
+        rank = new int[n];
+    }
+
+    ContractionHierarchy contract() {
+        parallelFor(n, v -> priority[v] = computePriority(v));
+        int[] remaining = new int[n];
+        for (int v = 0; v < n; v++) remaining[v] = v;
+        int remainingCount = n;
+        int nextRank = 0;
+        int[] batch = new int[n];
+        boolean[] selected = new boolean[n];
+        int[][] pairs = new int[n][];
+        float[][] pairWeights = new float[n][];
+        int[] affected = new int[n];
+        boolean[] marked = new boolean[n];
+
+        while (remainingCount > 0) {
+            // 選出優先值小於所有未收縮鄰居的節點
+            int[] candidates = remaining;
+            parallelFor(remainingCount, i -> selected[candidates[i]] = isLocalMinimum(candidates[i]));
+            int batchSize = 0, kept = 0;
+            for (int i = 0; i < remainingCount; i++) {
+                int v = remaining[i];
+                if (selected[v]) {
+                    selected[v] = false;
+                    inBatch[v] = true;
+                    batch[batchSize++] = v;
+                } else {
+                    remaining[kept++] = v;
+                }
+            }
+            remainingCount = kept;
+
+            int[] current = batch;
+            parallelFor(batchSize, i -> findShortcuts(current[i], i, pairs, pairWeights));
+
+            int affectedCount = 0;
+            for (int i = 0; i < batchSize; i++) {
+                int v = batch[i];
+                rank[v] = nextRank++;
+                record(v);
+                affectedCount = detach(v, affected, affectedCount, marked);
+                int[] p = pairs[i];
+                float[] pw = pairWeights[i];
+                for (int k = 0; k < pw.length; k++) {
+                    if (addOrImprove(p[2 * k], p[2 * k + 1], pw[k], v)) shortcuts++;
+                }
+                pairs[i] = null;
+                pairWeights[i] = null;
+                contracted[v] = true;
+                inBatch[v] = false;
+            }
+            for (int i = 0; i < affectedCount; i++) marked[affected[i]] = false;
+            int[] touched = affected;
+            parallelFor(affectedCount, i -> priority[touched[i]] = computePriority(touched[i]));
+        }
+        return ContractionHierarchy.fromLists(n, rank, upTarget, upWeight, upMiddle,
+                downTarget, downWeight, downMiddle, shortcuts, sourceArcs, sourceFingerprint);
+    }
+
+    private boolean isLocalMinimum(int v) {
+        for (int i = 0; i < outSize[v]; i++) {
+            if (precedes(outTarget[v][i], v)) return false;
+        }
+        for (int i = 0; i < inSize[v]; i++) {
+            if (precedes(inTarget[v][i], v)) return false;
+        }
+        return true;
+    }
+
+    // 優先值相同時以打散的編號決定先後，避免依編號順序由一側掃過整張圖
+    private boolean precedes(int a, int b) {
+        if (priority[a] != priority[b]) return priority[a] < priority[b];
+        int ha = scramble(a), hb = scramble(b);
+        return ha != hb ? ha < hb : a < b;
+    }
+
+    private static int scramble(int v) {
+        int h = v * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // 兩倍邊差 (需要的捷徑數 - 移除的邊數) 加上深度，深度讓收縮在圖上均勻分布
+    private int computePriority(int v) {
+        return 2 * (countShortcuts(v) - outSize[v] - inSize[v]) + level[v];
+    }
+
+    private int countShortcuts(int v) {
+        Witness witness = witnesses.get();
+        int count = 0;
+        for (int i = 0; i < inSize[v]; i++) {
+            int u = inTarget[v][i];
+            float toV = inWeight[v][i];
+            float limit = toV + maxOutWeight(v, u);
+            witness.run(u, v, limit, ESTIMATE_SETTLE_LIMIT);
+            for (int j = 0; j < outSize[v]; j++) {
+                int w = outTarget[v][j];
+                if (w != u && !witness.within(w, toV + outWeight[v][j])) count++;
+            }
+        }
+        return count;
+    }
+
+    // 為批次中第 index 個節點 v 求出需要的捷徑 (u, w) 與權重
+    private void findShortcuts(int v, int index, int[][] pairs, float[][] pairWeights) {
+        Witness witness = witnesses.get();
+        int[] p = new int[8];
+        float[] pw = new float[4];
+        int count = 0;
+        for (int i = 0; i < inSize[v]; i++) {
+            int u = inTarget[v][i];
+            float toV = inWeight[v][i];
+            witness.run(u, v, toV + maxOutWeight(v, u), WITNESS_SETTLE_LIMIT);
+            for (int j = 0; j < outSize[v]; j++) {
+                int w = outTarget[v][j];
+                float via = toV + outWeight[v][j];
+                if (w == u || witness.within(w, via)) continue;
+                if (count == pw.length) {
+                    p = Arrays.copyOf(p, 4 * count);
+                    pw = Arrays.copyOf(pw, 2 * count);
+                }
+                p[2 * count] = u;
+                p[2 * count + 1] = w;
+                pw[count++] = via;
+            }
+        }
+        pairs[index] = p;
+        pairWeights[index] = Arrays.copyOf(pw, count);
+    }
+
+    private float maxOutWeight(int v, int except) {
+        float max = 0f;
+        for (int j = 0; j < outSize[v]; j++) {
+            if (outTarget[v][j] != except) max = Math.max(max, outWeight[v][j]);
+        }
+        return max;
+    }
+
+    // 收縮 v 時，它剩下的邊都連往等級較高的節點
+    private void record(int v) {
+        upTarget[v] = Arrays.copyOf(outTarget[v], outSize[v]);
+        upWeight[v] = Arrays.copyOf(outWeight[v], outSize[v]);
+        upMiddle[v] = Arrays.copyOf(outMiddle[v], outSize[v]);
+        downTarget[v] = Arrays.copyOf(inTarget[v], inSize[v]);
+        downWeight[v] = Arrays.copyOf(inWeight[v], inSize[v]);
+        downMiddle[v] = Arrays.copyOf(inMiddle[v], inSize[v]);
+    }
+
+    // 從鄰居的串列中移除 v，並收集需要重新計算優先值的鄰居
+    private int detach(int v, int[] affected, int count, boolean[] marked) {
+        for (int i = 0; i < outSize[v]; i++) {
+            int w = outTarget[v][i];
+            remove(inTarget[w], inWeight[w], inMiddle[w], inSize, w, v);
+            level[w] = Math.max(level[w], level[v] + 1);
+            if (!marked[w]) {
+                marked[w] = true;
+                affected[count++] = w;
+            }
+        }
+        for (int i = 0; i < inSize[v]; i++) {
+            int u = inTarget[v][i];
+            remove(outTarget[u], outWeight[u], outMiddle[u], outSize, u, v);
+            level[u] = Math.max(level[u], level[v] + 1);
+            if (!marked[u]) {
+                marked[u] = true;
+                affected[count++] = u;
+            }
+        }
+        // 釋放已記錄的動態串列
+        outTarget[v] = inTarget[v] = outMiddle[v] = inMiddle[v] = null;
+        outWeight[v] = inWeight[v] = null;
+        outSize[v] = inSize[v] = 0;
+        return count;
+    }
+
+    private static void remove(int[] targets, float[] weights, int[] middles, int[] sizes, int owner, int target) {
+        int size = sizes[owner];
+        for (int i = 0; i < size; i++) {
+            if (targets[i] == target) {
+                size--;
+                targets[i] = targets[size];
+                weights[i] = weights[size];
+                middles[i] = middles[size];
+                sizes[owner] = size;
+                return;
+            }
+        }
+    }
+
+    // 加入 u -> w，已存在時保留較短者；回傳是否新增了一條邊
+    private boolean addOrImprove(int u, int w, float weight, int middle) {
+        int[] targets = outTarget[u];
+        for (int i = 0; i < outSize[u]; i++) {
+            if (targets[i] != w) continue;
+            if (weight < outWeight[u][i]) {
+                outWeight[u][i] = weight;
+                outMiddle[u][i] = middle;
+                int[] back = inTarget[w];
+                for (int j = 0; j < inSize[w]; j++) {
+                    if (back[j] == u) {
+                        inWeight[w][j] = weight;
+                        inMiddle[w][j] = middle;
+                        break;
+                    }
+                }
+            }
+            return false;
+        }
+        if (outSize[u] == targets.length) {
+            int capacity = 2 * targets.length;
+            outTarget[u] = Arrays.copyOf(targets, capacity);
+            outWeight[u] = Arrays.copyOf(outWeight[u], capacity);
+            outMiddle[u] = Arrays.copyOf(outMiddle[u], capacity);
+        }
+        int i = outSize[u]++;
+        outTarget[u][i] = w;
+        outWeight[u][i] = weight;
+        outMiddle[u][i] = middle;
+        if (inSize[w] == inTarget[w].length) {
+            int capacity = 2 * inTarget[w].length;
+            inTarget[w] = Arrays.copyOf(inTarget[w], capacity);
+            inWeight[w] = Arrays.copyOf(inWeight[w], capacity);
+            inMiddle[w] = Arrays.copyOf(inMiddle[w], capacity);
+        }
+        int j = inSize[w]++;
+        inTarget[w][j] = u;
+        inWeight[w][j] = weight;
+        inMiddle[w][j] = middle;
+        return true;
+    }
+
+    // 已取消時工作執行緒略過剩下的區段，全部結束後在呼叫端的執行緒拋出 CancellationException
+    private void parallelFor(int count, IntConsumer body) {
+        if (count > 0) pool.invoke(new Range(0, count, body, monitor));
+        if (monitor != null) monitor.checkpoint();
+    }
+
+    private static final class Range extends RecursiveAction {
+        private final int from, to;
+        private final IntConsumer body;
+        private final SearchMonitor monitor;
+
+        Range(int from, int to, IntConsumer body, SearchMonitor monitor) {
+            this.from = from;
+            this.to = to;
+            this.body = body;
+            this.monitor = monitor;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > NODES_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Range(from, mid, body, monitor), new Range(mid, to, body, monitor));
+                return;
+            }
+            if (monitor != null && monitor.shouldStop()) return;
+            for (int i = from; i < to; i++) {
+                body.accept(i);
+            }
+        }
+    }
+
+    // 每個執行緒各自的見證搜索狀態
+    private final class Witness {
+        private final IndexedMinHeap heap;
+        private final float[] distance;
+        // 最短見證路徑是否經過本回合要收縮的節點
+        private final boolean[] viaBatch;
+        private final int[] stamp;
+        // target[w] == generation 表示 w 是 excluded 的出邊鄰居，全部確定後即可停止
+        private final int[] target;
+        private int generation;
+
+        Witness(int n) {
+            heap = new IndexedMinHeap(n);
+            distance = new float[n];
+            viaBatch = new boolean[n];
+            stamp = new int[n];
+            target = new int[n];
+        }
+
+        // 從 source 出發、不經過 excluded 的受限 Dijkstra；距離相同時優先保留不經過本回合收縮節點的路徑
+        void run(int source, int excluded, float limit, int settleLimit) {
+            if (++generation == 0) {
+                Arrays.fill(stamp, 0);
+                Arrays.fill(target, 0);
+                generation = 1;
+            }
+            heap.clear();
+            int remainingTargets = 0;
+            for (int j = 0; j < outSize[excluded]; j++) {
+                int w = outTarget[excluded][j];
+                if (w != source && target[w] != generation) {
+                    target[w] = generation;
+                    remainingTargets++;
+                }
+            }
+            stamp[source] = generation;
+            distance[source] = 0f;
+            viaBatch[source] = false;
+            heap.insert(source, 0.0);
+            int settled = 0;
+            while (remainingTargets > 0 && !heap.isEmpty() && heap.peekKey() <= limit
+                    && settled < settleLimit) {
+                int v = heap.poll();
+                settled++;
+                if (target[v] == generation) remainingTargets--;
+                float dv = distance[v];
+                boolean touched = viaBatch[v] || inBatch[v];
+                for (int i = 0; i < outSize[v]; i++) {
+                    int w = outTarget[v][i];
+                    if (w == excluded) continue;
+                    float candidate = dv + outWeight[v][i];
+                    if (candidate > limit) continue;
+                    if (stamp[w] != generation || candidate < distance[w]) {
+                        stamp[w] = generation;
+                        distance[w] = candidate;
+                        viaBatch[w] = touched;
+                        heap.insertOrDecrease(w, candidate);
+                    } else if (candidate == distance[w] && !touched) {
+                        viaBatch[w] = false;
+                    }
+                }
+            }
+        }
+
+        boolean within(int v, float bound) {
+            if (stamp[v] != generation) return false;
+            return distance[v] < bound || (distance[v] == bound && !viaBatch[v]);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package fcu.web;
+
+import java.util.Arrays;
+
+// Contraction Hierarchies 的雙向上行查詢
+// 起點側在上行圖、終點側在下行圖上做 Dijkstra，兩側都只往等級較高的節點走；
+// 一側的堆頂鍵值不小於目前最佳相遇距離 mu 時該側停止，並以 stall-on-demand 略過不可能最短的節點
+// 找到相遇點後依捷徑的中間節點展開回原圖路徑
+// 非執行緒安全，暫存陣列在多次查詢之間重複使用；多個 ChQuery 可共用同一個 ContractionHierarchy
+public final class ChQuery implements PathEngine {
+    private final ContractionHierarchy ch;
+    private final IntGraph up, down;
+    private final IndexedMinHeap heapF, heapB;
+    private final double[] distF, distB;
+    // 父節點與抵達時經過的邊 (上行圖或下行圖中的編號)
+    private final int[] parentF, parentB, edgeF, edgeB, stampF, stampB;
+    private int generation;
+    private int expanded;
+    private double distance;
+    // 最近一次搜索的相遇點，不可達時為 -1
+    private int meet;
+    // 展開捷徑用的堆疊 (u, w, 中間節點) 與輸出路徑
+    private int[] stack = new int[48];
+    private int[] path = new int[16];
+    private int pathLength;
+
+    public ChQuery(ContractionHierarchy ch) {
+        this.ch = ch;
+        this.up = ch.upward();
+        this.down = ch.downward();
+        int n = ch.vertexCount();
+        heapF = new IndexedMinHeap(n);
+        heapB = new IndexedMinHeap(n);
+        distF = new double[n];
+        distB = new double[n];
+        parentF = new int[n];
+        parentB = new int[n];
+        edgeF = new int[n];
+        edgeB = new int[n];
+        stampF = new int[n];
+        stampB = new int[n];
+    }
+
+    // 回傳由 start 到 end 的最短路徑，不可達時回傳空陣列
+    @Override
+    public int[] search(int start, int end) {
+        run(start, end);
+        if (start == end) return new int[]{start};
+        if (meet < 0) return new int[0];
+        return unpack(meet, start);
+    }
+
+    @Override
+    public double shortestDistance(int start, int end) {
+        run(start, end);
+        return distance;
+    }
+
+    private void run(int start, int end) {
+        if (++generation == 0) {
+            Arrays.fill(stampF, 0);
+            Arrays.fill(stampB, 0);
+            generation = 1;
+        }
+        heapF.clear();
+        heapB.clear();
+        expanded = 0;
+        distance = Double.POSITIVE_INFINITY;
+        meet = -1;
+        if (start == end) {
+            distance = 0;
+            return;
+        }
+
+        label(stampF, distF, parentF, edgeF, start, 0.0, -1, -1);
+        label(stampB, distB, parentB, edgeB, end, 0.0, -1, -1);
+        heapF.insert(start, 0.0);
+        heapB.insert(end, 0.0);
+        double mu = Double.POSITIVE_INFINITY;
+
+        while (true) {
+            boolean forwardActive = !heapF.isEmpty() && heapF.peekKey() < mu;
+            boolean backwardActive = !heapB.isEmpty() && heapB.peekKey() < mu;
+            if (!forwardActive && !backwardActive) break;
+            boolean fromStart = forwardActive && (!backwardActive || heapF.peekKey() <= heapB.peekKey());
+            IntGraph graph = fromStart ? up : down;
+            IntGraph opposite = fromStart ? down : up;
+            IndexedMinHeap heap = fromStart ? heapF : heapB;
+            double[] dist = fromStart ? distF : distB;
+            int[] parent = fromStart ? parentF : parentB;
+            int[] edge = fromStart ? edgeF : edgeB;
+            int[] stamp = fromStart ? stampF : stampB;
+            double[] otherDist = fromStart ? distB : distF;
+            int[] otherStamp = fromStart ? stampB : stampF;
+
+            int v = heap.poll();
+            expanded++;
+            double dv = dist[v];
+            if (otherStamp[v] == generation && dv + otherDist[v] < mu) {
+                mu = dv + otherDist[v];
+                meet = v;
+            }
+            if (stalled(opposite, stamp, dist, v, dv)) continue;
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                int w = graph.target(e);
+                double candidate = dv + graph.weight(e);
+                if (stamp[w] != generation || candidate < dist[w]) {
+                    label(stamp, dist, parent, edge, w, candidate, v, e);
+                    heap.insertOrDecrease(w, candidate);
+                }
+            }
+        }
+        distance = mu;
+    }
+
+    // 若某個等級較高的鄰居 u 已有 d(u) + w(u, v) < d(v)，v 不在最短上行路徑上，不必展開
+    private boolean stalled(IntGraph opposite, int[] stamp, double[] dist, int v, double dv) {
+        for (int e = opposite.firstEdge(v); e < opposite.endEdge(v); e++) {
+            int u = opposite.target(e);
+            if (stamp[u] == generation && dist[u] + opposite.weight(e) < dv) return true;
+        }
+        return false;
+    }
+
+    private void label(int[] stamp, double[] dist, int[] parent, int[] edge, int v, double d, int from, int via) {
+        stamp[v] = generation;
+        dist[v] = d;
+        parent[v] = from;
+        edge[v] = via;
+    }
+
+    // 起點側由 meet 往回走到 start，終點側由 meet 往前走到 end，逐邊展開捷徑
+    private int[] unpack(int meet, int start) {
+        int hops = 0;
+        for (int at = meet; at != start; at = parentF[at]) hops++;
+        int[] chain = new int[hops + 1];
+        int i = hops;
+        for (int at = meet; ; at = parentF[at]) {
+            chain[i--] = at;
+            if (at == start) break;
+        }
+        pathLength = 0;
+        append(start);
+        for (int k = 1; k < chain.length; k++) {
+            int w = chain[k];
+            expand(chain[k - 1], w, ch.upMiddle(edgeF[w]));
+        }
+        for (int at = meet; parentB[at] != -1; at = parentB[at]) {
+            expand(at, parentB[at], ch.downMiddle(edgeB[at]));
+        }
+        return Arrays.copyOf(path, pathLength);
+    }
+
+    // 展開 u -> w (中間節點 middle)，只輸出 u 之後的節點
+    private void expand(int u, int w, int middle) {
+        int top = 0;
+        stack = push(stack, top, u, w, middle);
+        top += 3;
+        while (top > 0) {
+            top -= 3;
+            int a = stack[top], b = stack[top + 1], m = stack[top + 2];
+            if (m < 0) {
+                append(b);
+                continue;
+            }
+            // a -> m 存在 m 的下行圖 (終點 a)，m -> b 存在 m 的上行圖；後處理的先推入
+            stack = push(stack, top, m, b, middleOf(up, m, b, true));
+            top += 3;
+            stack = push(stack, top, a, m, middleOf(down, m, a, false));
+            top += 3;
+        }
+    }
+
+    private int middleOf(IntGraph graph, int v, int target, boolean upward) {
+        for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+            if (graph.target(e) == target) return upward ? ch.upMiddle(e) : ch.downMiddle(e);
+        }
+        throw new IllegalStateException("CH 覆蓋圖缺少捷徑的子邊: " + v + " - " + target);
+    }
+
+    private static int[] push(int[] stack, int top, int a, int b, int m) {
+        if (top + 3 > stack.length) stack = Arrays.copyOf(stack, 2 * stack.length);
+        stack[top] = a;
+        stack[top + 1] = b;
+        stack[top + 2] = m;
+        return stack;
+    }
+
+    private void append(int v) {
+        if (pathLength == path.length) path = Arrays.copyOf(path, 2 * path.length);
+        path[pathLength++] = v;
+    }
+
+    // 最近一次搜索兩側共展開的頂點數
+    @Override
+    public int expandedCount() {
+        return expanded;
+    }
+
+    // 最近一次搜索的最短距離，不可達時為無限大
+    @Override
+    public double distance() {
+        return distance;
+    }
+
+    public ContractionHierarchy hierarchy() {
+        return ch;
+    }
+}
@@ -0,0 +1,306 @@
+package fcu.web;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+// Contraction Hierarchies 覆蓋圖：每個節點的等級，以及往高等級走的上行圖與下行圖 (皆為 CSR)
+// 上行圖 v -> w 表示 rank(w) > rank(v) 的邊；下行圖存在較低等級的端點 v，終點 u 表示原邊 u -> v
+// 捷徑邊另記錄被收縮的中間節點，查詢後據此展開回原圖路徑；建立後不可變，可在多個 ChQuery 之間共用
+//
+// 覆蓋檔格式 (小端序): 標頭 64 位元組 magic "CHOV", 版本, 頂點數, 上行弧數, 下行弧數, 捷徑數,
+// 原圖弧數 int, 原圖指紋 long，之後依序為 rank int[V]，以及上行、下行圖各自的 offsets int[V + 1], targets, weights, middles
+// 原圖的弧數與指紋 (fingerprint) 用來確認覆蓋檔屬於同一張圖，頂點數相同的其他圖不會被誤用
+public final class ContractionHierarchy {
+    public static final int MAGIC = 0x564f4843; // "CHOV"
+    public static final int VERSION = 2;
+    private static final int HEADER_BYTES = 64;
+
+    private final int vertexCount;
+    private final int[] rank;
+    private final CsrGraph up, down;
+    private final int[] upMiddle, downMiddle;
+    private final int shortcuts;
+    // 建立時原圖的弧數與指紋
+    private final int sourceArcs;
+    private final long sourceFingerprint;
+
+    ContractionHierarchy(int vertexCount, int[] rank, CsrGraph up, int[] upMiddle,
+                         CsrGraph down, int[] downMiddle, int shortcuts, int sourceArcs, long sourceFingerprint) {
+        this.vertexCount = vertexCount;
+        this.rank = rank;
+        this.up = up;
+        this.upMiddle = upMiddle;
+        this.down = down;
+        this.downMiddle = downMiddle;
+        this.shortcuts = shortcuts;
+        this.sourceArcs = sourceArcs;
+        this.sourceFingerprint = sourceFingerprint;
+    }
+
+    // 在 pool 上平行前處理 graph (有向圖，無向圖的每條邊應有兩個方向)
+    public static ContractionHierarchy build(IntGraph graph, ForkJoinPool pool) {
+        return build(graph, pool, null);
+    }
+
+    // 可取消的版本：收縮的每個平行步驟之後呼叫 monitor.checkpoint()，取消或逾時時拋出 CancellationException
+    public static ContractionHierarchy build(IntGraph graph, ForkJoinPool pool, SearchMonitor monitor) {
+        return new ChContractor(graph, pool, monitor).contract();
+    }
+
+    static ContractionHierarchy fromLists(int n, int[] rank, int[][] upTarget, float[][] upWeight, int[][] upMiddle,
+                                          int[][] downTarget, float[][] downWeight, int[][] downMiddle,
+                                          int shortcuts, int sourceArcs, long sourceFingerprint) {
+        int[] upOffsets = new int[n + 1], downOffsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            upOffsets[v + 1] = upOffsets[v] + upTarget[v].length;
+            downOffsets[v + 1] = downOffsets[v] + downTarget[v].length;
+        }
+        int[] ut = new int[upOffsets[n]], um = new int[upOffsets[n]];
+        float[] uw = new float[upOffsets[n]];
+        int[] dt = new int[downOffsets[n]], dm = new int[downOffsets[n]];
+        float[] dw = new float[downOffsets[n]];
+        for (int v = 0; v < n; v++) {
+            System.arraycopy(upTarget[v], 0, ut, upOffsets[v], upTarget[v].length);
+            System.arraycopy(upWeight[v], 0, uw, upOffsets[v], upTarget[v].length);
+            System.arraycopy(upMiddle[v], 0, um, upOffsets[v], upTarget[v].length);
+            System.arraycopy(downTarget[v], 0, dt, downOffsets[v], downTarget[v].length);
+            System.arraycopy(downWeight[v], 0, dw, downOffsets[v], downTarget[v].length);
+            System.arraycopy(downMiddle[v], 0, dm, downOffsets[v], downTarget[v].length);
+        }
+        return new ContractionHierarchy(n, rank, new CsrGraph(n, upOffsets, ut, uw), um,
+                new CsrGraph(n, downOffsets, dt, dw), dm, shortcuts, sourceArcs, sourceFingerprint);
+    }
+
+    // 圖的鄰接 (每個頂點的度數、弧的終點與權重) 的 64 位元 FNV-1a 雜湊，與邊區段之間的空隙無關，
+    // 因此 DynamicGraph 與寫出後再讀入的 MappedGraph 得到相同的值；O(V + E)
+    public static long fingerprint(IntGraph graph) {
+        long hash = 0xcbf29ce484222325L;
+        hash = mix(hash, graph.vertexCount());
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            hash = mix(hash, graph.degree(v));
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                hash = mix(hash, graph.target(e));
+                hash = mix(hash, Float.floatToIntBits(graph.weight(e)));
+            }
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, int value) {
+        for (int i = 0; i < 4; i++) {
+            hash = (hash ^ (value & 0xff)) * 0x100000001b3L;
+            value >>>= 8;
+        }
+        return hash;
+    }
+
+    // 覆蓋圖是否由 graph (相同的頂點數、弧數與指紋) 建立
+    public boolean matches(IntGraph graph) {
+        return graph.vertexCount() == vertexCount && graph.edgeCount() == sourceArcs
+                && fingerprint(graph) == sourceFingerprint;
+    }
+
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    public int rank(int v) {
+        return rank[v];
+    }
+
+    public int shortcutCount() {
+        return shortcuts;
+    }
+
+    // 上行圖：v 的出邊連往等級較高的節點
+    public IntGraph upward() {
+        return up;
+    }
+
+    // 下行圖：v 的邊 (v, u) 代表原圖中等級較高的 u 連往 v
+    public IntGraph downward() {
+        return down;
+    }
+
+    // 邊的中間節點，原始邊為 -1
+    int upMiddle(int e) {
+        return upMiddle[e];
+    }
+
+    int downMiddle(int e) {
+        return downMiddle[e];
+    }
+
+    public long memoryBytes() {
+        return up.memoryFootprint() + down.memoryFootprint()
+                + 4L * (rank.length + upMiddle.length + downMiddle.length) + 48L;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CH: %,d 個頂點, 上行 %,d 條弧, 下行 %,d 條弧, 捷徑 %,d 條, %,d 位元組",
+                vertexCount, up.edgeCount(), down.edgeCount(), shortcuts, memoryBytes());
+    }
+
+    // 將覆蓋圖寫入檔案
+    public void write(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(vertexCount)
+                    .putInt(up.edgeCount()).putInt(down.edgeCount()).putInt(shortcuts)
+                    .putInt(sourceArcs).putLong(sourceFingerprint);
+            while (buffer.position() < HEADER_BYTES) {
+                buffer.put((byte) 0);
+            }
+            buffer = putInts(channel, buffer, rank);
+            for (CsrGraph graph : new CsrGraph[]{up, down}) {
+                int[] offsets = new int[vertexCount + 1];
+                int[] targets = new int[graph.edgeCount()];
+                float[] weights = new float[graph.edgeCount()];
+                for (int v = 0; v < vertexCount; v++) offsets[v + 1] = graph.endEdge(v);
+                for (int e = 0; e < targets.length; e++) {
+                    targets[e] = graph.target(e);
+                    weights[e] = graph.weight(e);
+                }
+                buffer = putInts(channel, buffer, offsets);
+                buffer = putInts(channel, buffer, targets);
+                for (float w : weights) {
+                    buffer = ensure(channel, buffer);
+                    buffer.putFloat(w);
+                }
+                buffer = putInts(channel, buffer, graph == up ? upMiddle : downMiddle);
+            }
+            flush(channel, buffer);
+        }
+    }
+
+    // 讀入以 write 寫出的覆蓋圖
+    public static ContractionHierarchy read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("檔案太小，不是 CH 覆蓋檔: " + file);
+            }
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (data.getInt() != MAGIC) {
+                throw new IOException("檔案標記錯誤，不是 CH 覆蓋檔: " + file);
+            }
+            int version = data.getInt();
+            if (version != VERSION) {
+                throw new IOException("不支援的 CH 覆蓋檔版本: " + version);
+            }
+            int n = data.getInt();
+            int upArcs = data.getInt();
+            int downArcs = data.getInt();
+            int shortcuts = data.getInt();
+            int sourceArcs = data.getInt();
+            long sourceFingerprint = data.getLong();
+            long expected = HEADER_BYTES + 4L * (n + 2L * (n + 1) + 3L * upArcs + 3L * downArcs);
+            if (n < 0 || upArcs < 0 || downArcs < 0 || channel.size() < expected) {
+                throw new IOException("CH 覆蓋檔損壞或被截斷: " + file);
+            }
+            data.position(HEADER_BYTES);
+            int[] rank = getInts(data, n);
+            int[] upOffsets = getInts(data, n + 1);
+            int[] upTargets = getInts(data, upArcs);
+            float[] upWeights = getFloats(data, upArcs);
+            int[] upMiddle = getInts(data, upArcs);
+            int[] downOffsets = getInts(data, n + 1);
+            int[] downTargets = getInts(data, downArcs);
+            float[] downWeights = getFloats(data, downArcs);
+            int[] downMiddle = getInts(data, downArcs);
+            return new ContractionHierarchy(n, rank, new CsrGraph(n, upOffsets, upTargets, upWeights), upMiddle,
+                    new CsrGraph(n, downOffsets, downTargets, downWeights), downMiddle, shortcuts,
+                    sourceArcs, sourceFingerprint);
+        }
+    }
+
+    private static int[] getInts(ByteBuffer data, int count) {
+        int[] values = new int[count];
+        data.asIntBuffer().get(values);
+        data.position(data.position() + 4 * count);
+        return values;
+    }
+
+    private static float[] getFloats(ByteBuffer data, int count) {
+        float[] values = new float[count];
+        data.asFloatBuffer().get(values);
+        data.position(data.position() + 4 * count);
+        return values;
+    }
+
+    private static ByteBuffer putInts(FileChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+        for (int value : values) {
+            buffer = ensure(channel, buffer);
+            buffer.putInt(value);
+        }
+        return buffer;
+    }
+
+    private static ByteBuffer ensure(FileChannel channel, ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < 4) {
+            flush(channel, buffer);
+            buffer.clear();
+        }
+        return buffer;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // 前處理與查詢延遲報告: ContractionHierarchy [格網邊長 | DIMACS .gr 檔] [查詢數] [種子]
+    // 以 Dijkstra 驗證每個查詢的距離
+    public static void main(String[] args) throws IOException {
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+        Random random = new Random(seed);
+        IntGraph graph = BenchmarkGraphs.load(args.length > 0 ? args[0] : null, 200, random);
+        System.out.printf("圖: %,d 個頂點, %,d 條弧%n", graph.vertexCount(), graph.edgeCount());
+
+        long startTime = System.nanoTime();
+        ContractionHierarchy ch = build(graph, ForkJoinPool.commonPool());
+        System.out.printf("前處理 %.1f 毫秒 (%d 執行緒), %s%n", (System.nanoTime() - startTime) / 1e6,
+                ForkJoinPool.commonPool().getParallelism(), ch);
+
+        int n = graph.vertexCount();
+        int[] sources = new int[queries], targets = new int[queries];
+        for (int q = 0; q < queries; q++) {
+            sources[q] = random.nextInt(n);
+            targets[q] = random.nextInt(n);
+        }
+        DijkstraSearch dijkstra = new DijkstraSearch(graph);
+        ChQuery query = new ChQuery(ch);
+        long dijkstraNanos = 0, chNanos = 0, dijkstraSettled = 0, chExpanded = 0;
+        for (int q = 0; q < queries; q++) {
+            long t0 = System.nanoTime();
+            dijkstra.search(sources[q], targets[q]);
+            long t1 = System.nanoTime();
+            int[] path = query.search(sources[q], targets[q]);
+            long t2 = System.nanoTime();
+            double expected = dijkstra.distance(targets[q]);
+            if (Math.abs(query.distance() - expected) > 1e-3 * Math.max(1.0, expected)
+                    || (path.length == 0) != Double.isInfinite(expected)) {
+                throw new IllegalStateException("CH 距離 " + query.distance() + "，Dijkstra 為 " + expected);
+            }
+            dijkstraNanos += t1 - t0;
+            chNanos += t2 - t1;
+            dijkstraSettled += dijkstra.settledCount();
+            chExpanded += query.expandedCount();
+        }
+        System.out.printf("Dijkstra: 平均 %.1f 微秒, 確定 %,d 個頂點%n",
+                dijkstraNanos / 1e3 / queries, dijkstraSettled / queries);
+        System.out.printf("CH:       平均 %.1f 微秒, 展開 %,d 個頂點, 加速 %.1f 倍%n",
+                chNanos / 1e3 / queries, chExpanded / queries, (double) dijkstraNanos / chNanos);
+    }
+}
@@ -0,0 +1,245 @@
+package fcu.web;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+// 壓縮稀疏列 (CSR) 格式的不可變圖，不依賴任何 Swing 元件
+public final class CsrGraph implements IntGraph {
+    // 頂點數量
+    private final int vertexCount;
+    // offsets[v] .. offsets[v + 1] 為頂點 v 的出邊範圍，長度為 V + 1
+    private final int[] offsets;
+    // 每條出邊的終點，長度為 E
+    private final int[] targets;
+    // 每條出邊的權重，無權圖時為 null
+    private final float[] weights;
+
+    CsrGraph(int vertexCount, int[] offsets, int[] targets, float[] weights) {
+        this.vertexCount = vertexCount;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    @Override
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    // 有向邊 (弧) 的數量，無向邊會被計算兩次
+    @Override
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    @Override
+    public boolean hasWeights() {
+        return weights != null;
+    }
+
+    @Override
+    public int firstEdge(int v) {
+        return offsets[v];
+    }
+
+    @Override
+    public int endEdge(int v) {
+        return offsets[v + 1];
+    }
+
+    @Override
+    public int degree(int v) {
+        return offsets[v + 1] - offsets[v];
+    }
+
+    @Override
+    public int target(int e) {
+        return targets[e];
+    }
+
+    // 無權圖的每條邊權重視為 1
+    @Override
+    public float weight(int e) {
+        return weights == null ? 1f : weights[e];
+    }
+
+    // 取得頂點 v 的鄰居迭代器
+    public NeighborIterator neighbors(int v) {
+        return new NeighborIterator(this).reset(v);
+    }
+
+    // 估計 CSR 表示法佔用的位元組數
+    public long memoryFootprint() {
+        long bytes = arrayBytes(4L, offsets.length) + arrayBytes(4L, targets.length);
+        if (weights != null) {
+            bytes += arrayBytes(4L, weights.length);
+        }
+        return bytes;
+    }
+
+    // 估計相同圖以 LinkedList<Integer>[] 表示時佔用的位元組數
+    public long linkedListFootprint() {
+        long bytes = arrayBytes(4L, vertexCount) + 32L * vertexCount;
+        for (int target : targets) {
+            // 每個節點 24 位元組，-128..127 以外的 Integer 另需 16 位元組
+            bytes += 24L + (target > 127 ? 16L : 0L);
+        }
+        return bytes;
+    }
+
+    // 產生兩種表示法的記憶體比較報告
+    public String memoryReport() {
+        long csr = memoryFootprint();
+        long linked = linkedListFootprint();
+        return String.format("記憶體估計: CSR %,d 位元組, LinkedList %,d 位元組 (%.1f 倍)",
+                csr, linked, csr == 0 ? 0.0 : (double) linked / csr);
+    }
+
+    private static long arrayBytes(long elementSize, long length) {
+        // 16 位元組陣列標頭，並對齊到 8 位元組
+        return (16L + elementSize * length + 7L) & ~7L;
+    }
+
+    // 以原始 int 走訪鄰居的迭代器，可透過 reset 重複使用
+    public static final class NeighborIterator {
+        private final CsrGraph graph;
+        private int pos, end;
+
+        public NeighborIterator(CsrGraph graph) {
+            this.graph = graph;
+        }
+
+        public NeighborIterator reset(int v) {
+            pos = graph.offsets[v];
+            end = graph.offsets[v + 1];
+            return this;
+        }
+
+        public boolean hasNext() {
+            return pos < end;
+        }
+
+        public int nextInt() {
+            if (pos >= end) throw new NoSuchElementException();
+            return graph.targets[pos++];
+        }
+    }
+
+    // 逐條加入邊後一次建立 CSR 圖
+    public static final class Builder {
+        private final int vertexCount;
+        private int[] sources = new int[16];
+        private int[] targets = new int[16];
+        private float[] weights;
+        private int size;
+
+        public Builder(int vertexCount) {
+            if (vertexCount < 0) throw new IllegalArgumentException("頂點數量不可為負: " + vertexCount);
+            this.vertexCount = vertexCount;
+        }
+
+        public int vertexCount() {
+            return vertexCount;
+        }
+
+        public int edgeCount() {
+            return size;
+        }
+
+        // 加入一條有向無權邊
+        public Builder addEdge(int v, int w) {
+            return addEdge(v, w, 1f);
+        }
+
+        // 加入一條有向帶權邊
+        public Builder addEdge(int v, int w, float weight) {
+            Objects.checkIndex(v, vertexCount);
+            Objects.checkIndex(w, vertexCount);
+            if (size == sources.length) {
+                grow(size + 1);
+            }
+            if (weight != 1f && weights == null) {
+                weights = new float[sources.length];
+                Arrays.fill(weights, 0, size, 1f);
+            }
+            sources[size] = v;
+            targets[size] = w;
+            if (weights != null) {
+                weights[size] = weight;
+            }
+            size++;
+            return this;
+        }
+
+        // 加入一條無向邊 (兩個方向各一條弧)
+        public Builder addUndirectedEdge(int v, int w) {
+            return addEdge(v, w).addEdge(w, v);
+        }
+
+        public Builder addUndirectedEdge(int v, int w, float weight) {
+            return addEdge(v, w, weight).addEdge(w, v, weight);
+        }
+
+        // 一次加入多條有向邊，weights 可為 null 代表權重皆為 1
+        public Builder addEdges(int[] sources, int[] targets, float[] weights, int count) {
+            ensureCapacity(size + count);
+            if (weights != null && this.weights == null) {
+                this.weights = new float[this.sources.length];
+                Arrays.fill(this.weights, 0, size, 1f);
+            }
+            for (int i = 0; i < count; i++) {
+                Objects.checkIndex(sources[i], vertexCount);
+                Objects.checkIndex(targets[i], vertexCount);
+            }
+            System.arraycopy(sources, 0, this.sources, size, count);
+            System.arraycopy(targets, 0, this.targets, size, count);
+            if (weights != null) {
+                System.arraycopy(weights, 0, this.weights, size, count);
+            } else if (this.weights != null) {
+                Arrays.fill(this.weights, size, size + count, 1f);
+            }
+            size += count;
+            return this;
+        }
+
+        // 預先配置空間，避免大量匯入時反覆擴充
+        public Builder ensureCapacity(int capacity) {
+            if (capacity > sources.length) {
+                grow(capacity);
+            }
+            return this;
+        }
+
+        private void grow(int minCapacity) {
+            int capacity = Math.max(minCapacity, sources.length + (sources.length >> 1));
+            sources = Arrays.copyOf(sources, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            if (weights != null) {
+                weights = Arrays.copyOf(weights, capacity);
+            }
+        }
+
+        // 以計數排序依起點分組，保留同一頂點內的加入順序
+        public CsrGraph build() {
+            int[] offsets = new int[vertexCount + 1];
+            for (int i = 0; i < size; i++) {
+                offsets[sources[i] + 1]++;
+            }
+            for (int v = 0; v < vertexCount; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+            int[] next = Arrays.copyOf(offsets, vertexCount);
+            int[] sortedTargets = new int[size];
+            float[] sortedWeights = weights == null ? null : new float[size];
+            for (int i = 0; i < size; i++) {
+                int slot = next[sources[i]]++;
+                sortedTargets[slot] = targets[i];
+                if (sortedWeights != null) {
+                    sortedWeights[slot] = weights[i];
+                }
+            }
+            return new CsrGraph(vertexCount, offsets, sortedTargets, sortedWeights);
+        }
+    }
+}
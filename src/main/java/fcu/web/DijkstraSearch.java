@@ -0,0 +1,151 @@
+package fcu.web;
+
+import java.util.Arrays;
+
+// 可重複使用的帶權 Dijkstra 搜索，暫存陣列在多次查詢之間共用
+// 以世代戳記判斷距離是否屬於本次查詢，每次查詢不需清除整個陣列
+// 非執行緒安全：每個執行緒應使用自己的實例
+public final class DijkstraSearch implements SearchCounters {
+    private final IntGraph graph;
+    private final IndexedMinHeap heap;
+    private final double[] distance;
+    private final int[] parent;
+    // stamp[v] == generation 時 distance[v] 與 parent[v] 才有效
+    private final int[] stamp;
+    private int generation;
+    private int source = -1;
+    private int settled;
+    private long relaxed;
+    private SearchMonitor monitor;
+
+    public DijkstraSearch(IntGraph graph) {
+        this.graph = graph;
+        int n = graph.vertexCount();
+        heap = new IndexedMinHeap(n);
+        distance = new double[n];
+        parent = new int[n];
+        stamp = new int[n];
+    }
+
+    public IntGraph graph() {
+        return graph;
+    }
+
+    // 從 source 開始搜索；target 為 -1 時計算到所有頂點的最短距離
+    // 回傳 target 是否可達 (target 為 -1 時恆為 true)
+    public boolean search(int source, int target) {
+        return run(source, target, null, 0);
+    }
+
+    // 從 source 開始搜索，isTarget 標記的 targetCount 個相異頂點全部確定最短距離後即停止
+    public void search(int source, boolean[] isTarget, int targetCount) {
+        if (targetCount > 0) run(source, -1, isTarget, targetCount);
+    }
+
+    private boolean run(int source, int target, boolean[] isTarget, int remaining) {
+        nextGeneration();
+        heap.clear();
+        heap.resetCounters();
+        this.source = source;
+        settled = 0;
+        relaxed = 0;
+
+        reach(source, 0.0, -1);
+        heap.insert(source, 0.0);
+        while (!heap.isEmpty()) {
+            int v = heap.poll();
+            settled++;
+            if (monitor != null && (settled & SearchMonitor.CHECK_MASK) == 0 && monitor.checkpoint()) {
+                monitor.publish(heap, settled);
+            }
+            if (v == target) return true;
+            if (isTarget != null && isTarget[v] && --remaining == 0) return true;
+            double dv = distance[v];
+            relaxed += graph.endEdge(v) - graph.firstEdge(v);
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                int w = graph.target(e);
+                double candidate = dv + graph.weight(e);
+                if (stamp[w] != generation) {
+                    reach(w, candidate, v);
+                    heap.insert(w, candidate);
+                } else if (candidate < distance[w] && heap.contains(w)) {
+                    distance[w] = candidate;
+                    parent[w] = v;
+                    heap.decreaseKey(w, candidate);
+                }
+            }
+        }
+        return target < 0;
+    }
+
+    private void reach(int v, double d, int from) {
+        stamp[v] = generation;
+        distance[v] = d;
+        parent[v] = from;
+    }
+
+    private void nextGeneration() {
+        if (++generation == 0) {
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+    }
+
+    public int source() {
+        return source;
+    }
+
+    // 設定之後搜索使用的 SearchMonitor (取消、逾時與進度快照)，null 表示不監看
+    public void setMonitor(SearchMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    // 最近一次搜索結束時已確定最短距離的頂點數
+    public int settledCount() {
+        return settled;
+    }
+
+    @Override
+    public int expandedCount() {
+        return settled;
+    }
+
+    @Override
+    public long relaxedCount() {
+        return relaxed;
+    }
+
+    @Override
+    public int peakOpenSize() {
+        return heap.peakSize();
+    }
+
+    @Override
+    public long heapOperations() {
+        return heap.operationCount();
+    }
+
+    public boolean reached(int v) {
+        return stamp[v] == generation;
+    }
+
+    public double distance(int v) {
+        return reached(v) ? distance[v] : Double.POSITIVE_INFINITY;
+    }
+
+    public int parent(int v) {
+        return reached(v) ? parent[v] : -1;
+    }
+
+    // 由 parent 陣列重建 source 到 target 的路徑，不可達時回傳空陣列
+    public int[] path(int target) {
+        if (!reached(target)) return new int[0];
+        int length = 0;
+        for (int at = target; at != -1; at = parent[at]) length++;
+        int[] path = new int[length];
+        for (int at = target, i = length - 1; at != -1; at = parent[at]) {
+            path[i--] = at;
+        }
+        return path;
+    }
+}
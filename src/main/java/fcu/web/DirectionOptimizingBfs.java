@@ -0,0 +1,241 @@
+package fcu.web;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// 方向最佳化 BFS (Beamer)：前緣以位元圖表示，依前緣大小在由上而下與由下而上之間切換
+// 每一層在 ForkJoinPool 上平行處理，回傳到所有頂點的距離與父節點
+public final class DirectionOptimizingBfs {
+    // 前緣的邊數超過未探索邊數 / ALPHA 時改為由下而上
+    static final int ALPHA = 14;
+    // 前緣的頂點數少於 V / BETA 時改回由上而下
+    static final int BETA = 24;
+    // 每個平行任務至少處理的位元圖字組數
+    private static final int WORDS_PER_TASK = 64;
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final IntGraph forward, backward;
+    private final ForkJoinPool pool;
+
+    // backward 為反向圖，無向圖時傳入與 forward 相同的圖
+    public DirectionOptimizingBfs(IntGraph forward, IntGraph backward, ForkJoinPool pool) {
+        this.forward = forward;
+        this.backward = backward;
+        this.pool = pool;
+    }
+
+    // 搜索結果；不可達的頂點距離為 -1，父節點為 -1
+    public static final class Result implements PathCache.Tree {
+        public final int[] distance;
+        public final int[] parent;
+        public final int topDownLevels;
+        public final int bottomUpLevels;
+        public final int reached;
+
+        Result(int[] distance, int[] parent, int topDownLevels, int bottomUpLevels, int reached) {
+            this.distance = distance;
+            this.parent = parent;
+            this.topDownLevels = topDownLevels;
+            this.bottomUpLevels = bottomUpLevels;
+            this.reached = reached;
+        }
+
+        public int levels() {
+            return topDownLevels + bottomUpLevels;
+        }
+
+        @Override
+        public int vertexCount() {
+            return distance.length;
+        }
+
+        @Override
+        public int parent(int v) {
+            return parent[v];
+        }
+
+        // 邊數，不可達時為正無限大
+        @Override
+        public double distance(int v) {
+            return distance[v] < 0 ? Double.POSITIVE_INFINITY : distance[v];
+        }
+    }
+
+    public Result search(int source) {
+        int n = forward.vertexCount();
+        int words = (n + 63) >>> 6;
+        int[] distance = new int[n];
+        int[] parent = new int[n];
+        Arrays.fill(distance, -1);
+        Arrays.fill(parent, -1);
+        long[] visited = new long[words];
+        long[] frontier = new long[words];
+        long[] next = new long[words];
+
+        distance[source] = 0;
+        visited[source >>> 6] |= 1L << source;
+        frontier[source >>> 6] |= 1L << source;
+        long frontierEdges = forward.degree(source);
+        long frontierSize = 1;
+        long unexploredEdges = forward.edgeCount() - frontierEdges;
+        boolean bottomUp = false;
+        int topDownLevels = 0, bottomUpLevels = 0, reached = 1;
+
+        for (int level = 0; frontierSize > 0; level++) {
+            // Beamer 的切換規則
+            if (!bottomUp && frontierEdges > unexploredEdges / ALPHA) {
+                bottomUp = true;
+            } else if (bottomUp && frontierSize < n / BETA) {
+                bottomUp = false;
+            }
+            Arrays.fill(next, 0L);
+            Level task = new Level(bottomUp, level + 1, 0, words, n, frontier, next, visited, distance, parent);
+            long[] counts = pool.invoke(task);
+            if (bottomUp) bottomUpLevels++;
+            else topDownLevels++;
+            frontierSize = counts[0];
+            frontierEdges = counts[1];
+            unexploredEdges -= frontierEdges;
+            reached += (int) frontierSize;
+            long[] swap = frontier;
+            frontier = next;
+            next = swap;
+        }
+        return new Result(distance, parent, topDownLevels, bottomUpLevels, reached);
+    }
+
+    // 處理一層中 [from, to) 範圍的位元圖字組，回傳 {新前緣頂點數, 新前緣出邊數}
+    private final class Level extends RecursiveTask<long[]> {
+        private final boolean bottomUp;
+        private final int depth, from, to, n;
+        private final long[] frontier, next, visited;
+        private final int[] distance, parent;
+
+        Level(boolean bottomUp, int depth, int from, int to, int n, long[] frontier, long[] next,
+              long[] visited, int[] distance, int[] parent) {
+            this.bottomUp = bottomUp;
+            this.depth = depth;
+            this.from = from;
+            this.to = to;
+            this.n = n;
+            this.frontier = frontier;
+            this.next = next;
+            this.visited = visited;
+            this.distance = distance;
+            this.parent = parent;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > WORDS_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                Level left = new Level(bottomUp, depth, from, mid, n, frontier, next, visited, distance, parent);
+                Level right = new Level(bottomUp, depth, mid, to, n, frontier, next, visited, distance, parent);
+                left.fork();
+                long[] r = right.compute();
+                long[] l = left.join();
+                r[0] += l[0];
+                r[1] += l[1];
+                return r;
+            }
+            return bottomUp ? bottomUp() : topDown();
+        }
+
+        // 由上而下：前緣頂點走訪出邊，以原子 OR 搶佔未拜訪的鄰居
+        private long[] topDown() {
+            long count = 0, edges = 0;
+            for (int w = from; w < to; w++) {
+                long word = frontier[w];
+                while (word != 0) {
+                    int u = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    for (int e = forward.firstEdge(u); e < forward.endEdge(u); e++) {
+                        int v = forward.target(e);
+                        long mask = 1L << v;
+                        int vw = v >>> 6;
+                        if ((visited[vw] & mask) != 0) continue;
+                        long old = (long) LONGS.getAndBitwiseOr(visited, vw, mask);
+                        if ((old & mask) != 0) continue;
+                        parent[v] = u;
+                        distance[v] = depth;
+                        LONGS.getAndBitwiseOr(next, vw, mask);
+                        count++;
+                        edges += forward.degree(v);
+                    }
+                }
+            }
+            return new long[]{count, edges};
+        }
+
+        // 由下而上：未拜訪的頂點檢查入邊，找到任一在前緣的父節點即停止
+        // 每個任務只寫入自己範圍內的字組，不需要原子操作
+        private long[] bottomUp() {
+            long count = 0, edges = 0;
+            for (int w = from; w < to; w++) {
+                long unvisited = ~visited[w];
+                if (w == (n - 1) >>> 6 && (n & 63) != 0) {
+                    unvisited &= (1L << n) - 1;
+                }
+                long found = 0;
+                while (unvisited != 0) {
+                    int v = (w << 6) + Long.numberOfTrailingZeros(unvisited);
+                    unvisited &= unvisited - 1;
+                    for (int e = backward.firstEdge(v); e < backward.endEdge(v); e++) {
+                        int u = backward.target(e);
+                        if ((frontier[u >>> 6] & (1L << u)) != 0) {
+                            parent[v] = u;
+                            distance[v] = depth;
+                            found |= 1L << v;
+                            count++;
+                            edges += forward.degree(v);
+                            break;
+                        }
+                    }
+                }
+                next[w] = found;
+                visited[w] |= found;
+            }
+            return new long[]{count, edges};
+        }
+    }
+
+    // 1 到 N 核心的擴展性報告: DirectionOptimizingBfs [頂點數] [平均度數] [種子]
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int degree = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+        Random random = new Random(seed);
+        CsrGraph.Builder builder = new CsrGraph.Builder(n);
+        for (long i = 0; i < (long) n * degree / 2; i++) {
+            builder.addUndirectedEdge(random.nextInt(n), random.nextInt(n));
+        }
+        CsrGraph graph = builder.build();
+        int source = random.nextInt(n);
+        System.out.printf("隨機圖: %,d 個頂點, %,d 條弧%n", n, graph.edgeCount());
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        double baseline = 0;
+        for (int threads = 1; threads <= cores; threads = threads < cores && threads * 2 > cores ? cores : threads * 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                DirectionOptimizingBfs bfs = new DirectionOptimizingBfs(graph, graph, pool);
+                long best = Long.MAX_VALUE;
+                Result result = null;
+                for (int round = 0; round < 5; round++) {
+                    long startTime = System.nanoTime();
+                    result = bfs.search(source);
+                    best = Math.min(best, System.nanoTime() - startTime);
+                }
+                if (threads == 1) baseline = best;
+                System.out.printf("%2d 執行緒: %.1f 毫秒, 加速 %.2f 倍, 由上而下 %d 層, 由下而上 %d 層, 到達 %,d 個頂點%n",
+                        threads, best / 1e6, baseline / best, result.topDownLevels, result.bottomUpLevels, result.reached);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package fcu.web;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+// 多對多最短距離矩陣，第 i 列第 j 行為 sources[i] 到 targets[j] 的距離 (不可達為無限大)
+// 以列優先的 float 存放，可放在 Java 堆積 (array()) 或記憶體映射檔案中
+// 兩種計算方式:
+//   fill(IntGraph): 每個起點一個 Dijkstra，所有終點確定後即停止，各列平行計算
+//   fill(ContractionHierarchy): 桶式多對多查詢；每個終點做一次下行圖上的向上搜索並把距離放進經過節點的桶，
+//   每個起點做一次上行圖上的向上搜索並掃描經過節點的桶，搜索空間只有數百個節點
+// 檔案格式 (小端序):
+//   標頭 64 位元組: magic "DMAT", 版本, 列數, 行數, 其餘保留為 0
+//   sources int[列數], targets int[行數], 對齊到 8 位元組後為 float[列數 * 行數]
+public final class DistanceMatrix {
+    public static final int MAGIC = 0x54414d44; // "DMAT"
+    public static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    private static final int ROWS_PER_TASK = 4;
+
+    private final int[] sources, targets;
+    private final FloatBuffer values;
+    // 檔案模式時為映射區段，否則為 null
+    private final MappedByteBuffer mapped;
+
+    private DistanceMatrix(int[] sources, int[] targets, FloatBuffer values, MappedByteBuffer mapped) {
+        this.sources = sources;
+        this.targets = targets;
+        this.values = values;
+        this.mapped = mapped;
+    }
+
+    // 在 Java 堆積上配置矩陣，初值為無限大
+    public static DistanceMatrix allocate(int[] sources, int[] targets) {
+        long cells = (long) sources.length * targets.length;
+        if (cells > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("矩陣過大: " + sources.length + " x " + targets.length);
+        }
+        float[] values = new float[(int) cells];
+        Arrays.fill(values, Float.POSITIVE_INFINITY);
+        return new DistanceMatrix(sources.clone(), targets.clone(), FloatBuffer.wrap(values), null);
+    }
+
+    // 建立可寫入的矩陣檔案並映射，矩陣本體不佔用 Java 堆積
+    public static DistanceMatrix create(Path file, int[] sources, int[] targets) throws IOException {
+        long bytes = 4L * sources.length * targets.length;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("矩陣超過 2 GB，無法映射: " + sources.length + " x " + targets.length);
+        }
+        long dataStart = GraphFile.align(HEADER_BYTES + 4L * sources.length + 4L * targets.length);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate((int) dataStart).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(sources.length).putInt(targets.length);
+            header.position(HEADER_BYTES);
+            for (int s : sources) header.putInt(s);
+            for (int t : targets) header.putInt(t);
+            header.position(0);
+            while (header.hasRemaining()) channel.write(header);
+
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_WRITE, dataStart, bytes);
+            data.order(ByteOrder.LITTLE_ENDIAN);
+            FloatBuffer values = data.asFloatBuffer();
+            for (int i = 0; i < values.capacity(); i++) values.put(i, Float.POSITIVE_INFINITY);
+            // 映射在通道關閉後仍然有效
+            return new DistanceMatrix(sources.clone(), targets.clone(), values, data);
+        }
+    }
+
+    // 以唯讀記憶體映射開啟矩陣檔案
+    public static DistanceMatrix open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("檔案太小，不是距離矩陣檔案: " + file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("檔案標記錯誤，不是距離矩陣檔案: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("不支援的距離矩陣檔案版本: " + version);
+            }
+            int rows = header.getInt();
+            int columns = header.getInt();
+            long bytes = 4L * rows * columns;
+            long dataStart = GraphFile.align(HEADER_BYTES + 4L * rows + 4L * columns);
+            if (rows < 0 || columns < 0 || bytes > Integer.MAX_VALUE || dataStart + bytes > channel.size()) {
+                throw new IOException("距離矩陣檔案標頭損壞或檔案被截斷: " + file);
+            }
+            ByteBuffer ids = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, 4L * (rows + columns))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            int[] sources = new int[rows], targets = new int[columns];
+            ids.asIntBuffer().get(sources).get(targets);
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, dataStart, bytes);
+            data.order(ByteOrder.LITTLE_ENDIAN);
+            return new DistanceMatrix(sources, targets, data.asFloatBuffer(), data);
+        }
+    }
+
+    // 以平行 Dijkstra 計算矩陣並放在 Java 堆積上
+    public static DistanceMatrix compute(IntGraph graph, int[] sources, int[] targets, ForkJoinPool pool) {
+        DistanceMatrix matrix = allocate(sources, targets);
+        matrix.fill(graph, pool);
+        return matrix;
+    }
+
+    // 以 CH 桶式查詢計算矩陣並放在 Java 堆積上
+    public static DistanceMatrix compute(ContractionHierarchy ch, int[] sources, int[] targets, ForkJoinPool pool) {
+        DistanceMatrix matrix = allocate(sources, targets);
+        matrix.fill(ch, pool);
+        return matrix;
+    }
+
+    // 每個起點一個 Dijkstra，所有相異終點都確定後即停止
+    public void fill(IntGraph graph, ForkJoinPool pool) {
+        int n = graph.vertexCount();
+        boolean[] isTarget = new boolean[n];
+        int distinct = 0;
+        for (int t : targets) {
+            if (!isTarget[t]) {
+                isTarget[t] = true;
+                distinct++;
+            }
+        }
+        int targetCount = distinct;
+        ThreadLocal<DijkstraSearch> searches = ThreadLocal.withInitial(() -> new DijkstraSearch(graph));
+        parallelFor(pool, sources.length, i -> {
+            DijkstraSearch search = searches.get();
+            search.search(sources[i], isTarget, targetCount);
+            int base = i * targets.length;
+            for (int j = 0; j < targets.length; j++) {
+                values.put(base + j, (float) search.distance(targets[j]));
+            }
+        });
+        force();
+    }
+
+    // 桶式多對多查詢，只需 (列數 + 行數) 次向上搜索
+    public void fill(ContractionHierarchy ch, ForkJoinPool pool) {
+        int n = ch.vertexCount();
+        int columns = targets.length;
+        ThreadLocal<UpwardSearch> searches = ThreadLocal.withInitial(() -> new UpwardSearch(n));
+
+        // 終點側: 記錄每個終點的搜索空間 (節點, 距離)
+        int[][] spaceNodes = new int[columns][];
+        float[][] spaceDistances = new float[columns][];
+        parallelFor(pool, columns, j -> {
+            UpwardSearch search = searches.get();
+            search.run(ch.downward(), ch.upward(), targets[j]);
+            spaceNodes[j] = Arrays.copyOf(search.settled, search.settledCount);
+            spaceDistances[j] = new float[search.settledCount];
+            for (int k = 0; k < search.settledCount; k++) {
+                spaceDistances[j][k] = (float) search.distance[search.settled[k]];
+            }
+        });
+
+        // 依節點分桶 (CSR): 桶 v 為 [bucketStart[v], bucketStart[v + 1])
+        int[] bucketStart = new int[n + 1];
+        for (int[] nodes : spaceNodes) {
+            for (int v : nodes) bucketStart[v + 1]++;
+        }
+        for (int v = 0; v < n; v++) bucketStart[v + 1] += bucketStart[v];
+        int[] fill = Arrays.copyOf(bucketStart, n);
+        int[] bucketColumn = new int[bucketStart[n]];
+        float[] bucketDistance = new float[bucketStart[n]];
+        for (int j = 0; j < columns; j++) {
+            for (int k = 0; k < spaceNodes[j].length; k++) {
+                int slot = fill[spaceNodes[j][k]]++;
+                bucketColumn[slot] = j;
+                bucketDistance[slot] = spaceDistances[j][k];
+            }
+            spaceNodes[j] = null;
+            spaceDistances[j] = null;
+        }
+
+        // 起點側: 掃描搜索空間內每個節點的桶
+        ThreadLocal<double[]> rows = ThreadLocal.withInitial(() -> new double[columns]);
+        parallelFor(pool, sources.length, i -> {
+            UpwardSearch search = searches.get();
+            double[] row = rows.get();
+            Arrays.fill(row, Double.POSITIVE_INFINITY);
+            search.run(ch.upward(), ch.downward(), sources[i]);
+            for (int k = 0; k < search.settledCount; k++) {
+                int v = search.settled[k];
+                double dv = search.distance[v];
+                for (int b = bucketStart[v]; b < bucketStart[v + 1]; b++) {
+                    double candidate = dv + bucketDistance[b];
+                    if (candidate < row[bucketColumn[b]]) row[bucketColumn[b]] = candidate;
+                }
+            }
+            int base = i * columns;
+            for (int j = 0; j < columns; j++) values.put(base + j, (float) row[j]);
+        });
+        force();
+    }
+
+    private static void parallelFor(ForkJoinPool pool, int count, IntConsumer body) {
+        if (count > 0) pool.invoke(new Range(0, count, body));
+    }
+
+    private static final class Range extends RecursiveAction {
+        private final int from, to;
+        private final IntConsumer body;
+
+        Range(int from, int to, IntConsumer body) {
+            this.from = from;
+            this.to = to;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > ROWS_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Range(from, mid, body), new Range(mid, to, body));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                body.accept(i);
+            }
+        }
+    }
+
+    // 只往等級較高的節點走的完整 Dijkstra，被 stall-on-demand 略過的節點不列入搜索空間
+    private static final class UpwardSearch {
+        final IndexedMinHeap heap;
+        final double[] distance;
+        final int[] stamp;
+        int[] settled = new int[64];
+        int settledCount;
+        int generation;
+
+        UpwardSearch(int n) {
+            heap = new IndexedMinHeap(n);
+            distance = new double[n];
+            stamp = new int[n];
+        }
+
+        void run(IntGraph graph, IntGraph opposite, int source) {
+            if (++generation == 0) {
+                Arrays.fill(stamp, 0);
+                generation = 1;
+            }
+            heap.clear();
+            settledCount = 0;
+            stamp[source] = generation;
+            distance[source] = 0.0;
+            heap.insert(source, 0.0);
+            while (!heap.isEmpty()) {
+                int v = heap.poll();
+                double dv = distance[v];
+                if (stalled(opposite, v, dv)) continue;
+                if (settledCount == settled.length) settled = Arrays.copyOf(settled, 2 * settledCount);
+                settled[settledCount++] = v;
+                for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                    int w = graph.target(e);
+                    double candidate = dv + graph.weight(e);
+                    if (stamp[w] != generation || candidate < distance[w]) {
+                        stamp[w] = generation;
+                        distance[w] = candidate;
+                        heap.insertOrDecrease(w, candidate);
+                    }
+                }
+            }
+        }
+
+        private boolean stalled(IntGraph opposite, int v, double dv) {
+            for (int e = opposite.firstEdge(v); e < opposite.endEdge(v); e++) {
+                int u = opposite.target(e);
+                if (stamp[u] == generation && distance[u] + opposite.weight(e) < dv) return true;
+            }
+            return false;
+        }
+    }
+
+    // 將映射區段寫回磁碟；堆積模式時不做任何事
+    public void force() {
+        if (mapped != null && !mapped.isReadOnly()) mapped.force();
+    }
+
+    public int rows() {
+        return sources.length;
+    }
+
+    public int columns() {
+        return targets.length;
+    }
+
+    public int source(int row) {
+        return sources[row];
+    }
+
+    public int target(int column) {
+        return targets[column];
+    }
+
+    public float get(int row, int column) {
+        return values.get(row * targets.length + column);
+    }
+
+    // 堆積模式時回傳底層的列優先陣列 (不複製)
+    public float[] array() {
+        if (!values.hasArray()) throw new UnsupportedOperationException("矩陣存放在映射檔案中");
+        return values.array();
+    }
+
+    public boolean isMapped() {
+        return mapped != null;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d x %,d 距離矩陣 (%s, %.1f MB)", rows(), columns(),
+                isMapped() ? "映射檔案" : "堆積", 4.0 * rows() * columns() / (1 << 20));
+    }
+
+    // 比較逐對查詢、平行 Dijkstra 與 CH 桶式查詢: DistanceMatrix [格網邊長 | DIMACS .gr 檔] [點數] [種子] [輸出檔]
+    public static void main(String[] args) throws IOException {
+        int points = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+        Random random = new Random(seed);
+        IntGraph graph = BenchmarkGraphs.load(args.length > 0 ? args[0] : null, 200, random);
+        int n = graph.vertexCount();
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        System.out.printf("圖: %,d 個頂點, %,d 條弧, %d 執行緒%n", n, graph.edgeCount(), pool.getParallelism());
+
+        int[] ids = new int[points];
+        for (int i = 0; i < points; i++) ids[i] = random.nextInt(n);
+
+        // 逐對查詢只抽樣一部分再推估總時間
+        int sampled = Math.min(points * points, 2000);
+        DijkstraSearch single = new DijkstraSearch(graph);
+        long startTime = System.nanoTime();
+        for (int q = 0; q < sampled; q++) single.search(ids[q / points], ids[q % points]);
+        double pairwiseMillis = (System.nanoTime() - startTime) / 1e6 * ((double) points * points / sampled);
+        System.out.printf("逐對 Dijkstra (推估): %.1f 毫秒%n", pairwiseMillis);
+
+        startTime = System.nanoTime();
+        DistanceMatrix dijkstra = compute(graph, ids, ids, pool);
+        double dijkstraMillis = (System.nanoTime() - startTime) / 1e6;
+        System.out.printf("平行 Dijkstra: %.1f 毫秒, 加速 %.1f 倍, %s%n",
+                dijkstraMillis, pairwiseMillis / dijkstraMillis, dijkstra);
+
+        startTime = System.nanoTime();
+        ContractionHierarchy ch = ContractionHierarchy.build(graph, pool);
+        double chBuildMillis = (System.nanoTime() - startTime) / 1e6;
+        startTime = System.nanoTime();
+        DistanceMatrix buckets = compute(ch, ids, ids, pool);
+        double bucketMillis = (System.nanoTime() - startTime) / 1e6;
+        System.out.printf("CH 桶式查詢: %.1f 毫秒 (前處理另計 %.1f 毫秒), 加速 %.1f 倍%n",
+                bucketMillis, chBuildMillis, pairwiseMillis / bucketMillis);
+        verify(dijkstra, buckets);
+
+        if (args.length > 3) {
+            Path file = Path.of(args[3]);
+            startTime = System.nanoTime();
+            create(file, ids, ids).fill(ch, pool);
+            DistanceMatrix reopened = open(file);
+            System.out.printf("寫入並重新開啟 %s: %.1f 毫秒, %s%n", file,
+                    (System.nanoTime() - startTime) / 1e6, reopened);
+            verify(dijkstra, reopened);
+        }
+    }
+
+    private static void verify(DistanceMatrix expected, DistanceMatrix actual) {
+        for (int i = 0; i < expected.rows(); i++) {
+            for (int j = 0; j < expected.columns(); j++) {
+                float a = expected.get(i, j), b = actual.get(i, j);
+                if (a != b && Math.abs(a - b) > 1e-3f * Math.max(1f, a)) {
+                    throw new IllegalStateException("矩陣 (" + i + ", " + j + ") 為 " + b + "，Dijkstra 為 " + a);
+                }
+            }
+        }
+    }
+}
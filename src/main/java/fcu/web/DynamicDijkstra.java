@@ -0,0 +1,210 @@
+package fcu.web;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+// 邊變動後就地修補的單源最短路徑樹 (Ramalingam-Reps 風格)
+// 弧 v -> w 變短或新增時，只從 w 開始向外傳播變短的距離；
+// 樹上的弧變長或刪除時，先找出以 w 為根的子樹，由子樹外的入邊重新估計每個頂點的距離，再以 Dijkstra 傳播
+// 兩種情況的成本都只與距離改變的頂點數成正比，通常遠小於重算整棵樹
+// backward 為反向圖 (無向圖傳入同一個物件)；圖的內容由呼叫端修改，修改後呼叫 edgeChanged
+// 可登錄到 PathCache 作為最短路徑樹
+// 非執行緒安全
+public final class DynamicDijkstra implements PathCache.Tree {
+    private final IntGraph forward, backward;
+    private final IndexedMinHeap heap;
+    private final double[] distance;
+    private final int[] parent;
+    // 子樹標記與走訪堆疊
+    private final int[] affectedStamp, stack;
+    private int generation;
+    private int source = -1;
+    private int affected;
+
+    public DynamicDijkstra(IntGraph forward, IntGraph backward) {
+        this.forward = forward;
+        this.backward = backward;
+        int n = forward.vertexCount();
+        heap = new IndexedMinHeap(n);
+        distance = new double[n];
+        parent = new int[n];
+        affectedStamp = new int[n];
+        stack = new int[n];
+    }
+
+    // 從頭計算以 source 為根的最短路徑樹
+    public void compute(int source) {
+        this.source = source;
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        Arrays.fill(parent, -1);
+        heap.clear();
+        distance[source] = 0.0;
+        heap.insert(source, 0.0);
+        affected = propagate();
+    }
+
+    // 弧 v -> w 已被加入、刪除或改變權重後呼叫 (重邊以最小權重為準)，回傳距離改變的頂點數
+    public int edgeChanged(int v, int w) {
+        if (source < 0) throw new IllegalStateException("尚未呼叫 compute");
+        heap.clear();
+        affected = 0;
+        double weight = Double.POSITIVE_INFINITY;
+        for (int e = forward.firstEdge(v); e < forward.endEdge(v); e++) {
+            if (forward.target(e) == w) weight = Math.min(weight, forward.weight(e));
+        }
+        double candidate = distance[v] + weight;
+        if (candidate < distance[w]) {
+            distance[w] = candidate;
+            parent[w] = v;
+            heap.insert(w, candidate);
+            affected = propagate();
+        } else if (parent[w] == v && candidate > distance[w]) {
+            affected = repairSubtree(w);
+        }
+        return affected;
+    }
+
+    // w 的樹邊變長: 子樹內的頂點暫時失去距離，再由子樹外的入邊重新接上
+    private int repairSubtree(int root) {
+        if (++generation == 0) {
+            Arrays.fill(affectedStamp, 0);
+            generation = 1;
+        }
+        int count = 0;
+        stack[count++] = root;
+        affectedStamp[root] = generation;
+        for (int i = 0; i < count; i++) {
+            int x = stack[i];
+            for (int e = forward.firstEdge(x); e < forward.endEdge(x); e++) {
+                int y = forward.target(e);
+                if (parent[y] == x && affectedStamp[y] != generation) {
+                    affectedStamp[y] = generation;
+                    stack[count++] = y;
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            int x = stack[i];
+            double best = Double.POSITIVE_INFINITY;
+            int bestParent = -1;
+            for (int e = backward.firstEdge(x); e < backward.endEdge(x); e++) {
+                int y = backward.target(e);
+                if (affectedStamp[y] == generation) continue;
+                double candidate = distance[y] + backward.weight(e);
+                if (candidate < best) {
+                    best = candidate;
+                    bestParent = y;
+                }
+            }
+            distance[x] = best;
+            parent[x] = bestParent;
+            if (best < Double.POSITIVE_INFINITY) heap.insert(x, best);
+        }
+        propagate();
+        return count;
+    }
+
+    // 以堆中的頂點為起點做 Dijkstra，只更新確實變短的距離，回傳取出的頂點數
+    private int propagate() {
+        int settled = 0;
+        while (!heap.isEmpty()) {
+            int x = heap.poll();
+            settled++;
+            double dx = distance[x];
+            for (int e = forward.firstEdge(x); e < forward.endEdge(x); e++) {
+                int y = forward.target(e);
+                double candidate = dx + forward.weight(e);
+                if (candidate < distance[y]) {
+                    distance[y] = candidate;
+                    parent[y] = x;
+                    heap.insertOrDecrease(y, candidate);
+                }
+            }
+        }
+        return settled;
+    }
+
+    public int source() {
+        return source;
+    }
+
+    // 最近一次 compute 或 edgeChanged 處理的頂點數
+    public int affectedCount() {
+        return affected;
+    }
+
+    @Override
+    public int vertexCount() {
+        return distance.length;
+    }
+
+    @Override
+    public double distance(int v) {
+        return distance[v];
+    }
+
+    @Override
+    public int parent(int v) {
+        return parent[v];
+    }
+
+    // 由 parent 陣列重建 source 到 target 的路徑，不可達時回傳空陣列
+    public int[] path(int target) {
+        if (distance[target] == Double.POSITIVE_INFINITY) return new int[0];
+        int length = 0;
+        for (int at = target; at != -1; at = parent[at]) length++;
+        int[] path = new int[length];
+        for (int at = target, i = length - 1; at != -1; at = parent[at]) {
+            path[i--] = at;
+        }
+        return path;
+    }
+
+    // 隨機修改路段權重，比較就地修補與重算的時間: DynamicDijkstra [格網邊長 | DIMACS .gr 檔] [修改次數] [種子]
+    public static void main(String[] args) throws IOException {
+        int updates = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+        Random random = new Random(seed);
+        IntGraph base = BenchmarkGraphs.load(args.length > 0 ? args[0] : null, 200, random);
+        int n = base.vertexCount();
+        // 基準圖為無向圖，同一個 DynamicGraph 同時作為正向與反向圖
+        DynamicGraph graph = DynamicGraph.copyOf(base);
+        System.out.printf("圖: %,d 個頂點, %,d 條弧%n", n, graph.edgeCount());
+
+        DynamicDijkstra dynamic = new DynamicDijkstra(graph, graph);
+        DijkstraSearch full = new DijkstraSearch(graph);
+        dynamic.compute(random.nextInt(n));
+        long repairNanos = 0, fullNanos = 0, touched = 0;
+        for (int i = 0; i < updates; i++) {
+            int v = random.nextInt(n);
+            if (graph.degree(v) == 0) continue;
+            int w = graph.target(graph.firstEdge(v) + random.nextInt(graph.degree(v)));
+            float old = graph.weightOf(v, w);
+            // 模擬路況: 多數是壅塞 (變長)，少數是恢復 (變短) 或封路
+            int kind = random.nextInt(10);
+            long t0 = System.nanoTime();
+            if (kind == 0) {
+                graph.removeUndirectedEdge(v, w);
+            } else {
+                graph.setUndirectedWeight(v, w, kind < 7 ? old * (1.5f + random.nextFloat()) : old * 0.5f);
+            }
+            touched += dynamic.edgeChanged(v, w) + dynamic.edgeChanged(w, v);
+            long t1 = System.nanoTime();
+            full.search(dynamic.source(), -1);
+            long t2 = System.nanoTime();
+            repairNanos += t1 - t0;
+            fullNanos += t2 - t1;
+            for (int u = 0; u < n; u++) {
+                double expected = full.distance(u), actual = dynamic.distance(u);
+                if (expected != actual && Math.abs(expected - actual) > 1e-6 * Math.max(1.0, expected)) {
+                    throw new IllegalStateException("頂點 " + u + " 距離 " + actual + "，重算為 " + expected);
+                }
+            }
+        }
+        System.out.printf("就地修補: 平均 %.1f 微秒, 處理 %,d 個頂點%n",
+                repairNanos / 1e3 / updates, touched / updates);
+        System.out.printf("重算整棵樹: 平均 %.1f 微秒, 加速 %.1f 倍%n",
+                fullNanos / 1e3 / updates, (double) fullNanos / repairNanos);
+    }
+}
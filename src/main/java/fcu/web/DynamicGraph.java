@@ -0,0 +1,240 @@
+package fcu.web;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+// 可就地加入、刪除邊或修改權重的有向圖，不需整個重建
+// 每個頂點的出邊佔一段連續槽位並預留空間；容量不足時整段搬到陣列尾端並加倍，
+// 搬走後留下的空洞超過總槽位的一半時整理一次，因此各頂點的邊區段之間可能有空隙
+// 修改後邊編號可能改變；每次修改都會遞增 version()，供快取判斷圖是否已變動
+// 非執行緒安全，修改期間不可同時讀取
+public final class DynamicGraph implements IntGraph {
+    private static final int MIN_CAPACITY = 4;
+
+    private final int vertexCount;
+    private final int[] start, count, capacity;
+    private int[] targets = new int[0];
+    private float[] weights = new float[0];
+    // 已配置到的槽位尾端，以及其中搬移後留下的空洞槽位數
+    private int used, holes;
+    private int edgeCount;
+    private boolean weighted;
+    private long version;
+
+    public DynamicGraph(int vertexCount) {
+        if (vertexCount < 0) throw new IllegalArgumentException("頂點數量不可為負: " + vertexCount);
+        this.vertexCount = vertexCount;
+        start = new int[vertexCount];
+        count = new int[vertexCount];
+        capacity = new int[vertexCount];
+    }
+
+    // 複製現有的圖，每個頂點預留一半的空間供之後加入邊
+    public static DynamicGraph copyOf(IntGraph graph) {
+        int n = graph.vertexCount();
+        DynamicGraph copy = new DynamicGraph(n);
+        long slots = 0;
+        for (int v = 0; v < n; v++) {
+            slots += slack(graph.degree(v));
+        }
+        if (slots > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("圖太大: " + slots + " 個槽位");
+        copy.targets = new int[(int) slots];
+        copy.weights = new float[(int) slots];
+        for (int v = 0; v < n; v++) {
+            int degree = graph.degree(v);
+            copy.start[v] = copy.used;
+            copy.capacity[v] = slack(degree);
+            copy.count[v] = degree;
+            for (int e = graph.firstEdge(v), i = copy.used; e < graph.endEdge(v); e++, i++) {
+                copy.targets[i] = graph.target(e);
+                copy.weights[i] = graph.weight(e);
+            }
+            copy.used += copy.capacity[v];
+            copy.edgeCount += degree;
+        }
+        copy.weighted = graph.hasWeights();
+        return copy;
+    }
+
+    private static int slack(int degree) {
+        return Math.max(MIN_CAPACITY, degree + (degree >> 1));
+    }
+
+    // 加入一條有向邊 (允許重邊)
+    public void addEdge(int v, int w, float weight) {
+        Objects.checkIndex(v, vertexCount);
+        Objects.checkIndex(w, vertexCount);
+        if (count[v] == capacity[v]) relocate(v, Math.max(MIN_CAPACITY, 2 * capacity[v]));
+        int slot = start[v] + count[v]++;
+        targets[slot] = w;
+        weights[slot] = weight;
+        if (weight != 1f) weighted = true;
+        edgeCount++;
+        version++;
+    }
+
+    public void addUndirectedEdge(int v, int w, float weight) {
+        addEdge(v, w, weight);
+        addEdge(w, v, weight);
+    }
+
+    // 刪除所有 v -> w 的弧，回傳刪除的數量
+    public int removeEdge(int v, int w) {
+        Objects.checkIndex(v, vertexCount);
+        int removed = 0;
+        int end = start[v] + count[v];
+        for (int e = start[v]; e < end; ) {
+            if (targets[e] == w) {
+                // 以區段最後一條邊補位
+                end--;
+                targets[e] = targets[end];
+                weights[e] = weights[end];
+                removed++;
+            } else {
+                e++;
+            }
+        }
+        if (removed > 0) {
+            count[v] -= removed;
+            edgeCount -= removed;
+            version++;
+        }
+        return removed;
+    }
+
+    public int removeUndirectedEdge(int v, int w) {
+        return removeEdge(v, w) + removeEdge(w, v);
+    }
+
+    // 將所有 v -> w 的弧改為新權重，回傳修改的數量
+    public int setWeight(int v, int w, float weight) {
+        Objects.checkIndex(v, vertexCount);
+        int changed = 0;
+        for (int e = start[v], end = start[v] + count[v]; e < end; e++) {
+            if (targets[e] == w) {
+                weights[e] = weight;
+                changed++;
+            }
+        }
+        if (changed > 0) {
+            if (weight != 1f) weighted = true;
+            version++;
+        }
+        return changed;
+    }
+
+    public int setUndirectedWeight(int v, int w, float weight) {
+        return setWeight(v, w, weight) + setWeight(w, v, weight);
+    }
+
+    // v -> w 的最小權重，沒有這條弧時為無限大
+    public float weightOf(int v, int w) {
+        float best = Float.POSITIVE_INFINITY;
+        for (int e = start[v], end = start[v] + count[v]; e < end; e++) {
+            if (targets[e] == w && weights[e] < best) best = weights[e];
+        }
+        return best;
+    }
+
+    // 將頂點 v 的區段搬到尾端並擴充到 newCapacity，舊區段成為空洞
+    private void relocate(int v, int newCapacity) {
+        if (2L * holes > used) {
+            compactSlots();
+            if (count[v] < capacity[v]) return;
+        }
+        holes += capacity[v];
+        if ((long) used + newCapacity > Integer.MAX_VALUE - 8) throw new IllegalStateException("槽位用盡");
+        if (used + newCapacity > targets.length) {
+            int length = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(used + newCapacity, 2L * targets.length));
+            targets = Arrays.copyOf(targets, length);
+            weights = Arrays.copyOf(weights, length);
+        }
+        System.arraycopy(targets, start[v], targets, used, count[v]);
+        System.arraycopy(weights, start[v], weights, used, count[v]);
+        start[v] = used;
+        capacity[v] = newCapacity;
+        used += newCapacity;
+    }
+
+    // 依頂點順序重新排列，每個頂點保留 slack 的空間
+    private void compactSlots() {
+        long slots = 0;
+        for (int v = 0; v < vertexCount; v++) slots += slack(count[v]);
+        int[] newTargets = new int[(int) Math.max(slots, targets.length / 2)];
+        float[] newWeights = new float[newTargets.length];
+        int position = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            System.arraycopy(targets, start[v], newTargets, position, count[v]);
+            System.arraycopy(weights, start[v], newWeights, position, count[v]);
+            start[v] = position;
+            capacity[v] = slack(count[v]);
+            position += capacity[v];
+        }
+        targets = newTargets;
+        weights = newWeights;
+        used = position;
+        holes = 0;
+    }
+
+    // 目前內容的不可變 CSR 快照
+    public CsrGraph snapshot() {
+        int[] offsets = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v++) offsets[v + 1] = offsets[v] + count[v];
+        int[] csrTargets = new int[edgeCount];
+        float[] csrWeights = weighted ? new float[edgeCount] : null;
+        for (int v = 0; v < vertexCount; v++) {
+            System.arraycopy(targets, start[v], csrTargets, offsets[v], count[v]);
+            if (weighted) System.arraycopy(weights, start[v], csrWeights, offsets[v], count[v]);
+        }
+        return new CsrGraph(vertexCount, offsets, csrTargets, csrWeights);
+    }
+
+    // 每次加入、刪除邊或修改權重後遞增
+    public long version() {
+        return version;
+    }
+
+    @Override
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    @Override
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    @Override
+    public boolean hasWeights() {
+        return weighted;
+    }
+
+    @Override
+    public int firstEdge(int v) {
+        return start[v];
+    }
+
+    @Override
+    public int endEdge(int v) {
+        return start[v] + count[v];
+    }
+
+    @Override
+    public int degree(int v) {
+        return count[v];
+    }
+
+    @Override
+    public int target(int e) {
+        return targets[e];
+    }
+
+    @Override
+    public float weight(int e) {
+        return weights[e];
+    }
+
+    public long memoryBytes() {
+        return 12L * vertexCount + 8L * targets.length;
+    }
+}
@@ -0,0 +1,383 @@
+package fcu.web;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// 大量匯入邊列表與 DIMACS (.gr/.co) 路網檔案
+// 檔案切成以換行結尾的大區塊，各區塊在 ForkJoinPool 上平行解析，數字直接從位元組解析
+public final class EdgeListImporter {
+    // 每個區塊的目標大小
+    static final int CHUNK_BYTES = 8 << 20;
+
+    public enum Format {
+        // 每行 "起點 終點 [權重]"，以 # 或 % 開頭的行為註解，頂點從 0 開始
+        EDGE_LIST,
+        // DIMACS 最短路徑圖: "p sp n m" 與 "a u v w"，頂點從 1 開始
+        DIMACS_GR,
+        // DIMACS 座標檔: "v id x y"
+        DIMACS_CO
+    }
+
+    private EdgeListImporter() {
+    }
+
+    // 匯入結果與吞吐量
+    public static final class Result {
+        public final CsrGraph graph;
+        // 節點座標 x0, y0, x1, y1, ...，沒有座標檔時為 null
+        public final float[] coordinates;
+        public final long bytes;
+        public final long nanos;
+
+        Result(CsrGraph graph, float[] coordinates, long bytes, long nanos) {
+            this.graph = graph;
+            this.coordinates = coordinates;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        public double edgesPerSecond() {
+            return nanos == 0 ? 0.0 : graph.edgeCount() * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("匯入 %,d 個頂點, %,d 條弧, %,d 位元組, %.1f 毫秒, %,.0f 弧/秒",
+                    graph.vertexCount(), graph.edgeCount(), bytes, nanos / 1e6, edgesPerSecond());
+        }
+    }
+
+    // 匯入邊列表，undirected 為 true 時每條邊加入兩個方向
+    public static Result importEdgeList(Path file, boolean undirected) throws IOException {
+        long startTime = System.nanoTime();
+        List<Chunk> chunks = parse(file, Format.EDGE_LIST);
+        int vertices = 0;
+        long arcs = 0;
+        for (Chunk chunk : chunks) {
+            vertices = Math.max(vertices, chunk.maxVertex + 1);
+            arcs += chunk.size;
+        }
+        CsrGraph graph = build(vertices, chunks, arcs, undirected);
+        return new Result(graph, null, sizeOf(file), System.nanoTime() - startTime);
+    }
+
+    // 匯入 DIMACS .gr 圖，coordinateFile 可為 null
+    public static Result importDimacs(Path graphFile, Path coordinateFile) throws IOException {
+        long startTime = System.nanoTime();
+        List<Chunk> chunks = parse(graphFile, Format.DIMACS_GR);
+        int vertices = 0;
+        long arcs = 0;
+        for (Chunk chunk : chunks) {
+            vertices = Math.max(vertices, Math.max(chunk.declaredVertices, chunk.maxVertex + 1));
+            arcs += chunk.size;
+        }
+        CsrGraph graph = build(vertices, chunks, arcs, false);
+        long bytes = sizeOf(graphFile);
+
+        float[] coordinates = null;
+        if (coordinateFile != null) {
+            coordinates = new float[2 * vertices];
+            for (Chunk chunk : parse(coordinateFile, Format.DIMACS_CO)) {
+                for (int i = 0; i < chunk.size; i++) {
+                    int v = chunk.sources[i];
+                    if (v >= vertices) {
+                        throw new NumberFormatException("座標的頂點編號超出範圍: " + (v + 1));
+                    }
+                    coordinates[2 * v] = chunk.xs[i];
+                    coordinates[2 * v + 1] = chunk.weights[i];
+                }
+            }
+            bytes += sizeOf(coordinateFile);
+        }
+        return new Result(graph, coordinates, bytes, System.nanoTime() - startTime);
+    }
+
+    private static long sizeOf(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.size();
+        }
+    }
+
+    private static CsrGraph build(int vertices, List<Chunk> chunks, long arcs, boolean undirected) {
+        long total = undirected ? 2 * arcs : arcs;
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("弧的數量超過 CSR 上限: " + total);
+        }
+        boolean weighted = false;
+        for (Chunk chunk : chunks) {
+            weighted |= chunk.weighted;
+        }
+        CsrGraph.Builder builder = new CsrGraph.Builder(vertices).ensureCapacity((int) total);
+        for (Chunk chunk : chunks) {
+            float[] weights = weighted ? chunk.weights : null;
+            builder.addEdges(chunk.sources, chunk.targets, weights, chunk.size);
+            if (undirected) {
+                builder.addEdges(chunk.targets, chunk.sources, weights, chunk.size);
+            }
+        }
+        return builder.build();
+    }
+
+    // 依換行切割檔案並平行解析各區塊，回傳值保持檔案順序
+    static List<Chunk> parse(Path file, Format format) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel);
+            List<Callable<Chunk>> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long from = bounds[i], to = bounds[i + 1];
+                tasks.add(() -> parseChunk(channel, from, to, format));
+            }
+            List<Chunk> chunks = new ArrayList<>(tasks.size());
+            try {
+                for (Future<Chunk> future : ForkJoinPool.commonPool().invokeAll(tasks)) {
+                    chunks.add(future.get());
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("匯入被中斷", ex);
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof IOException) throw (IOException) cause;
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                throw new IOException(cause);
+            }
+            return chunks;
+        }
+    }
+
+    // 區塊邊界：每個邊界都落在換行之後
+    private static long[] chunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long position = CHUNK_BYTES;
+        while (position < size) {
+            long newline = -1;
+            long scan = position;
+            while (newline < 0 && scan < size) {
+                probe.clear();
+                int read = channel.read(probe, scan);
+                if (read <= 0) break;
+                for (int i = 0; i < read; i++) {
+                    if (probe.get(i) == '\n') {
+                        newline = scan + i;
+                        break;
+                    }
+                }
+                scan += read;
+            }
+            if (newline < 0 || newline + 1 >= size) break;
+            bounds.add(newline + 1);
+            position = newline + 1 + CHUNK_BYTES;
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    private static Chunk parseChunk(FileChannel channel, long from, long to, Format format) throws IOException {
+        byte[] bytes = new byte[(int) (to - from)];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, from + buffer.position()) < 0) break;
+        }
+        Chunk chunk = new Chunk(Math.max(16, bytes.length / 12), format == Format.DIMACS_CO);
+        new Scanner(bytes, buffer.position(), from).scan(format, chunk);
+        return chunk;
+    }
+
+    // 單一區塊的解析結果
+    static final class Chunk {
+        int[] sources, targets;
+        // DIMACS_CO 時 xs 為 x 座標，weights 為 y 座標
+        float[] weights, xs;
+        int size;
+        boolean weighted;
+        int maxVertex = -1;
+        int declaredVertices = -1;
+
+        Chunk(int capacity, boolean coordinates) {
+            sources = new int[capacity];
+            targets = coordinates ? null : new int[capacity];
+            weights = new float[capacity];
+            xs = coordinates ? new float[capacity] : null;
+        }
+
+        void add(int source, int target, float weight) {
+            if (size == sources.length) grow();
+            sources[size] = source;
+            targets[size] = target;
+            weights[size] = weight;
+            size++;
+            maxVertex = Math.max(maxVertex, Math.max(source, target));
+        }
+
+        void addCoordinate(int vertex, float x, float y) {
+            if (size == sources.length) grow();
+            sources[size] = vertex;
+            xs[size] = x;
+            weights[size] = y;
+            size++;
+        }
+
+        private void grow() {
+            int capacity = sources.length + (sources.length >> 1);
+            sources = Arrays.copyOf(sources, capacity);
+            if (targets != null) targets = Arrays.copyOf(targets, capacity);
+            if (xs != null) xs = Arrays.copyOf(xs, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+        }
+    }
+
+    // 直接在位元組上逐行解析，不建立任何 String
+    private static final class Scanner {
+        private final byte[] buf;
+        private final int limit;
+        private final long fileOffset;
+        private int pos;
+
+        Scanner(byte[] buf, int limit, long fileOffset) {
+            this.buf = buf;
+            this.limit = limit;
+            this.fileOffset = fileOffset;
+        }
+
+        void scan(Format format, Chunk chunk) {
+            while (pos < limit) {
+                byte c = buf[pos];
+                if (c == '\n' || c == '\r' || c == ' ' || c == '\t') {
+                    pos++;
+                    continue;
+                }
+                switch (format) {
+                    case EDGE_LIST:
+                        if (c == '#' || c == '%') break;
+                        int v = nextInt();
+                        int w = nextInt();
+                        if (atEndOfLine()) {
+                            chunk.add(v, w, 1f);
+                        } else {
+                            chunk.add(v, w, nextFloat());
+                            chunk.weighted = true;
+                        }
+                        break;
+                    case DIMACS_GR:
+                        if (c == 'a') {
+                            pos++;
+                            int from = nextInt() - 1;
+                            int to = nextInt() - 1;
+                            chunk.add(from, to, nextFloat());
+                            chunk.weighted = true;
+                        } else if (c == 'p') {
+                            pos++;
+                            skipToken();
+                            chunk.declaredVertices = nextInt();
+                        }
+                        break;
+                    case DIMACS_CO:
+                        if (c == 'v') {
+                            pos++;
+                            int id = nextInt() - 1;
+                            float x = nextFloat();
+                            chunk.addCoordinate(id, x, nextFloat());
+                        }
+                        break;
+                }
+                skipLine();
+            }
+        }
+
+        private void skipLine() {
+            while (pos < limit && buf[pos] != '\n') pos++;
+        }
+
+        private void skipSpaces() {
+            while (pos < limit && (buf[pos] == ' ' || buf[pos] == '\t')) pos++;
+        }
+
+        private void skipToken() {
+            skipSpaces();
+            while (pos < limit && buf[pos] > ' ') pos++;
+        }
+
+        private boolean atEndOfLine() {
+            skipSpaces();
+            return pos >= limit || buf[pos] == '\n' || buf[pos] == '\r';
+        }
+
+        private int nextInt() {
+            skipSpaces();
+            boolean negative = pos < limit && buf[pos] == '-';
+            if (negative) pos++;
+            int start = pos;
+            long value = 0;
+            while (pos < limit && buf[pos] >= '0' && buf[pos] <= '9') {
+                value = value * 10 + (buf[pos++] - '0');
+                if (value > Integer.MAX_VALUE) throw error("數字超出 int 範圍");
+            }
+            if (pos == start) throw error("預期為數字");
+            return (int) (negative ? -value : value);
+        }
+
+        private float nextFloat() {
+            skipSpaces();
+            boolean negative = pos < limit && buf[pos] == '-';
+            if (negative) pos++;
+            int start = pos;
+            double value = 0;
+            while (pos < limit && buf[pos] >= '0' && buf[pos] <= '9') {
+                value = value * 10 + (buf[pos++] - '0');
+            }
+            if (pos < limit && buf[pos] == '.') {
+                pos++;
+                double scale = 0.1;
+                while (pos < limit && buf[pos] >= '0' && buf[pos] <= '9') {
+                    value += (buf[pos++] - '0') * scale;
+                    scale *= 0.1;
+                }
+            }
+            if (pos == start) throw error("預期為數字");
+            if (pos < limit && (buf[pos] == 'e' || buf[pos] == 'E')) {
+                pos++;
+                if (pos < limit && buf[pos] == '+') pos++;
+                value *= Math.pow(10, nextInt());
+            }
+            return (float) (negative ? -value : value);
+        }
+
+        private NumberFormatException error(String message) {
+            return new NumberFormatException(message + "，位置 " + (fileOffset + pos));
+        }
+    }
+
+    // 命令列匯入並印出吞吐量: EdgeListImporter <檔案.gr|檔案.txt> [座標.co]
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("用法: EdgeListImporter <邊列表或 .gr 檔> [.co 座標檔]");
+            return;
+        }
+        Path file = Paths.get(args[0]);
+        Result result;
+        if (file.toString().endsWith(".gr")) {
+            result = importDimacs(file, args.length > 1 ? Paths.get(args[1]) : null);
+        } else {
+            result = importEdgeList(file, true);
+        }
+        System.out.println(result);
+    }
+}
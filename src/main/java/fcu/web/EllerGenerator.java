@@ -0,0 +1,131 @@
+package fcu.web;
+
+import java.util.Arrays;
+
+// Eller 演算法：逐列生成，只保留目前一列的集合標籤，記憶體為 O(寬度)
+public final class EllerGenerator implements MazeGenerator {
+    // 接收依序輸出的迷宮列，bits 的第 y 位元為 1 表示 (x, y) 是牆壁
+    public interface RowSink {
+        void row(int x, long[] bits);
+    }
+
+    @Override
+    public String name() {
+        return "Eller";
+    }
+
+    @Override
+    public void generate(BitGrid walls, int startX, int startY, FastRandom random) {
+        int size = walls.size();
+        generateRows(size, startX, startY, random, (x, bits) -> {
+            long base = walls.index(x, 0);
+            for (int w = 0; w < bits.length; w++) {
+                long open = ~bits[w];
+                while (open != 0) {
+                    int y = (w << 6) + Long.numberOfTrailingZeros(open);
+                    if (y >= size) break;
+                    walls.clear(base + y);
+                    open &= open - 1;
+                }
+            }
+        });
+    }
+
+    // 依序輸出 size 列迷宮，不需要整個迷宮的記憶體
+    public void generateRows(int size, int startX, int startY, FastRandom random, RowSink sink) {
+        MazeLattice lattice = new MazeLattice(size, startX, startY);
+        int rows = lattice.rows, cols = lattice.cols, originY = lattice.originY;
+        long[] bits = new long[(size + 63) >>> 6];
+        int[] label = new int[cols];
+        int[] next = new int[cols];
+        int[] parent = new int[cols];
+        int[] count = new int[cols];
+        boolean[] used = new boolean[cols];
+        boolean[] hasDown = new boolean[cols];
+        Arrays.fill(label, -1);
+
+        int x = 0;
+        if (lattice.originX == 1) {
+            Arrays.fill(bits, -1L);
+            sink.row(x++, bits);
+        }
+        for (int r = 0; r < rows; r++) {
+            boolean last = r == rows - 1;
+            assignLabels(label, used);
+
+            // 格點列：挖開所有格點，再隨機合併左右相鄰的不同集合
+            Arrays.fill(bits, -1L);
+            for (int c = 0; c < cols; c++) {
+                clearBit(bits, originY + 2 * c);
+                parent[c] = c;
+            }
+            for (int c = 0; c + 1 < cols; c++) {
+                int a = find(parent, label[c]), b = find(parent, label[c + 1]);
+                if (a != b && (last || random.nextBoolean())) {
+                    parent[a] = b;
+                    clearBit(bits, originY + 2 * c + 1);
+                }
+            }
+            for (int c = 0; c < cols; c++) {
+                label[c] = find(parent, label[c]);
+            }
+            sink.row(x++, bits);
+            if (last || x >= size) break;
+
+            // 通道列：每個集合至少向下延伸一次
+            Arrays.fill(bits, -1L);
+            Arrays.fill(count, 0);
+            Arrays.fill(hasDown, false);
+            for (int c = 0; c < cols; c++) {
+                count[label[c]]++;
+            }
+            for (int c = 0; c < cols; c++) {
+                int set = label[c];
+                count[set]--;
+                if (random.nextBoolean() || (count[set] == 0 && !hasDown[set])) {
+                    hasDown[set] = true;
+                    clearBit(bits, originY + 2 * c);
+                    next[c] = set;
+                } else {
+                    next[c] = -1;
+                }
+            }
+            int[] swap = label;
+            label = next;
+            next = swap;
+            sink.row(x++, bits);
+        }
+        Arrays.fill(bits, -1L);
+        while (x < size) {
+            sink.row(x++, bits);
+        }
+    }
+
+    // 為沒有集合的格點配置未使用的標籤，標籤保持在 [0, cols) 之間
+    private static void assignLabels(int[] label, boolean[] used) {
+        Arrays.fill(used, false);
+        for (int l : label) {
+            if (l >= 0) used[l] = true;
+        }
+        int free = 0;
+        for (int c = 0; c < label.length; c++) {
+            if (label[c] < 0) {
+                while (used[free]) free++;
+                used[free] = true;
+                label[c] = free;
+            }
+        }
+    }
+
+    private static int find(int[] parent, int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+
+    private static void clearBit(long[] bits, int y) {
+        bits[y >>> 6] &= ~(1L << y);
+    }
+}
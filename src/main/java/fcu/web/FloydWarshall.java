@@ -0,0 +1,250 @@
+package fcu.web;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// 小型稠密圖的全對最短路徑 (分塊 Floyd-Warshall)
+// 距離與下一跳存在以 stride 為列寬的扁平陣列中，矩陣依 BLOCK x BLOCK 分塊；
+// 每一輪 kb 先處理對角塊，再平行處理同列與同行的塊，最後平行處理其餘的塊，每塊的工作集都留在快取中
+// 計算完成後任意點對的距離查詢為 O(1)，路徑依下一跳矩陣逐點重建
+// 計算完成後唯讀，可由多個執行緒同時查詢
+public final class FloydWarshall {
+    // 64 x 64 的 float 塊為 16 KB，一輪用到的三個塊可同時放進 L2
+    static final int BLOCK = 64;
+
+    private final int n;
+    // 補齊到 BLOCK 的倍數，補上的列與行距離為無限大
+    private final int stride;
+    private final float[] distance;
+    // next[i * stride + j] 為 i 到 j 的最短路徑上 i 的下一個頂點，不可達時為 -1
+    private final int[] next;
+
+    private FloydWarshall(int n, int stride, float[] distance, int[] next) {
+        this.n = n;
+        this.stride = stride;
+        this.distance = distance;
+        this.next = next;
+    }
+
+    // 邊權必須非負；重邊取最小權重
+    public static FloydWarshall compute(IntGraph graph, ForkJoinPool pool) {
+        return compute(graph, pool, null);
+    }
+
+    // 可取消的版本：每一輪 kb 之前呼叫 monitor.checkpoint()，工作執行緒在每列塊之前以 shouldStop() 略過剩下的工作；
+    // 取消或逾時時拋出 CancellationException，計算到一半的矩陣被丟棄
+    public static FloydWarshall compute(IntGraph graph, ForkJoinPool pool, SearchMonitor monitor) {
+        int n = graph.vertexCount();
+        int blocks = (n + BLOCK - 1) / BLOCK;
+        int stride = blocks * BLOCK;
+        if ((long) stride * stride > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("頂點數過多，無法建立全對距離矩陣: " + n);
+        }
+        float[] distance = new float[stride * stride];
+        int[] next = new int[stride * stride];
+        Arrays.fill(distance, Float.POSITIVE_INFINITY);
+        Arrays.fill(next, -1);
+        for (int v = 0; v < n; v++) {
+            int row = v * stride;
+            distance[row + v] = 0f;
+            next[row + v] = v;
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                int w = graph.target(e);
+                float weight = graph.weight(e);
+                if (weight < distance[row + w]) {
+                    distance[row + w] = weight;
+                    next[row + w] = w;
+                }
+            }
+        }
+
+        FloydWarshall result = new FloydWarshall(n, stride, distance, next);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int kb = 0; kb < blocks; kb++) {
+            if (monitor != null) monitor.checkpoint();
+            int k = kb;
+            result.relax(k, k, k);
+            tasks.clear();
+            for (int b = 0; b < blocks; b++) {
+                if (b == k) continue;
+                int other = b;
+                tasks.add(ForkJoinTask.adapt(() -> result.relax(k, other, k)));
+                tasks.add(ForkJoinTask.adapt(() -> result.relax(other, k, k)));
+            }
+            invokeAll(pool, tasks);
+            tasks.clear();
+            for (int ib = 0; ib < blocks; ib++) {
+                if (ib == k) continue;
+                int rowBlock = ib;
+                // 一列塊一個任務，避免產生 blocks² 個小任務
+                tasks.add(ForkJoinTask.adapt(() -> {
+                    if (monitor != null && monitor.shouldStop()) return;
+                    for (int jb = 0; jb < blocks; jb++) {
+                        if (jb != k) result.relax(rowBlock, jb, k);
+                    }
+                }));
+            }
+            invokeAll(pool, tasks);
+        }
+        if (monitor != null) monitor.checkpoint();
+        return result;
+    }
+
+    private static void invokeAll(ForkJoinPool pool, List<ForkJoinTask<?>> tasks) {
+        if (tasks.isEmpty()) return;
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    }
+
+    // 以塊 kb 內的頂點為中繼更新塊 (ib, jb)
+    // 最內層迴圈沿著連續記憶體走，沒有跨迭代依賴，JIT 可展開並以 SIMD 比較
+    private void relax(int ib, int jb, int kb) {
+        float[] d = distance;
+        int[] hop = next;
+        int iFrom = ib * BLOCK, jFrom = jb * BLOCK, kFrom = kb * BLOCK;
+        int iTo = Math.min(n, iFrom + BLOCK), jTo = Math.min(n, jFrom + BLOCK), kTo = Math.min(n, kFrom + BLOCK);
+        for (int k = kFrom; k < kTo; k++) {
+            int rowK = k * stride;
+            for (int i = iFrom; i < iTo; i++) {
+                int rowI = i * stride;
+                float dik = d[rowI + k];
+                if (dik == Float.POSITIVE_INFINITY) continue;
+                int hopIK = hop[rowI + k];
+                for (int j = jFrom; j < jTo; j++) {
+                    float candidate = dik + d[rowK + j];
+                    if (candidate < d[rowI + j]) {
+                        d[rowI + j] = candidate;
+                        hop[rowI + j] = hopIK;
+                    }
+                }
+            }
+        }
+    }
+
+    public int vertexCount() {
+        return n;
+    }
+
+    // 不可達時為無限大
+    public float distance(int start, int end) {
+        return distance[start * stride + end];
+    }
+
+    public int nextHop(int start, int end) {
+        return next[start * stride + end];
+    }
+
+    // 回傳由 start 到 end 的最短路徑，不可達時回傳空陣列
+    public int[] path(int start, int end) {
+        if (next[start * stride + end] < 0) return new int[0];
+        int length = 1;
+        for (int at = start; at != end; at = next[at * stride + end]) {
+            if (++length > n) throw new IllegalStateException("下一跳矩陣出現環: " + start + " -> " + end);
+        }
+        int[] path = new int[length];
+        int i = 0;
+        for (int at = start; ; at = next[at * stride + end]) {
+            path[i++] = at;
+            if (at == end) break;
+        }
+        return path;
+    }
+
+    public long memoryBytes() {
+        return 8L * stride * stride;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("全對最短路徑: %,d 個頂點, 分塊 %d, %.1f MB", n, BLOCK, memoryBytes() / 1048576.0);
+    }
+
+    // 與未分塊的 Floyd-Warshall 及逐點 Dijkstra 比較: FloydWarshall [頂點數] [平均出度] [種子]
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1500;
+        int degree = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+        Random random = new Random(seed);
+        CsrGraph.Builder builder = new CsrGraph.Builder(n);
+        for (int v = 0; v < n; v++) {
+            for (int i = 0; i < degree; i++) {
+                builder.addEdge(v, random.nextInt(n), 1f + random.nextInt(100));
+            }
+        }
+        CsrGraph graph = builder.build();
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        System.out.printf("圖: %,d 個頂點, %,d 條弧, %d 執行緒%n", n, graph.edgeCount(), pool.getParallelism());
+
+        long startTime = System.nanoTime();
+        float[] plain = plainFloydWarshall(graph);
+        double plainMillis = (System.nanoTime() - startTime) / 1e6;
+        System.out.printf("未分塊 Floyd-Warshall: %.1f 毫秒%n", plainMillis);
+
+        startTime = System.nanoTime();
+        FloydWarshall apsp = compute(graph, pool);
+        double blockedMillis = (System.nanoTime() - startTime) / 1e6;
+        System.out.printf("分塊平行 Floyd-Warshall: %.1f 毫秒, 加速 %.1f 倍, %s%n",
+                blockedMillis, plainMillis / blockedMillis, apsp);
+
+        DijkstraSearch dijkstra = new DijkstraSearch(graph);
+        startTime = System.nanoTime();
+        for (int s = 0; s < n; s++) {
+            dijkstra.search(s, -1);
+            for (int t = 0; t < n; t++) {
+                float expected = (float) dijkstra.distance(t);
+                if (apsp.distance(s, t) != plain[s * n + t] || Math.abs(apsp.distance(s, t) - expected) > 1e-3f) {
+                    throw new IllegalStateException("距離不符: " + s + " -> " + t);
+                }
+            }
+        }
+        System.out.printf("逐點 Dijkstra (含驗證): %.1f 毫秒%n", (System.nanoTime() - startTime) / 1e6);
+
+        int queries = 100_000;
+        long hops = 0;
+        startTime = System.nanoTime();
+        for (int q = 0; q < queries; q++) {
+            int s = random.nextInt(n), t = random.nextInt(n);
+            int[] path = apsp.path(s, t);
+            double length = 0;
+            for (int i = 0; i + 1 < path.length; i++) length += edgeWeight(graph, path[i], path[i + 1]);
+            if (path.length > 0 && Math.abs(length - apsp.distance(s, t)) > 1e-3) {
+                throw new IllegalStateException("路徑長度 " + length + " 與距離 " + apsp.distance(s, t) + " 不符");
+            }
+            hops += path.length;
+        }
+        System.out.printf("查表並重建路徑: 平均 %.2f 微秒, 平均 %.1f 個頂點%n",
+                (System.nanoTime() - startTime) / 1e3 / queries, (double) hops / queries);
+    }
+
+    private static float[] plainFloydWarshall(IntGraph graph) {
+        int n = graph.vertexCount();
+        float[] d = new float[n * n];
+        Arrays.fill(d, Float.POSITIVE_INFINITY);
+        for (int v = 0; v < n; v++) {
+            d[v * n + v] = 0f;
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                d[v * n + graph.target(e)] = Math.min(d[v * n + graph.target(e)], graph.weight(e));
+            }
+        }
+        for (int k = 0; k < n; k++) {
+            for (int i = 0; i < n; i++) {
+                float dik = d[i * n + k];
+                for (int j = 0; j < n; j++) {
+                    d[i * n + j] = Math.min(d[i * n + j], dik + d[k * n + j]);
+                }
+            }
+        }
+        return d;
+    }
+
+    private static float edgeWeight(IntGraph graph, int v, int w) {
+        float best = Float.POSITIVE_INFINITY;
+        for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+            if (graph.target(e) == w) best = Math.min(best, graph.weight(e));
+        }
+        return best;
+    }
+}
@@ -0,0 +1,163 @@
+package fcu.web;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// 圖形二進位檔案格式 (小端序):
+//   標頭 64 位元組: magic "CSRG", 版本, 旗標, 頂點數, 弧數 (long), 其餘保留為 0
+//   offsets int[V + 1], targets int[E], weights float[E] (可選), coords float[2V] (可選)
+// 每個區段都對齊到 8 位元組，開啟時以 FileChannel.map 直接映射，不複製資料
+public final class GraphFile {
+    public static final int MAGIC = 0x47525343; // "CSRG"
+    public static final int VERSION = 1;
+    public static final int FLAG_WEIGHTS = 1;
+    public static final int FLAG_COORDINATES = 2;
+    static final int HEADER_BYTES = 64;
+
+    private GraphFile() {
+    }
+
+    // 將圖與節點座標 (x0, y0, x1, y1, ...，可為 null) 寫入檔案
+    public static void write(Path file, IntGraph graph, float[] coordinates) throws IOException {
+        int vertices = graph.vertexCount();
+        int arcs = graph.edgeCount();
+        if (coordinates != null && coordinates.length != 2 * vertices) {
+            throw new IllegalArgumentException("座標長度必須為 2 * 頂點數: " + coordinates.length);
+        }
+        int flags = (graph.hasWeights() ? FLAG_WEIGHTS : 0) | (coordinates != null ? FLAG_COORDINATES : 0);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(flags).putInt(vertices).putLong(arcs);
+            while (buffer.position() < HEADER_BYTES) {
+                buffer.put((byte) 0);
+            }
+
+            // 依頂點順序重新編排邊，來源圖的邊區段之間可以有空隙
+            int offset = 0;
+            for (int v = 0; v < vertices; v++) {
+                buffer = ensure(channel, buffer, 4);
+                buffer.putInt(offset);
+                offset += graph.degree(v);
+            }
+            buffer = ensure(channel, buffer, 4);
+            buffer.putInt(offset);
+            buffer = pad(channel, buffer);
+
+            for (int v = 0; v < vertices; v++) {
+                for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                    buffer = ensure(channel, buffer, 4);
+                    buffer.putInt(graph.target(e));
+                }
+            }
+            buffer = pad(channel, buffer);
+
+            if (graph.hasWeights()) {
+                for (int v = 0; v < vertices; v++) {
+                    for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                        buffer = ensure(channel, buffer, 4);
+                        buffer.putFloat(graph.weight(e));
+                    }
+                }
+                buffer = pad(channel, buffer);
+            }
+
+            if (coordinates != null) {
+                for (float c : coordinates) {
+                    buffer = ensure(channel, buffer, 4);
+                    buffer.putFloat(c);
+                }
+                buffer = pad(channel, buffer);
+            }
+            flush(channel, buffer);
+        }
+    }
+
+    // 以記憶體映射開啟圖檔
+    public static MappedGraph open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("檔案太小，不是圖形檔案: " + file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("檔案標記錯誤，不是圖形檔案: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("不支援的圖形檔案版本: " + version);
+            }
+            int flags = header.getInt();
+            int vertices = header.getInt();
+            long arcs = header.getLong();
+            if (vertices < 0 || arcs < 0 || arcs > Integer.MAX_VALUE) {
+                throw new IOException("圖形檔案標頭損壞: " + file);
+            }
+
+            long position = HEADER_BYTES;
+            IntBuffer offsets = map(channel, position, 4L * (vertices + 1)).asIntBuffer();
+            position = align(position + 4L * (vertices + 1));
+            IntBuffer targets = map(channel, position, 4L * arcs).asIntBuffer();
+            position = align(position + 4L * arcs);
+            FloatBuffer weights = null;
+            if ((flags & FLAG_WEIGHTS) != 0) {
+                weights = map(channel, position, 4L * arcs).asFloatBuffer();
+                position = align(position + 4L * arcs);
+            }
+            FloatBuffer coordinates = null;
+            if ((flags & FLAG_COORDINATES) != 0) {
+                coordinates = map(channel, position, 8L * vertices).asFloatBuffer();
+            }
+            // 映射在通道關閉後仍然有效
+            return new MappedGraph(vertices, (int) arcs, offsets, targets, weights, coordinates);
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("區段超過 2 GB，無法映射: " + length);
+        }
+        if (position + length > channel.size()) {
+            throw new IOException("圖形檔案被截斷");
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    static long align(long position) {
+        return (position + 7L) & ~7L;
+    }
+
+    private static ByteBuffer ensure(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush(channel, buffer);
+            buffer.clear();
+        }
+        return buffer;
+    }
+
+    private static ByteBuffer pad(FileChannel channel, ByteBuffer buffer) throws IOException {
+        long written = channel.position() + buffer.position();
+        for (long i = written; i < align(written); i++) {
+            buffer = ensure(channel, buffer, 1);
+            buffer.put((byte) 0);
+        }
+        return buffer;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
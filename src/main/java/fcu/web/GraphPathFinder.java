@@ -2,13 +2,36 @@ package fcu.web;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 public class GraphPathFinder extends JFrame {
+    // 距離與下一跳矩陣共 8 * V² 位元組，4096 個頂點約 128 MB
+    private static final int ALL_PAIRS_LIMIT = 4096;
+    // 重複查詢的快取：最多 1024 條路徑，合計最多 2^20 個頂點
+    private static final int PATH_CACHE_SIZE = 1024;
+    private static final long PATH_CACHE_CELLS = 1L << 20;
+
     private JTextField vertexField, edgeField, startField, endField;
     private JTextArea resultArea;
-    private JButton addEdgeButton, drawGraphButton, dfsButton, bfsButton;
+    private JButton addEdgeButton, drawGraphButton, dfsButton, bfsButton, loadFileButton, exportFileButton,
+            importButton, biBfsButton, allBfsButton, allPairsButton, exportMetricsButton, cancelButton;
+    // 搜索的時間上限 (秒)，0 表示不限時間
+    private JTextField timeoutField;
+    // 搜索在背景執行緒上執行，進行中的開放集合以淺綠色繪製，每秒最多重繪 FRAME_RATE 次
+    private static final int FRAME_RATE = 30;
+    private static final Color FRONTIER_COLOR = new Color(144, 238, 144);
+    private final SearchRunner runner;
+    // 勾選時記錄每次搜索的詳細指標 (SearchMetrics)，可匯出為 JSON 或 CSV
+    private JCheckBox metricsBox;
+    private final java.util.List<SearchMetrics> metricsHistory = new ArrayList<>();
     private Graph graph;
+    // 每次繪製、載入或加入邊時遞增，快取中較舊版本的路徑隨之失效
+    private long graphVersion;
+    private final PathCache pathCache = new PathCache(PATH_CACHE_SIZE, PATH_CACHE_CELLS);
     private int vertices;
     private java.util.List<int[]> edges = new ArrayList<>();
     private GraphPanel graphPanel;
@@ -42,11 +65,34 @@ public class GraphPathFinder extends JFrame {
         bfsButton = new JButton("BFS 尋找最短路徑");
         buttonPanel.add(dfsButton);
         buttonPanel.add(bfsButton);
+        biBfsButton = new JButton("雙向BFS 尋找最短路徑");
+        buttonPanel.add(biBfsButton);
+        allBfsButton = new JButton("全源BFS 距離");
+        buttonPanel.add(allBfsButton);
+        allPairsButton = new JButton("全對最短路徑 查表");
+        buttonPanel.add(allPairsButton);
+        loadFileButton = new JButton("載入圖檔");
+        exportFileButton = new JButton("匯出圖檔");
+        buttonPanel.add(loadFileButton);
+        buttonPanel.add(exportFileButton);
+        importButton = new JButton("匯入邊列表");
+        buttonPanel.add(importButton);
+        metricsBox = new JCheckBox("記錄指標", SearchMetrics.enabled());
+        buttonPanel.add(metricsBox);
+        exportMetricsButton = new JButton("匯出指標");
+        buttonPanel.add(exportMetricsButton);
+        buttonPanel.add(new JLabel("逾時(秒):"));
+        timeoutField = new JTextField("30", 3);
+        buttonPanel.add(timeoutField);
+        cancelButton = new JButton("取消搜索");
+        cancelButton.setEnabled(false);
+        buttonPanel.add(cancelButton);
 
         resultArea = new JTextArea();
         resultArea.setEditable(false);
 
         graphPanel = new GraphPanel();
+        runner = new SearchRunner(graphPanel::repaint, FRAME_RATE);
 
         add(inputPanel, BorderLayout.NORTH);
         add(new JScrollPane(resultArea), BorderLayout.EAST);
@@ -57,140 +103,390 @@ public class GraphPathFinder extends JFrame {
         drawGraphButton.addActionListener(e -> drawGraph());
         dfsButton.addActionListener(e -> findShortestPath("DFS"));
         bfsButton.addActionListener(e -> findShortestPath("BFS"));
+        biBfsButton.addActionListener(e -> findShortestPath("雙向BFS"));
+        allBfsButton.addActionListener(e -> findAllDistances());
+        allPairsButton.addActionListener(e -> findShortestPath("全對"));
+        loadFileButton.addActionListener(e -> loadGraphFile());
+        exportFileButton.addActionListener(e -> exportGraphFile());
+        importButton.addActionListener(e -> importEdgeFile());
+        metricsBox.addActionListener(e -> SearchMetrics.setEnabled(metricsBox.isSelected()));
+        exportMetricsButton.addActionListener(e -> exportMetrics());
+        cancelButton.addActionListener(e -> {
+            runner.cancel();
+            cancelButton.setEnabled(false);
+            resultArea.append("搜索已取消\n");
+            graphPanel.repaint();
+        });
     }
 
     private void addEdge() {
-        String[] parts = edgeField.getText().split(" ");
+        String[] parts = edgeField.getText().trim().split(" ");
         if (parts.length == 2) {
-            int v = Integer.parseInt(parts[0]);
-            int w = Integer.parseInt(parts[1]);
+            int v, w;
+            try {
+                v = Integer.parseInt(parts[0]);
+                w = Integer.parseInt(parts[1]);
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(this, "請輸入有效的邊 (兩個非負的頂點編號)");
+                return;
+            }
+            if (v < 0 || w < 0) {
+                JOptionPane.showMessageDialog(this, "頂點編號不可為負: " + v + " - " + w);
+                return;
+            }
+            // 已繪製圖時頂點編號必須在圖內；尚未繪製時由 drawGraph 依當時的頂點數檢查
+            if (graph != null && (v >= vertices || w >= vertices)) {
+                JOptionPane.showMessageDialog(this, "頂點編號超出範圍: " + v + " - " + w
+                        + " (圖有 " + vertices + " 個頂點)");
+                return;
+            }
             edges.add(new int[]{v, w});
             edgeField.setText("");
             resultArea.append("添加邊: " + v + " - " + w + "\n");
+            // 已繪製的圖直接加入這條邊，不必重建；先停止正在讀取這張圖的背景搜索
+            if (graph != null && graph.adj instanceof DynamicGraph) {
+                stopSearch();
+                ((DynamicGraph) graph.adj).addUndirectedEdge(v, w, 1f);
+                graph.edgesChanged();
+                graphVersion++;
+                graphPanel.edgesChanged();
+                graphPanel.repaint();
+            }
         }
     }
 
+    // 頂點編號超出新頂點數的邊略過，並在結果區列出
     private void drawGraph() {
-        vertices = Integer.parseInt(vertexField.getText());
-        graph = new Graph(vertices);
+        int count;
+        try {
+            count = Integer.parseInt(vertexField.getText().trim());
+        } catch (NumberFormatException ex) {
+            count = 0;
+        }
+        if (count <= 0) {
+            JOptionPane.showMessageDialog(this, "請輸入有效的頂點數 (正整數)");
+            return;
+        }
+        DynamicGraph dynamic = new DynamicGraph(count);
         for (int[] edge : edges) {
-            graph.addEdge(edge[0], edge[1]);
+            if (edge[0] >= count || edge[1] >= count) {
+                resultArea.append("略過超出範圍的邊: " + edge[0] + " - " + edge[1] + "\n");
+                continue;
+            }
+            dynamic.addUndirectedEdge(edge[0], edge[1], 1f); // 假設是無向圖
         }
+        loadGraph(dynamic);
+    }
+
+    // 載入已建立好的圖 (CSR 陣列或記憶體映射檔案)
+    public void loadGraph(IntGraph adj) {
+        stopSearch();
+        vertices = adj.vertexCount();
+        graph = new Graph(adj);
+        graphVersion++;
         resultArea.append("圖形已繪製，共 " + vertices + " 個頂點\n");
+        if (adj instanceof CsrGraph) {
+            resultArea.append(((CsrGraph) adj).memoryReport() + "\n");
+        }
         graphPanel.setGraph(graph);
         graphPanel.repaint();
     }
 
-    private void findShortestPath(String method) {
-        int start = Integer.parseInt(startField.getText());
-        int end = Integer.parseInt(endField.getText());
-        long startTime = System.nanoTime();
-        java.util.List<Integer> path;
-        if (method.equals("DFS")) {
-            path = graph.dfs(start, end);
-        } else {
-            path = graph.bfs(start, end);
+    // 以記憶體映射開啟二進位圖檔，不逐條建立邊
+    private void loadGraphFile() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File file = chooser.getSelectedFile();
+        try {
+            long startTime = System.nanoTime();
+            MappedGraph mapped = GraphFile.open(file.toPath());
+            long duration = System.nanoTime() - startTime;
+            edges.clear();
+            loadGraph(mapped);
+            resultArea.append("已映射 " + file.getName() + ": " + mapped.edgeCount() + " 條弧, "
+                    + mapped.mappedBytes() + " 位元組, 開啟時間 " + duration + " 奈秒\n");
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "無法載入圖檔: " + ex.getMessage());
         }
-        long endTime = System.nanoTime();
-        long duration = endTime - startTime;
+    }
 
-        if (path.isEmpty()) {
-            resultArea.append("未找到路徑\n");
-        } else {
-            resultArea.append(method + " 最短路徑: " + path + "\n");
-            resultArea.append("執行時間: " + duration + " 奈秒\n");
-            graphPanel.setPath(path);
-            graphPanel.repaint();
+    // 大量匯入邊列表或 DIMACS .gr 檔 (同名 .co 座標檔會一併讀入)
+    private void importEdgeFile() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File file = chooser.getSelectedFile();
+        try {
+            EdgeListImporter.Result result;
+            if (file.getName().endsWith(".gr")) {
+                File co = new File(file.getPath().replaceAll("\\.gr$", ".co"));
+                result = EdgeListImporter.importDimacs(file.toPath(), co.isFile() ? co.toPath() : null);
+            } else {
+                result = EdgeListImporter.importEdgeList(file.toPath(), true);
+            }
+            edges.clear();
+            loadGraph(result.graph);
+            resultArea.append(result + "\n");
+        } catch (IOException | RuntimeException ex) {
+            JOptionPane.showMessageDialog(this, "無法匯入邊列表: " + ex.getMessage());
         }
     }
 
-    private class Graph {
-        private int V;
-        private LinkedList<Integer>[] adj;
-
-        Graph(int v) {
-            V = v;
-            adj = new LinkedList[v];
-            for (int i = 0; i < v; ++i)
-                adj[i] = new LinkedList<>();
+    // 將目前的圖寫成二進位圖檔
+    private void exportGraphFile() {
+        if (graph == null) {
+            JOptionPane.showMessageDialog(this, "請先繪製圖形");
+            return;
         }
-
-        void addEdge(int v, int w) {
-            adj[v].add(w);
-            adj[w].add(v); // 假設是無向圖
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File file = chooser.getSelectedFile();
+        try {
+            GraphFile.write(file.toPath(), graph.adj, null);
+            resultArea.append("已匯出圖檔: " + file.getName() + "\n");
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "無法匯出圖檔: " + ex.getMessage());
         }
+    }
 
-        java.util.List<Integer> dfs(int start, int end) {
-            boolean[] visited = new boolean[V];
-            java.util.List<Integer> path = new ArrayList<>();
-            dfsUtil(start, end, visited, path);
-            return path;
+    // 搜索的時間上限 (毫秒，0 表示不限時間)，輸入無效時顯示訊息並回傳 -1
+    private long timeoutMillis() {
+        try {
+            return SearchRunner.timeoutMillis(timeoutField.getText());
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "請輸入有效的逾時秒數 (0 表示不限時間)");
+            return -1;
         }
+    }
 
-        boolean dfsUtil(int v, int end, boolean[] visited, java.util.List<Integer> path) {
-            visited[v] = true;
-            path.add(v);
+    // 在背景執行緒上執行 search，完成後在 EDT 上呼叫 onDone；開始新的搜索會取消進行中的搜索
+    private <T> void startSearch(java.util.function.Function<SearchMonitor, T> search,
+                                 java.util.function.Consumer<T> onDone) {
+        long timeout = timeoutMillis();
+        if (timeout < 0) return;
+        cancelButton.setEnabled(true);
+        runner.start(search, timeout, result -> {
+            cancelButton.setEnabled(false);
+            onDone.accept(result);
+            graphPanel.repaint();
+        }, message -> {
+            cancelButton.setEnabled(false);
+            resultArea.append(message + "\n");
+            graphPanel.repaint();
+        });
+    }
 
-            if (v == end) return true;
+    // 取消並等待背景搜索停止，之後才能修改或替換它讀取的圖
+    private void stopSearch() {
+        runner.cancelAndWait();
+        cancelButton.setEnabled(false);
+    }
 
-            for (int n : adj[v]) {
-                if (!visited[n]) {
-                    if (dfsUtil(n, end, visited, path)) return true;
-                }
+    // 以方向最佳化的平行 BFS 計算起點到所有頂點的距離；各層之間不檢查取消，取消後結果被丟棄
+    private void findAllDistances() {
+        int start = Integer.parseInt(startField.getText());
+        Graph current = graph;
+        long version = graphVersion;
+        startSearch(monitor -> {
+            long startTime = System.nanoTime();
+            DirectionOptimizingBfs.Result result = current.allDistances(start);
+            long duration = System.nanoTime() - startTime;
+            // 之後從同一起點的 BFS 查詢直接由這棵樹取得路徑
+            pathCache.putTree(version, "BFS", start, result);
+
+            int farthest = 0;
+            for (int d : result.distance) {
+                farthest = Math.max(farthest, d);
+            }
+            StringBuilder report = new StringBuilder();
+            report.append("全源BFS: 到達 ").append(result.reached).append(" / ").append(current.V)
+                    .append(" 個頂點, 最遠距離 ").append(farthest).append(", 由上而下 ").append(result.topDownLevels)
+                    .append(" 層, 由下而上 ").append(result.bottomUpLevels).append(" 層\n");
+            if (current.V <= 50) {
+                report.append("距離: ").append(Arrays.toString(result.distance)).append('\n');
             }
+            return report.append("執行時間: ").append(duration).append(" 奈秒\n").toString();
+        }, resultArea::append);
+    }
 
-            path.remove(path.size() - 1);
-            return false;
+    private void findShortestPath(String method) {
+        int start = Integer.parseInt(startField.getText());
+        int end = Integer.parseInt(endField.getText());
+        if (method.equals("全對") && vertices > ALL_PAIRS_LIMIT) {
+            JOptionPane.showMessageDialog(this, "全對最短路徑只適用於 " + ALL_PAIRS_LIMIT + " 個頂點以內的圖");
+            return;
+        }
+        // 相同的圖與起訖點重複查詢時直接取用快取的路徑
+        long version = graphVersion;
+        if (graph != null && start >= 0 && start < vertices && end >= 0 && end < vertices) {
+            PathResult cached = pathCache.get(version, method, start, end);
+            if (cached != null) {
+                runner.cancel();
+                cancelButton.setEnabled(false);
+                showResult(method, cached);
+                resultArea.append(pathCache.stats() + "\n");
+                graphPanel.repaint();
+                return;
+            }
         }
+        // 頂點編號錯誤等參數問題在背景執行緒上拋出，以訊息顯示在結果區
+        Graph current = graph;
+        startSearch(monitor -> method.equals("全對") ? current.allPairsPath(start, end, monitor)
+                : current.solver.solve(GraphSolver.Algorithm.of(method), start, end, monitor),
+                result -> {
+                    pathCache.put(version, method, start, end, result);
+                    showResult(method, result);
+                    resultArea.append(pathCache.stats() + "\n");
+                });
+    }
 
-        java.util.List<Integer> bfs(int start, int end) {
-            boolean[] visited = new boolean[V];
-            int[] parent = new int[V];
-            Arrays.fill(parent, -1);
+    private void showResult(String method, PathResult result) {
+        if (!result.found()) {
+            resultArea.append("未找到路徑\n");
+        } else {
+            resultArea.append(method + " 最短路徑: " + Arrays.toString(result.path()) + "\n");
+            resultArea.append("執行時間: " + result.nanos() + " 奈秒\n");
+            resultArea.append("路徑長度: " + result.cost() + ", 展開頂點數: " + result.expandedCount() + "\n");
+            graphPanel.setPath(result.path());
+        }
+        if (result.metrics() != null) {
+            metricsHistory.add(result.metrics());
+            resultArea.append("指標: " + result.metrics() + "\n");
+        }
+    }
 
-            LinkedList<Integer> queue = new LinkedList<>();
-            visited[start] = true;
-            queue.add(start);
+    // 匯出目前記錄的指標，副檔名為 .csv 時寫入 CSV，否則寫入 JSON
+    private void exportMetrics() {
+        if (metricsHistory.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "尚未記錄任何指標，請先勾選「記錄指標」再搜索");
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File file = chooser.getSelectedFile();
+        try {
+            SearchMetrics.write(file.toPath(), metricsHistory);
+            resultArea.append("已匯出 " + metricsHistory.size() + " 筆指標: " + file.getName() + "\n");
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "無法寫入指標檔: " + ex.getMessage());
+        }
+    }
 
-            while (!queue.isEmpty()) {
-                int v = queue.poll();
-                if (v == end) break;
+    private class Graph {
+        private int V;
+        private IntGraph adj;
+        // 無介面的尋路 API，各演算法的暫存狀態在第一次使用時建立
+        private final GraphSolver solver;
+        // 全對最短路徑矩陣，第一次查表時在背景執行緒上計算；EDT 在加邊時清除
+        private volatile FloydWarshall allPairs;
+
+        Graph(IntGraph adj) {
+            V = adj.vertexCount();
+            this.adj = adj;
+            // 無向圖的反向圖即為本身
+            solver = GraphSolver.undirected(adj);
+        }
 
-                for (int n : adj[v]) {
-                    if (!visited[n]) {
-                        visited[n] = true;
-                        parent[n] = v;
-                        queue.add(n);
-                    }
-                }
-            }
+        // 無向圖的反向圖即為本身，各層在共用的 ForkJoinPool 上平行處理
+        DirectionOptimizingBfs.Result allDistances(int start) {
+            return new DirectionOptimizingBfs(adj, adj, ForkJoinPool.commonPool()).search(start);
+        }
 
-            return reconstructPath(parent, start, end);
+        // 邊改變後丟棄依賴整張圖的預先計算結果
+        void edgesChanged() {
+            allPairs = null;
         }
 
-        private java.util.List<Integer> reconstructPath(int[] parent, int start, int end) {
-            java.util.List<Integer> path = new ArrayList<>();
-            for (int at = end; at != -1; at = parent[at]) {
-                path.add(at);
+        // 第一次查表時計算矩陣；指標分為 precompute (只在第一次出現) 與 lookup 兩個階段
+        // 查表不展開頂點，計數為 -1；矩陣計算每一輪檢查 monitor，取消時丟棄計算到一半的矩陣，
+        // 加邊或換圖時 EDT 不必等整個 O(V³) 的計算結束
+        PathResult allPairsPath(int start, int end, SearchMonitor monitor) {
+            if (start < 0 || start >= V || end < 0 || end >= V) {
+                throw new IllegalArgumentException("頂點編號超出範圍: " + start + " -> " + end);
+            }
+            SearchMetrics.Recorder recorder = SearchMetrics.start("全對");
+            FloydWarshall matrix = allPairs;
+            if (matrix == null) {
+                long startTime = System.nanoTime();
+                matrix = FloydWarshall.compute(adj, ForkJoinPool.commonPool(), monitor);
+                allPairs = matrix;
+                String report = matrix + ", 計算時間 " + (System.nanoTime() - startTime) + " 奈秒\n";
+                SwingUtilities.invokeLater(() -> resultArea.append(report));
+                if (recorder != null) recorder.phase("precompute");
             }
-            Collections.reverse(path);
-            return path.get(0) == start ? path : new ArrayList<>();
+            long startTime = System.nanoTime();
+            int[] path = matrix.path(start, end);
+            long nanos = System.nanoTime() - startTime;
+            double cost = matrix.distance(start, end);
+            SearchMetrics metrics = null;
+            if (recorder != null) {
+                recorder.phase("lookup");
+                metrics = recorder.finish(path, cost, 0, null);
+            }
+            return new PathResult("全對", path, cost, 0, nanos, metrics);
         }
     }
 
+    // 頂點以單位圓排列 (世界座標)，滾輪縮放、拖曳平移
+    // 邊與頂點是靜態圖層，只在圖、邊、視窗或面板大小改變時重畫成影像；路徑與開放集合每次重繪時畫在影像上
+    // 重畫圖層時以 SpatialGrid 查詢看得到的頂點，只畫這些頂點與至少一端看得到的邊，放大後的大圖不必走訪所有頂點與邊
     private class GraphPanel extends JPanel {
+        private static final int RADIUS = 20;
+        // 世界座標中以單位圓為中心、邊長 3 的正方形符合視窗，圓的半徑約為面板的三分之一
+        private static final double WORLD_EXTENT = 3.0;
+
+        private final Viewport viewport = new Viewport();
         private Graph graph;
-        private java.util.List<Integer> path;
+        private int[] path;
+        // 頂點的世界座標，換圖時計算一次，並建立網格索引
+        private double[] pointX, pointY;
+        private float[] coordinates;
+        private SpatialGrid index;
+        private BufferedImage layer;
+        private boolean layerDirty = true;
+
+        GraphPanel() {
+            viewport.install(this, zoomed -> {
+                layerDirty = true;
+                repaint();
+            });
+        }
 
         public void setGraph(Graph graph) {
             this.graph = graph;
             this.path = null;
+            int n = graph.V;
+            pointX = new double[n];
+            pointY = new double[n];
+            coordinates = new float[2 * n];
+            for (int i = 0; i < n; i++) {
+                pointX[i] = Math.cos(2 * Math.PI * i / n);
+                pointY[i] = Math.sin(2 * Math.PI * i / n);
+                coordinates[2 * i] = (float) pointX[i];
+                coordinates[2 * i + 1] = (float) pointY[i];
+            }
+            index = new SpatialGrid(coordinates);
+            viewport.fit(-WORLD_EXTENT / 2, -WORLD_EXTENT / 2, WORLD_EXTENT, WORLD_EXTENT,
+                    Math.max(1, getWidth()), Math.max(1, getHeight()));
+            layerDirty = true;
         }
 
-        public void setPath(java.util.List<Integer> path) {
+        // 圖的邊改變 (例如加入一條邊)，重畫靜態圖層
+        public void edgesChanged() {
+            layerDirty = true;
+        }
+
+        public void setPath(int[] path) {
             this.path = path;
         }
 
+        private int screenX(int v) {
+            return (int) Math.round(viewport.toScreenX(pointX[v]));
+        }
+
+        private int screenY(int v) {
+            return (int) Math.round(viewport.toScreenY(pointY[v]));
+        }
+
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
@@ -198,42 +494,83 @@ public class GraphPathFinder extends JFrame {
 
             int width = getWidth();
             int height = getHeight();
-            int radius = 20;
+            if (viewport.isFitted()) {
+                viewport.fit(-WORLD_EXTENT / 2, -WORLD_EXTENT / 2, WORLD_EXTENT, WORLD_EXTENT, width, height);
+            }
+            if (layer == null || layer.getWidth() != width || layer.getHeight() != height) {
+                layer = new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_RGB);
+                layerDirty = true;
+            }
+            if (layerDirty) {
+                drawLayer(width, height);
+                layerDirty = false;
+            }
+            g.drawImage(layer, 0, 0, null);
+
+            // 搜索中的開放集合
+            SearchMonitor.Snapshot snapshot = runner.snapshot();
+            if (snapshot != null) {
+                for (int v : snapshot.frontier()) {
+                    if (v >= graph.V) continue;
+                    int x = screenX(v), y = screenY(v);
+                    if (!visible(x, y, width, height)) continue;
+                    g.setColor(FRONTIER_COLOR);
+                    g.fillOval(x - RADIUS, y - RADIUS, 2 * RADIUS, 2 * RADIUS);
+                    g.setColor(Color.BLACK);
+                    g.drawString(Integer.toString(v), x - 5, y + 5);
+                }
+            }
 
-            // 計算頂點位置
-            Point[] points = new Point[graph.V];
-            for (int i = 0; i < graph.V; i++) {
-                int x = width / 2 + (int) (Math.cos(2 * Math.PI * i / graph.V) * (width / 3));
-                int y = height / 2 + (int) (Math.sin(2 * Math.PI * i / graph.V) * (height / 3));
-                points[i] = new Point(x, y);
+            // 繪製路徑
+            if (path != null && path.length > 0) {
+                g.setColor(Color.RED);
+                for (int i = 0; i < path.length - 1; i++) {
+                    int v = path[i];
+                    int w = path[i + 1];
+                    g.drawLine(screenX(v), screenY(v), screenX(w), screenY(w));
+                }
             }
+        }
+
+        // 頂點的圓是否與面板相交
+        private boolean visible(int x, int y, int width, int height) {
+            return x + RADIUS >= 0 && y + RADIUS >= 0 && x - RADIUS < width && y - RADIUS < height;
+        }
+
+        private void drawLayer(int width, int height) {
+            Graphics2D g = layer.createGraphics();
+            g.setColor(getBackground());
+            g.fillRect(0, 0, width, height);
+
+            // 看得到的頂點：世界座標的可見矩形向外擴大一個頂點半徑
+            double pad = RADIUS / viewport.scale();
+            double left = viewport.toWorldX(0) - pad, right = viewport.toWorldX(width) + pad;
+            double top = viewport.toWorldY(0) - pad, bottom = viewport.toWorldY(height) + pad;
+            int[] shown = index.range(left, top, right, bottom);
 
-            // 繪製邊
+            // 繪製至少一端看得到的邊；圖為無向圖，兩端都看得到的邊只由較小的端點畫一次
             g.setColor(Color.BLACK);
-            for (int i = 0; i < graph.V; i++) {
-                for (int j : graph.adj[i]) {
-                    g.drawLine(points[i].x, points[i].y, points[j].x, points[j].y);
+            for (int i : shown) {
+                int x1 = screenX(i), y1 = screenY(i);
+                for (int e = graph.adj.firstEdge(i); e < graph.adj.endEdge(i); e++) {
+                    int j = graph.adj.target(e);
+                    float jx = coordinates[2 * j], jy = coordinates[2 * j + 1];
+                    if (j < i && jx >= left && jx <= right && jy >= top && jy <= bottom) continue;
+                    g.drawLine(x1, y1, screenX(j), screenY(j));
                 }
             }
 
             // 繪製頂點
-            for (int i = 0; i < graph.V; i++) {
+            for (int i : shown) {
+                int x = screenX(i), y = screenY(i);
+                if (!visible(x, y, width, height)) continue;
                 g.setColor(Color.WHITE);
-                g.fillOval(points[i].x - radius, points[i].y - radius, 2 * radius, 2 * radius);
+                g.fillOval(x - RADIUS, y - RADIUS, 2 * RADIUS, 2 * RADIUS);
                 g.setColor(Color.BLACK);
-                g.drawOval(points[i].x - radius, points[i].y - radius, 2 * radius, 2 * radius);
-                g.drawString(Integer.toString(i), points[i].x - 5, points[i].y + 5);
-            }
-
-            // 繪製路徑
-            if (path != null && !path.isEmpty()) {
-                g.setColor(Color.RED);
-                for (int i = 0; i < path.size() - 1; i++) {
-                    int v = path.get(i);
-                    int w = path.get(i + 1);
-                    g.drawLine(points[v].x, points[v].y, points[w].x, points[w].y);
-                }
+                g.drawOval(x - RADIUS, y - RADIUS, 2 * RADIUS, 2 * RADIUS);
+                g.drawString(Integer.toString(i), x - 5, y + 5);
             }
+            g.dispose();
         }
     }
 
@@ -0,0 +1,148 @@
+package fcu.web;
+
+import java.util.Arrays;
+
+// 圖上的 DFS 與 BFS，回傳起點到終點的頂點編號，找不到時回傳空陣列
+// DFS 以明確堆疊實作，依邊的順序走訪，結果與遞迴版本相同，但不受遞迴深度限制
+// 走訪標記以世代編號重複使用，每次搜索不需清除或配置整個陣列
+// 非執行緒安全：每個執行緒應使用自己的實例
+public final class GraphSearch implements SearchCounters {
+    private static final int[] EMPTY = new int[0];
+
+    private final IntGraph graph;
+    private final int[] visitedStamp;
+    private final int[] parent;
+    // DFS 的堆疊 (頂點與下一條要走的邊)，BFS 的隊列共用 stack
+    private final int[] stack, edgeCursor;
+    private int generation;
+    private int expanded, peak;
+    private long relaxed;
+    private SearchMonitor monitor;
+
+    public GraphSearch(IntGraph graph) {
+        this.graph = graph;
+        int n = graph.vertexCount();
+        visitedStamp = new int[n];
+        parent = new int[n];
+        stack = new int[n];
+        edgeCursor = new int[n];
+    }
+
+    public IntGraph graph() {
+        return graph;
+    }
+
+    private void nextGeneration() {
+        if (++generation == 0) {
+            Arrays.fill(visitedStamp, 0);
+            generation = 1;
+        }
+        expanded = 0;
+        relaxed = 0;
+        peak = 0;
+    }
+
+    // 深度優先搜索，找到的路徑不保證最短
+    public int[] dfs(int start, int end) {
+        nextGeneration();
+        int top = 0;
+        stack[top] = start;
+        edgeCursor[top++] = graph.firstEdge(start);
+        visitedStamp[start] = generation;
+        expanded++;
+        if (start == end) return new int[]{start};
+
+        while (top > 0) {
+            int v = stack[top - 1];
+            int e = edgeCursor[top - 1];
+            if (e == graph.endEdge(v)) {
+                top--;
+                continue;
+            }
+            edgeCursor[top - 1] = e + 1;
+            relaxed++;
+            int n = graph.target(e);
+            if (visitedStamp[n] == generation) continue;
+            visitedStamp[n] = generation;
+            expanded++;
+            stack[top] = n;
+            edgeCursor[top++] = graph.firstEdge(n);
+            if (top > peak) peak = top;
+            if (monitor != null && (expanded & SearchMonitor.CHECK_MASK) == 0 && monitor.checkpoint()) {
+                monitor.publish(stack, 0, top, expanded);
+            }
+            if (n == end) return Arrays.copyOf(stack, top);
+        }
+        return EMPTY;
+    }
+
+    // 廣度優先搜索，回傳邊數最少的路徑
+    public int[] bfs(int start, int end) {
+        nextGeneration();
+        // 以 int 陣列作為隊列，每個頂點最多入隊一次
+        int[] queue = stack;
+        int head = 0, tail = 0;
+        visitedStamp[start] = generation;
+        parent[start] = -1;
+        queue[tail++] = start;
+
+        while (head < tail) {
+            int v = queue[head++];
+            expanded++;
+            if (monitor != null && (expanded & SearchMonitor.CHECK_MASK) == 0 && monitor.checkpoint()) {
+                monitor.publish(queue, head, tail, expanded);
+            }
+            if (v == end) return reconstructPath(end);
+            relaxed += graph.endEdge(v) - graph.firstEdge(v);
+
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                int n = graph.target(e);
+                if (visitedStamp[n] != generation) {
+                    visitedStamp[n] = generation;
+                    parent[n] = v;
+                    queue[tail++] = n;
+                }
+            }
+            if (tail - head > peak) peak = tail - head;
+        }
+
+        return EMPTY;
+    }
+
+    // 設定之後搜索使用的 SearchMonitor (取消、逾時與進度快照)，null 表示不監看
+    public void setMonitor(SearchMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    private int[] reconstructPath(int end) {
+        int length = 0;
+        for (int at = end; at != -1; at = parent[at]) length++;
+        int[] path = new int[length];
+        for (int at = end, i = length - 1; at != -1; at = parent[at]) {
+            path[i--] = at;
+        }
+        return path;
+    }
+
+    // 最近一次搜索走訪 (DFS) 或取出 (BFS) 的頂點數
+    @Override
+    public int expandedCount() {
+        return expanded;
+    }
+
+    @Override
+    public long relaxedCount() {
+        return relaxed;
+    }
+
+    // 堆疊 (DFS) 或隊列 (BFS) 的最大大小
+    @Override
+    public int peakOpenSize() {
+        return peak;
+    }
+
+    @Override
+    public long heapOperations() {
+        return 0;
+    }
+}
@@ -0,0 +1,199 @@
+package fcu.web;
+
+// 圖的無介面尋路 API，可在伺服器或批次程式中使用，不載入 AWT/Swing
+// 執行緒安全：每個執行緒第一次使用某個演算法時建立自己的搜索引擎，之後重複使用其暫存陣列；
+// 搜索期間圖不可被修改 (DynamicGraph 修改後應建立新的 GraphSolver，或由呼叫端同步)
+// 需要預處理的引擎 (CH、ALT) 由呼叫端建立，透過 solve(String, PathEngine, ...) 取得相同格式的結果
+public final class GraphSolver {
+    public enum Algorithm {
+        DFS("DFS"),
+        BFS("BFS"),
+        BIDIRECTIONAL_BFS("雙向BFS"),
+        DIJKSTRA("Dijkstra"),
+        BIDIRECTIONAL_DIJKSTRA("雙向Dijkstra"),
+        // 需要頂點座標，以歐氏距離為啟發函數
+        BIDIRECTIONAL_A_STAR("雙向A*");
+
+        private final String label;
+
+        Algorithm(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+
+        // 依 GraphPathFinder 按鈕上的名稱取得演算法
+        public static Algorithm of(String label) {
+            for (Algorithm algorithm : values()) {
+                if (algorithm.label.equals(label)) return algorithm;
+            }
+            throw new IllegalArgumentException("未知的搜索方法: " + label);
+        }
+    }
+
+    // 每個執行緒的搜索引擎，需要時才建立
+    private static final class Engines {
+        GraphSearch graphSearch;
+        BidirectionalBfs biBfs;
+        DijkstraSearch dijkstra;
+        BidirectionalDijkstra bidirectional;
+        BidirectionalDijkstra bidirectionalAStar;
+
+        // 搜索結束 (包括被取消) 後解除監看，避免之後的搜索沿用
+        void setMonitor(SearchMonitor monitor) {
+            if (graphSearch != null) graphSearch.setMonitor(monitor);
+            if (biBfs != null) biBfs.setMonitor(monitor);
+            if (dijkstra != null) dijkstra.setMonitor(monitor);
+            if (bidirectional != null) bidirectional.setMonitor(monitor);
+            if (bidirectionalAStar != null) bidirectionalAStar.setMonitor(monitor);
+        }
+    }
+
+    private final IntGraph forward, backward;
+    private final float[] coordinates;
+    private final ThreadLocal<Engines> engines = ThreadLocal.withInitial(Engines::new);
+
+    // backward 為反向圖，無向圖傳入同一個物件；coordinates 為 (x, y) 交錯的頂點座標，可為 null
+    public GraphSolver(IntGraph forward, IntGraph backward, float[] coordinates) {
+        if (forward.vertexCount() != backward.vertexCount()) {
+            throw new IllegalArgumentException("正向圖與反向圖的頂點數不符");
+        }
+        if (coordinates != null && coordinates.length != 2 * forward.vertexCount()) {
+            throw new IllegalArgumentException("座標數量與頂點數不符: " + coordinates.length);
+        }
+        this.forward = forward;
+        this.backward = backward;
+        this.coordinates = coordinates;
+    }
+
+    public static GraphSolver undirected(IntGraph graph) {
+        return new GraphSolver(graph, graph, null);
+    }
+
+    public IntGraph graph() {
+        return forward;
+    }
+
+    public PathResult solve(Algorithm algorithm, int start, int end) {
+        return solve(algorithm, start, end, null);
+    }
+
+    // 可取消的版本，供背景執行緒使用：monitor 取消或逾時時拋出 CancellationException，
+    // 搜索中定期把開放集合發佈到 monitor.snapshot()；monitor 為 null 時與上面相同
+    public PathResult solve(Algorithm algorithm, int start, int end, SearchMonitor monitor) {
+        int n = forward.vertexCount();
+        if (start < 0 || start >= n || end < 0 || end >= n) {
+            throw new IllegalArgumentException("頂點編號超出範圍: " + start + " -> " + end + " (共 " + n + " 個頂點)");
+        }
+        if (algorithm == Algorithm.BIDIRECTIONAL_A_STAR && coordinates == null) {
+            throw new IllegalStateException("雙向 A* 需要頂點座標");
+        }
+        SearchMetrics.Recorder recorder = SearchMetrics.start(algorithm.label);
+        Engines e = engines.get();
+        try {
+            return search(e, algorithm, recorder, start, end, monitor);
+        } finally {
+            if (monitor != null) e.setMonitor(null);
+        }
+    }
+
+    private PathResult search(Engines e, Algorithm algorithm, SearchMetrics.Recorder recorder, int start, int end,
+                              SearchMonitor monitor) {
+        long startTime = System.nanoTime();
+        int[] path;
+        SearchCounters counters;
+        double cost;
+        // 階段: setup (取得或建立引擎)、search、path (重建路徑或計算路徑成本)
+        switch (algorithm) {
+            case DFS:
+            case BFS: {
+                if (e.graphSearch == null) e.graphSearch = new GraphSearch(forward);
+                e.graphSearch.setMonitor(monitor);
+                if (recorder != null) recorder.phase("setup");
+                path = algorithm == Algorithm.DFS ? e.graphSearch.dfs(start, end) : e.graphSearch.bfs(start, end);
+                if (recorder != null) recorder.phase("search");
+                cost = pathCost(forward, path);
+                if (recorder != null) recorder.phase("path");
+                counters = e.graphSearch;
+                break;
+            }
+            case BIDIRECTIONAL_BFS: {
+                if (e.biBfs == null) e.biBfs = new BidirectionalBfs(forward, backward);
+                e.biBfs.setMonitor(monitor);
+                if (recorder != null) recorder.phase("setup");
+                path = e.biBfs.search(start, end);
+                if (recorder != null) recorder.phase("search");
+                cost = pathCost(forward, path);
+                if (recorder != null) recorder.phase("path");
+                counters = e.biBfs;
+                break;
+            }
+            case DIJKSTRA: {
+                if (e.dijkstra == null) e.dijkstra = new DijkstraSearch(forward);
+                DijkstraSearch search = e.dijkstra;
+                search.setMonitor(monitor);
+                if (recorder != null) recorder.phase("setup");
+                boolean found = search.search(start, end);
+                if (recorder != null) recorder.phase("search");
+                path = found ? search.path(end) : new int[0];
+                if (recorder != null) recorder.phase("path");
+                cost = search.distance(end);
+                counters = search;
+                break;
+            }
+            default: {
+                BidirectionalDijkstra search;
+                if (algorithm == Algorithm.BIDIRECTIONAL_DIJKSTRA) {
+                    if (e.bidirectional == null) e.bidirectional = new BidirectionalDijkstra(forward, backward, null);
+                    search = e.bidirectional;
+                } else {
+                    if (e.bidirectionalAStar == null) {
+                        e.bidirectionalAStar = new BidirectionalDijkstra(forward, backward, coordinates);
+                    }
+                    search = e.bidirectionalAStar;
+                }
+                search.setMonitor(monitor);
+                if (recorder != null) recorder.phase("setup");
+                path = search.search(start, end);
+                if (recorder != null) recorder.phase("search");
+                cost = search.distance();
+                counters = search;
+                break;
+            }
+        }
+        long nanos = System.nanoTime() - startTime;
+        int expanded = counters.expandedCount();
+        SearchMetrics metrics = recorder == null ? null : recorder.finish(path, cost, expanded, counters);
+        return new PathResult(algorithm.label, path, cost, expanded, nanos, metrics);
+    }
+
+    // 以呼叫端持有的引擎查詢 (例如 ChQuery、AltSearch)；引擎非執行緒安全，不可由多個執行緒同時使用
+    // 引擎實作 SearchCounters 時指標包含其計數，否則只有展開數與時間
+    public static PathResult solve(String name, PathEngine engine, int start, int end) {
+        SearchMetrics.Recorder recorder = SearchMetrics.start(name);
+        long startTime = System.nanoTime();
+        int[] path = engine.search(start, end);
+        long nanos = System.nanoTime() - startTime;
+        if (recorder == null) return new PathResult(name, path, engine.distance(), engine.expandedCount(), nanos);
+        recorder.phase("search");
+        SearchCounters counters = engine instanceof SearchCounters ? (SearchCounters) engine : null;
+        SearchMetrics metrics = recorder.finish(path, engine.distance(), engine.expandedCount(), counters);
+        return new PathResult(name, path, engine.distance(), engine.expandedCount(), nanos, metrics);
+    }
+
+    // 沿路徑累加權重，相鄰頂點間有重邊時取最小的；無權重的圖即為邊數
+    static double pathCost(IntGraph graph, int[] path) {
+        double cost = 0.0;
+        for (int i = 1; i < path.length; i++) {
+            int v = path[i - 1], w = path[i];
+            float best = Float.POSITIVE_INFINITY;
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                if (graph.target(e) == w && graph.weight(e) < best) best = graph.weight(e);
+            }
+            cost += best;
+        }
+        return cost;
+    }
+}
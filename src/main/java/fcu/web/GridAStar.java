@@ -0,0 +1,137 @@
+package fcu.web;
+
+import java.util.Arrays;
+
+// 4 連通方格迷宮的 A* 搜索，格子以 x * size + y 編碼為 int
+// g 值、父節點與開放集合皆為原始陣列，於多次呼叫之間重複使用，預熱後每次展開不配置任何物件
+// 非執行緒安全：每個執行緒應使用自己的實例
+public final class GridAStar implements SearchCounters {
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DY = {0, 0, 1, -1};
+
+    private IndexedMinHeap open = new IndexedMinHeap(0);
+    private int[] g = new int[0];
+    private int[] parent = new int[0];
+    // seen[c] == generation 表示 g[c] 有效，closed[c] == generation 表示已展開
+    private int[] seen = new int[0];
+    private int[] closed = new int[0];
+    private int generation;
+    private int size;
+    private int goal = -1;
+    private int expanded;
+    private long relaxed;
+    private SearchMonitor monitor;
+
+    // 在迷宮牆壁上搜索；找到時可用 path() 取得路徑
+    public boolean search(MazeView walls, int startX, int startY, int endX, int endY) {
+        int size = walls.size();
+        prepare(size);
+        int cells = size * size;
+        // 以 f 為主鍵、h 為次鍵，f 相同時優先展開較接近終點的格子
+        double scale = 2.0 * cells + 1;
+        int start = startX * size + startY;
+        int end = endX * size + endY;
+        goal = -1;
+        expanded = 0;
+        relaxed = 0;
+        open.resetCounters();
+
+        seen[start] = generation;
+        g[start] = 0;
+        parent[start] = -1;
+        int h0 = Math.abs(startX - endX) + Math.abs(startY - endY);
+        open.insert(start, h0 * scale + h0);
+
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            if (current == end) {
+                goal = current;
+                return true;
+            }
+            closed[current] = generation;
+            expanded++;
+            if (monitor != null && (expanded & SearchMonitor.CHECK_MASK) == 0 && monitor.checkpoint()) {
+                monitor.publish(open, expanded);
+            }
+
+            int x = current / size, y = current - x * size;
+            int nextG = g[current] + 1;
+            for (int d = 0; d < 4; d++) {
+                int nx = x + DX[d], ny = y + DY[d];
+                if (nx < 0 || nx >= size || ny < 0 || ny >= size || walls.get(nx, ny)) continue;
+                relaxed++;
+                int neighbor = nx * size + ny;
+                if (closed[neighbor] == generation) continue;
+                if (seen[neighbor] == generation && nextG >= g[neighbor]) continue;
+                seen[neighbor] = generation;
+                g[neighbor] = nextG;
+                parent[neighbor] = current;
+                int h = Math.abs(nx - endX) + Math.abs(ny - endY);
+                open.insertOrDecrease(neighbor, (nextG + h) * scale + h);
+            }
+        }
+        return false;
+    }
+
+    private void prepare(int size) {
+        int cells = size * size;
+        if (cells > g.length) {
+            open = new IndexedMinHeap(cells);
+            g = new int[cells];
+            parent = new int[cells];
+            seen = new int[cells];
+            closed = new int[cells];
+            generation = 0;
+        } else {
+            open.clear();
+        }
+        this.size = size;
+        if (++generation == 0) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(closed, 0);
+            generation = 1;
+        }
+    }
+
+    // 設定之後搜索使用的 SearchMonitor (取消、逾時與進度快照)，null 表示不監看
+    public void setMonitor(SearchMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    // 最近一次搜索展開的格子數
+    @Override
+    public int expandedCount() {
+        return expanded;
+    }
+
+    @Override
+    public long relaxedCount() {
+        return relaxed;
+    }
+
+    @Override
+    public int peakOpenSize() {
+        return open.peakSize();
+    }
+
+    @Override
+    public long heapOperations() {
+        return open.operationCount();
+    }
+
+    // 最近一次成功搜索的路徑 (由起點到終點的格子編碼)，失敗時為空陣列
+    public int[] path() {
+        if (goal < 0) return new int[0];
+        int length = 0;
+        for (int at = goal; at != -1; at = parent[at]) length++;
+        int[] path = new int[length];
+        for (int at = goal, i = length - 1; at != -1; at = parent[at]) {
+            path[i--] = at;
+        }
+        return path;
+    }
+
+    public int size() {
+        return size;
+    }
+}
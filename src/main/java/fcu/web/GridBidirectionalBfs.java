@@ -0,0 +1,131 @@
+package fcu.web;
+
+import java.util.Arrays;
+
+// 4 連通方格迷宮的雙向 BFS，格子以 x * size + y 編碼
+// 非執行緒安全，暫存陣列在多次查詢之間重複使用
+public final class GridBidirectionalBfs implements SearchCounters {
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DY = {0, 0, 1, -1};
+
+    private int[] dist = new int[0], parent = new int[0], stamp = new int[0], queue = new int[0];
+    private int generation;
+    private int expanded, peak;
+    private long relaxed;
+    private SearchMonitor monitor;
+
+    // 回傳由起點到終點的最短路徑 (格子編碼)，不可達時回傳空陣列
+    public int[] search(MazeView walls, int startX, int startY, int endX, int endY) {
+        int size = walls.size();
+        prepare(size * size);
+        expanded = 0;
+        relaxed = 0;
+        peak = 0;
+        int start = startX * size + startY, end = endX * size + endY;
+        if (start == end) return new int[]{start};
+
+        // 兩側共用陣列，stamp 為 2 * generation 表示起點側，2 * generation + 1 表示終點側
+        int sideF = 2 * generation, sideB = sideF + 1;
+        stamp[start] = sideF;
+        dist[start] = 0;
+        parent[start] = -1;
+        stamp[end] = sideB;
+        dist[end] = 0;
+        parent[end] = -1;
+        // 起點側的隊列由前往後填，終點側由後往前填
+        int headF = 0, tailF = 0, headB = queue.length - 1, tailB = queue.length - 1;
+        queue[tailF++] = start;
+        queue[tailB--] = end;
+
+        while (headF < tailF && headB > tailB) {
+            peak = Math.max(peak, tailF - headF + headB - tailB);
+            boolean fromStart = tailF - headF <= headB - tailB;
+            int side = fromStart ? sideF : sideB, other = fromStart ? sideB : sideF;
+            int best = Integer.MAX_VALUE, meetNear = -1, meetFar = -1;
+            int levelEnd = fromStart ? tailF : tailB;
+            while (fromStart ? headF < levelEnd : headB > levelEnd) {
+                int v = fromStart ? queue[headF++] : queue[headB--];
+                expanded++;
+                if (monitor != null && (expanded & SearchMonitor.CHECK_MASK) == 0 && monitor.checkpoint()) {
+                    monitor.publish(queue, headF, tailF, queue, tailB + 1, headB + 1, expanded);
+                }
+                int x = v / size, y = v - x * size;
+                for (int d = 0; d < 4; d++) {
+                    int nx = x + DX[d], ny = y + DY[d];
+                    if (nx < 0 || nx >= size || ny < 0 || ny >= size || walls.get(nx, ny)) continue;
+                    relaxed++;
+                    int w = nx * size + ny;
+                    if (stamp[w] == other && dist[v] + 1 + dist[w] < best) {
+                        best = dist[v] + 1 + dist[w];
+                        meetNear = v;
+                        meetFar = w;
+                    } else if (stamp[w] != side && stamp[w] != other) {
+                        stamp[w] = side;
+                        dist[w] = dist[v] + 1;
+                        parent[w] = v;
+                        if (fromStart) queue[tailF++] = w;
+                        else queue[tailB--] = w;
+                    }
+                }
+            }
+            if (meetNear >= 0) {
+                return fromStart ? join(meetNear, meetFar) : join(meetFar, meetNear);
+            }
+        }
+        return new int[0];
+    }
+
+    private void prepare(int cells) {
+        if (cells > stamp.length) {
+            dist = new int[cells];
+            parent = new int[cells];
+            stamp = new int[cells];
+            queue = new int[cells];
+            generation = 0;
+        }
+        if (++generation >= Integer.MAX_VALUE / 2) {
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+    }
+
+    // a 在起點樹、b 在終點樹，a 與 b 相鄰
+    private int[] join(int a, int b) {
+        int left = 0, right = 0;
+        for (int at = a; at != -1; at = parent[at]) left++;
+        for (int at = b; at != -1; at = parent[at]) right++;
+        int[] path = new int[left + right];
+        int i = left - 1;
+        for (int at = a; at != -1; at = parent[at]) path[i--] = at;
+        i = left;
+        for (int at = b; at != -1; at = parent[at]) path[i++] = at;
+        return path;
+    }
+
+    // 設定之後搜索使用的 SearchMonitor (取消、逾時與進度快照)，null 表示不監看
+    public void setMonitor(SearchMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    // 最近一次搜索展開的格子數
+    @Override
+    public int expandedCount() {
+        return expanded;
+    }
+
+    @Override
+    public long relaxedCount() {
+        return relaxed;
+    }
+
+    // 每層開始時兩側隊列的總大小的最大值
+    @Override
+    public int peakOpenSize() {
+        return peak;
+    }
+
+    @Override
+    public long heapOperations() {
+        return 0;
+    }
+}
@@ -0,0 +1,337 @@
+package fcu.web;
+
+import java.util.Arrays;
+
+// 4 連通方格的跳點搜索 (JPS)，格子以 x * size + y 編碼
+// 對稱路徑的正規順序為「先沿 y 方向 (水平) 再沿 x 方向 (垂直)」：
+//   水平移動時每一格都可自然轉向垂直，因此水平跳躍在每一格向上下做垂直跳躍，任一方找到跳點即停下
+//   垂直移動只在「旁邊可走而前一格的旁邊是牆」時產生強制鄰居
+// 可搭配 JumpTable (JPS+) 預先計算每格四個方向的跳躍距離，查詢時不必逐格掃描
+// 非執行緒安全，暫存陣列在多次查詢之間重複使用
+public final class GridJps implements SearchCounters {
+    // 方向編號：0 下 (x+1), 1 上 (x-1), 2 右 (y+1), 3 左 (y-1)
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DY = {0, 0, 1, -1};
+    private static final int NONE = -1;
+
+    private IndexedMinHeap open = new IndexedMinHeap(0);
+    private int[] g = new int[0], parent = new int[0], arrival = new int[0];
+    private int[] seen = new int[0], closed = new int[0];
+    private int generation;
+    private int expanded;
+    private long relaxed;
+    private SearchMonitor monitor;
+    private int goal = -1;
+    private int size;
+    private MazeView walls;
+    private JumpTable table;
+    private int endX, endY;
+
+    // 不使用預先計算的 JPS
+    public boolean search(MazeView walls, int startX, int startY, int endX, int endY) {
+        return search(walls, null, startX, startY, endX, endY);
+    }
+
+    // table 不為 null 時使用 JPS+ 的跳躍距離表，表必須是由同一個迷宮計算而來
+    public boolean search(MazeView walls, JumpTable table, int startX, int startY, int endX, int endY) {
+        if (table != null && table.size != walls.size()) {
+            throw new IllegalArgumentException("跳躍距離表與迷宮大小不符");
+        }
+        this.walls = walls;
+        this.table = table;
+        this.endX = endX;
+        this.endY = endY;
+        size = walls.size();
+        prepare(size * size);
+        double scale = 2.0 * size * size + 1;
+        int start = startX * size + startY;
+        int end = endX * size + endY;
+        expanded = 0;
+        relaxed = 0;
+        open.resetCounters();
+        goal = -1;
+
+        seen[start] = generation;
+        g[start] = 0;
+        parent[start] = -1;
+        arrival[start] = NONE;
+        int h0 = Math.abs(startX - endX) + Math.abs(startY - endY);
+        open.insert(start, h0 * scale + h0);
+
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            if (current == end) {
+                goal = current;
+                return true;
+            }
+            closed[current] = generation;
+            expanded++;
+            if (monitor != null && (expanded & SearchMonitor.CHECK_MASK) == 0 && monitor.checkpoint()) {
+                monitor.publish(open, expanded);
+            }
+            int x = current / size, y = current - x * size;
+            int dir = arrival[current];
+            for (int d = 0; d < 4; d++) {
+                if (!isSuccessorDirection(x, y, dir, d)) continue;
+                int jump = table == null ? jump(x, y, d) : jumpWithTable(x, y, d);
+                if (jump < 0) continue;
+                relaxed++;
+                if (closed[jump] == generation) continue;
+                int jx = jump / size, jy = jump - jx * size;
+                int nextG = g[current] + Math.abs(jx - x) + Math.abs(jy - y);
+                if (seen[jump] == generation && nextG >= g[jump]) continue;
+                seen[jump] = generation;
+                g[jump] = nextG;
+                parent[jump] = current;
+                arrival[jump] = d;
+                int h = Math.abs(jx - endX) + Math.abs(jy - endY);
+                open.insertOrDecrease(jump, (nextG + h) * scale + h);
+            }
+        }
+        return false;
+    }
+
+    // 依抵達方向決定要展開的方向 (剪除對稱路徑)
+    private boolean isSuccessorDirection(int x, int y, int arrivedBy, int d) {
+        if (arrivedBy == NONE) return true;
+        if (d == (arrivedBy ^ 1)) return false;
+        if (arrivedBy >= 2) {
+            // 水平抵達：繼續水平或轉為垂直都是自然鄰居
+            return true;
+        }
+        if (d == arrivedBy) return true;
+        // 垂直抵達：只有強制鄰居才能轉為水平
+        int px = x - DX[arrivedBy];
+        return open(x, y + DY[d]) && !open(px, y + DY[d]);
+    }
+
+    private boolean open(int x, int y) {
+        return x >= 0 && x < size && y >= 0 && y < size && !walls.get(x, y);
+    }
+
+    // 從 (x, y) 往方向 d 跳躍，回傳跳點編碼或 -1
+    private int jump(int x, int y, int d) {
+        return d < 2 ? jumpVertical(x, y, DX[d]) : jumpHorizontal(x, y, DY[d]);
+    }
+
+    private int jumpVertical(int x, int y, int dx) {
+        while (true) {
+            x += dx;
+            if (!open(x, y)) return -1;
+            if (x == endX && y == endY) return x * size + y;
+            if ((open(x, y + 1) && !open(x - dx, y + 1)) || (open(x, y - 1) && !open(x - dx, y - 1))) {
+                return x * size + y;
+            }
+        }
+    }
+
+    private int jumpHorizontal(int x, int y, int dy) {
+        while (true) {
+            y += dy;
+            if (!open(x, y)) return -1;
+            if (x == endX && y == endY) return x * size + y;
+            if (jumpVertical(x, y, 1) >= 0 || jumpVertical(x, y, -1) >= 0) {
+                return x * size + y;
+            }
+        }
+    }
+
+    // JPS+：以預先計算的距離跳躍，只需額外檢查終點是否落在跳躍範圍內
+    private int jumpWithTable(int x, int y, int d) {
+        int cell = x * size + y;
+        int distance = table.distance(cell, d);
+        int reach = distance > 0 ? distance : -distance;
+        if (d < 2) {
+            int dx = DX[d];
+            if (y == endY && (endX - x) * dx > 0 && (endX - x) * dx <= reach) {
+                return endX * size + endY;
+            }
+            return distance > 0 ? (x + dx * distance) * size + y : -1;
+        }
+        int dy = DY[d];
+        int steps = (endY - y) * dy;
+        if (steps > 0 && steps <= reach && (distance <= 0 || steps < distance)) {
+            // 終點所在的欄：該格向終點方向垂直可直達終點時，在此停下
+            int vd = endX > x ? 0 : 1;
+            int column = x * size + endY;
+            if (endX == x) return column;
+            int vertical = table.distance(column, vd);
+            if (Math.abs(endX - x) <= (vertical > 0 ? vertical : -vertical)) {
+                return column;
+            }
+        }
+        return distance > 0 ? x * size + (y + dy * distance) : -1;
+    }
+
+    private void prepare(int cells) {
+        if (cells > g.length) {
+            open = new IndexedMinHeap(cells);
+            g = new int[cells];
+            parent = new int[cells];
+            arrival = new int[cells];
+            seen = new int[cells];
+            closed = new int[cells];
+            generation = 0;
+        } else {
+            open.clear();
+        }
+        if (++generation == 0) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(closed, 0);
+            generation = 1;
+        }
+    }
+
+    // 設定之後搜索使用的 SearchMonitor (取消、逾時與進度快照)，null 表示不監看
+    public void setMonitor(SearchMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    // 最近一次搜索展開的跳點數
+    @Override
+    public int expandedCount() {
+        return expanded;
+    }
+
+    @Override
+    public long relaxedCount() {
+        return relaxed;
+    }
+
+    @Override
+    public int peakOpenSize() {
+        return open.peakSize();
+    }
+
+    @Override
+    public long heapOperations() {
+        return open.operationCount();
+    }
+
+    // 最近一次成功搜索的完整路徑 (包含跳點之間的每一格)，失敗時為空陣列
+    public int[] path() {
+        if (goal < 0) return new int[0];
+        int length = 1;
+        for (int at = goal; parent[at] != -1; at = parent[at]) {
+            int p = parent[at];
+            length += Math.abs(at / size - p / size) + Math.abs(at % size - p % size);
+        }
+        int[] path = new int[length];
+        int i = length - 1;
+        path[i] = goal;
+        for (int at = goal; parent[at] != -1; at = parent[at]) {
+            int p = parent[at];
+            int step = Integer.signum(at / size - p / size) * size + Integer.signum(at % size - p % size);
+            for (int c = at - step; c != p; c -= step) {
+                path[--i] = c;
+            }
+            path[--i] = p;
+        }
+        return path;
+    }
+
+    // JPS+ 預先計算的跳躍距離表，與迷宮一起快取
+    // 正值 k 表示往該方向 k 步後為跳點；0 或負值 -k 表示可走 k 步後撞牆，途中沒有跳點
+    public static final class JumpTable {
+        // 每格 4 個 int 存在一個陣列中，陣列長度不能超過 int 範圍
+        public static final int MAX_SIZE = 23170;
+
+        private final int size;
+        private final int[] distances;
+
+        private JumpTable(int size, int[] distances) {
+            this.size = size;
+            this.distances = distances;
+        }
+
+        int distance(int cell, int d) {
+            return distances[cell * 4 + d];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long memoryBytes() {
+            return 16L + 4L * distances.length;
+        }
+
+        // 計算 size x size 迷宮的表需要的記憶體 (每格 16 位元組)，供呼叫端在計算前檢查
+        public static long memoryBytes(int size) {
+            return 16L + 16L * size * size;
+        }
+
+        // 以動態規劃從每個方向的遠端往回計算，O(格子數)
+        public static JumpTable compute(MazeView walls) {
+            return compute(walls, null);
+        }
+
+        // 可取消的版本：每處理一列呼叫 monitor.checkpoint()，取消或逾時時拋出 CancellationException
+        // 迷宮大於 MAX_SIZE 時拋出 IllegalArgumentException
+        public static JumpTable compute(MazeView walls, SearchMonitor monitor) {
+            int size = walls.size();
+            if (size > MAX_SIZE) {
+                throw new IllegalArgumentException("迷宮太大，無法建立跳躍距離表: " + size + " > " + MAX_SIZE);
+            }
+            int[] t = new int[size * size * 4];
+            // 垂直方向：先算向下 (d = 0) 再算向上 (d = 1)
+            for (int d = 0; d < 2; d++) {
+                int dx = DX[d];
+                for (int i = 0; i < size; i++) {
+                    if (monitor != null) monitor.checkpoint();
+                    int x = dx > 0 ? size - 1 - i : i;
+                    for (int y = 0; y < size; y++) {
+                        if (walls.get(x, y)) continue;
+                        int nx = x + dx;
+                        int value;
+                        if (nx < 0 || nx >= size || walls.get(nx, y)) {
+                            value = 0;
+                        } else if (forcedVertical(walls, size, nx, y, dx)) {
+                            value = 1;
+                        } else {
+                            int next = t[(nx * size + y) * 4 + d];
+                            value = next > 0 ? next + 1 : next - 1;
+                        }
+                        t[(x * size + y) * 4 + d] = value;
+                    }
+                }
+            }
+            // 水平方向：某格向上或向下有跳點時，該格即為水平跳點
+            for (int d = 2; d < 4; d++) {
+                int dy = DY[d];
+                for (int x = 0; x < size; x++) {
+                    if (monitor != null) monitor.checkpoint();
+                    for (int i = 0; i < size; i++) {
+                        int y = dy > 0 ? size - 1 - i : i;
+                        if (walls.get(x, y)) continue;
+                        int ny = y + dy;
+                        int value;
+                        if (ny < 0 || ny >= size || walls.get(x, ny)) {
+                            value = 0;
+                        } else {
+                            int base = (x * size + ny) * 4;
+                            if (t[base] > 0 || t[base + 1] > 0) {
+                                value = 1;
+                            } else {
+                                int next = t[base + d];
+                                value = next > 0 ? next + 1 : next - 1;
+                            }
+                        }
+                        t[(x * size + y) * 4 + d] = value;
+                    }
+                }
+            }
+            return new JumpTable(size, t);
+        }
+
+        private static boolean forcedVertical(MazeView walls, int size, int x, int y, int dx) {
+            int px = x - dx;
+            for (int s = -1; s <= 1; s += 2) {
+                int ny = y + s;
+                if (ny < 0 || ny >= size) continue;
+                if (!walls.get(x, ny) && walls.get(px, ny)) return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package fcu.web;
+
+import java.util.Arrays;
+
+// 4 連通方格迷宮的 Lifelong Planning A* (起點固定的 D* Lite)，格子以 x * size + y 編碼為 int
+// 每格保存 g (目前的距離) 與 rhs (由鄰居一步推得的距離)，兩者不相等的格子放在開放集合中；
+// 牆壁變動後只更新該格與四個鄰居的 rhs，再繼續展開，之前算好的 g 值都保留下來
+// 鍵值為 (min(g, rhs) + h, min(g, rhs)) 的字典序，與 GridAStar 一樣編碼成一個 double
+// 非執行緒安全：每個執行緒應使用自己的實例
+public final class GridLpaStar implements SearchCounters {
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DY = {0, 0, 1, -1};
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+    private MazeView walls;
+    private IndexedMinHeap open = new IndexedMinHeap(0);
+    private int[] g = new int[0];
+    private int[] rhs = new int[0];
+    private int size;
+    private int start, goal, goalX, goalY;
+    private double scale;
+    private int expanded;
+    private long relaxed;
+    private SearchMonitor monitor;
+
+    // 在迷宮上從頭搜索，之後牆壁變動時呼叫 cellChanged 修補
+    public boolean search(MazeView walls, int startX, int startY, int endX, int endY) {
+        this.walls = walls;
+        size = walls.size();
+        int cells = size * size;
+        if (cells > g.length) {
+            open = new IndexedMinHeap(cells);
+            g = new int[cells];
+            rhs = new int[cells];
+        } else {
+            open.clear();
+        }
+        Arrays.fill(g, 0, cells, INFINITY);
+        Arrays.fill(rhs, 0, cells, INFINITY);
+        scale = 2.0 * cells + 1;
+        start = startX * size + startY;
+        goal = endX * size + endY;
+        goalX = endX;
+        goalY = endY;
+        expanded = 0;
+        relaxed = 0;
+        open.resetCounters();
+        rhs[start] = 0;
+        open.insert(start, key(start));
+        return computePath();
+    }
+
+    // (x, y) 的牆壁已被切換，修補路徑並回傳終點是否仍可達
+    public boolean cellChanged(int x, int y) {
+        if (walls == null) throw new IllegalStateException("尚未呼叫 search");
+        expanded = 0;
+        relaxed = 0;
+        open.resetCounters();
+        int cell = x * size + y;
+        updateCell(cell);
+        for (int d = 0; d < 4; d++) {
+            int nx = x + DX[d], ny = y + DY[d];
+            if (nx >= 0 && nx < size && ny >= 0 && ny < size) updateCell(nx * size + ny);
+        }
+        return computePath();
+    }
+
+    private boolean computePath() {
+        while (!open.isEmpty() && (open.peekKey() < key(goal) || rhs[goal] != g[goal])) {
+            int cell = open.poll();
+            expanded++;
+            if (monitor != null && (expanded & SearchMonitor.CHECK_MASK) == 0 && monitor.checkpoint()) {
+                monitor.publish(open, expanded);
+            }
+            int x = cell / size, y = cell - x * size;
+            if (g[cell] > rhs[cell]) {
+                // 過度一致: 距離變短，確定下來並通知鄰居
+                g[cell] = rhs[cell];
+            } else {
+                // 不足一致: 距離變長，先視為不可達再重新估計
+                g[cell] = INFINITY;
+                updateCell(cell);
+            }
+            for (int d = 0; d < 4; d++) {
+                int nx = x + DX[d], ny = y + DY[d];
+                if (nx >= 0 && nx < size && ny >= 0 && ny < size) updateCell(nx * size + ny);
+            }
+        }
+        return g[goal] < INFINITY;
+    }
+
+    // 重新計算 rhs，並依是否一致放入或移出開放集合
+    private void updateCell(int cell) {
+        int x = cell / size, y = cell - x * size;
+        if (cell != start) {
+            int best = INFINITY;
+            if (!walls.get(x, y)) {
+                for (int d = 0; d < 4; d++) {
+                    int nx = x + DX[d], ny = y + DY[d];
+                    if (nx < 0 || nx >= size || ny < 0 || ny >= size || walls.get(nx, ny)) continue;
+                    relaxed++;
+                    best = Math.min(best, g[nx * size + ny] + 1);
+                }
+            }
+            rhs[cell] = Math.min(best, INFINITY);
+        }
+        open.remove(cell);
+        if (g[cell] != rhs[cell]) open.insert(cell, key(cell));
+    }
+
+    private double key(int cell) {
+        int x = cell / size, y = cell - x * size;
+        int k2 = Math.min(g[cell], rhs[cell]);
+        if (k2 >= INFINITY) return Double.POSITIVE_INFINITY;
+        int h = Math.abs(x - goalX) + Math.abs(y - goalY);
+        return (k2 + h) * scale + k2;
+    }
+
+    // 由終點每次走向 g 最小的鄰居回到起點，回傳起點到終點的格子編號；不可達時回傳空陣列
+    public int[] path() {
+        if (g[goal] >= INFINITY) return new int[0];
+        int[] path = new int[g[goal] + 1];
+        int length = 0;
+        for (int cell = goal; ; ) {
+            if (length == path.length) path = Arrays.copyOf(path, 2 * length);
+            path[length++] = cell;
+            if (cell == start) break;
+            if (length > size * size) throw new IllegalStateException("LPA* 的 g 值不一致");
+            int x = cell / size, y = cell - x * size;
+            int best = -1;
+            for (int d = 0; d < 4; d++) {
+                int nx = x + DX[d], ny = y + DY[d];
+                if (nx < 0 || nx >= size || ny < 0 || ny >= size || walls.get(nx, ny)) continue;
+                int neighbor = nx * size + ny;
+                if (best < 0 || g[neighbor] < g[best]) best = neighbor;
+            }
+            cell = best;
+        }
+        int[] result = new int[length];
+        for (int i = 0; i < length; i++) result[i] = path[length - 1 - i];
+        return result;
+    }
+
+    // 設定之後搜索使用的 SearchMonitor (取消、逾時與進度快照)，null 表示不監看
+    public void setMonitor(SearchMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    // 最近一次 search 或 cellChanged 展開的格子數
+    @Override
+    public int expandedCount() {
+        return expanded;
+    }
+
+    @Override
+    public long relaxedCount() {
+        return relaxed;
+    }
+
+    @Override
+    public int peakOpenSize() {
+        return open.peakSize();
+    }
+
+    @Override
+    public long heapOperations() {
+        return open.operationCount();
+    }
+}
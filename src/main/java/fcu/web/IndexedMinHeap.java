@@ -0,0 +1,193 @@
+package fcu.web;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+// 以 int 編號為元素、double 為鍵值的索引式 4 叉最小堆，支援 decrease-key
+// 所有陣列預先配置，操作過程不產生物件
+public final class IndexedMinHeap {
+    private static final int ARITY = 4;
+
+    // heap[i] 為堆中第 i 個元素的編號
+    private int[] heap;
+    // keys[i] 為 heap[i] 的鍵值，與 heap 同步移動以提高快取命中
+    private double[] keys;
+    // position[id] 為元素在堆中的位置，不在堆中時為 -1
+    private int[] position;
+    private int size;
+    // 插入、降鍵、取出與移除的次數及最大大小，供搜索指標使用；只是欄位遞增，成本可忽略
+    private long operations;
+    private int peak;
+
+    public IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        keys = new double[capacity];
+        position = new int[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    // 擴充可容納的編號範圍
+    public void ensureCapacity(int capacity) {
+        if (capacity <= position.length) return;
+        int old = position.length;
+        heap = Arrays.copyOf(heap, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+        position = Arrays.copyOf(position, capacity);
+        Arrays.fill(position, old, capacity, -1);
+    }
+
+    public int capacity() {
+        return position.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // 堆中前 limit 個元素的編號 (依堆的排列，不依鍵值排序)，供進度快照使用
+    public int[] elements(int limit) {
+        return Arrays.copyOf(heap, Math.min(size, limit));
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int id) {
+        return position[id] >= 0;
+    }
+
+    public double key(int id) {
+        return keys[position[id]];
+    }
+
+    public double peekKey() {
+        if (size == 0) throw new NoSuchElementException();
+        return keys[0];
+    }
+
+    public int peek() {
+        if (size == 0) throw new NoSuchElementException();
+        return heap[0];
+    }
+
+    public void insert(int id, double key) {
+        if (position[id] >= 0) throw new IllegalStateException("元素已在堆中: " + id);
+        siftUp(size++, id, key);
+        operations++;
+        if (size > peak) peak = size;
+    }
+
+    public void decreaseKey(int id, double key) {
+        int i = position[id];
+        if (i < 0) throw new IllegalStateException("元素不在堆中: " + id);
+        if (key > keys[i]) throw new IllegalArgumentException("新鍵值大於原鍵值");
+        siftUp(i, id, key);
+        operations++;
+    }
+
+    // 不在堆中則插入，鍵值較小則更新；回傳是否有變更
+    public boolean insertOrDecrease(int id, double key) {
+        int i = position[id];
+        if (i < 0) {
+            siftUp(size++, id, key);
+            operations++;
+            if (size > peak) peak = size;
+            return true;
+        }
+        if (key < keys[i]) {
+            siftUp(i, id, key);
+            operations++;
+            return true;
+        }
+        return false;
+    }
+
+    // 取出鍵值最小的元素編號
+    public int poll() {
+        if (size == 0) throw new NoSuchElementException();
+        int min = heap[0];
+        position[min] = -1;
+        size--;
+        operations++;
+        if (size > 0) {
+            siftDown(0, heap[size], keys[size]);
+        }
+        return min;
+    }
+
+    // 將元素移出堆，回傳它原本是否在堆中
+    public boolean remove(int id) {
+        int i = position[id];
+        if (i < 0) return false;
+        position[id] = -1;
+        size--;
+        operations++;
+        if (i < size) {
+            int lastId = heap[size];
+            double lastKey = keys[size];
+            if (lastKey < keys[i]) {
+                siftUp(i, lastId, lastKey);
+            } else {
+                siftDown(i, lastId, lastKey);
+            }
+        }
+        return true;
+    }
+
+    // 只重置堆中剩餘的元素，成本與剩餘數量成正比
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    // 將操作次數與最大大小歸零 (最大大小從目前大小重新計算)
+    public void resetCounters() {
+        operations = 0;
+        peak = size;
+    }
+
+    public long operationCount() {
+        return operations;
+    }
+
+    public int peakSize() {
+        return peak;
+    }
+
+    private void siftUp(int i, int id, double key) {
+        while (i > 0) {
+            int parent = (i - 1) / ARITY;
+            if (keys[parent] <= key) break;
+            heap[i] = heap[parent];
+            keys[i] = keys[parent];
+            position[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = id;
+        keys[i] = key;
+        position[id] = i;
+    }
+
+    private void siftDown(int i, int id, double key) {
+        while (true) {
+            int first = i * ARITY + 1;
+            if (first >= size) break;
+            int best = first;
+            int last = Math.min(first + ARITY, size);
+            for (int c = first + 1; c < last; c++) {
+                if (keys[c] < keys[best]) best = c;
+            }
+            if (keys[best] >= key) break;
+            heap[i] = heap[best];
+            keys[i] = keys[best];
+            position[heap[i]] = i;
+            i = best;
+        }
+        heap[i] = id;
+        keys[i] = key;
+        position[id] = i;
+    }
+}
@@ -0,0 +1,24 @@
+package fcu.web;
+
+// 以連續邊編號存取鄰接關係的唯讀圖介面，CSR 陣列與記憶體映射檔案皆可實作
+public interface IntGraph {
+    int vertexCount();
+
+    // 有向邊 (弧) 的數量
+    int edgeCount();
+
+    boolean hasWeights();
+
+    // 頂點 v 的出邊為 [firstEdge(v), endEdge(v))；各頂點的區段之間可以有空隙 (例如 DynamicGraph)
+    int firstEdge(int v);
+
+    int endEdge(int v);
+
+    int target(int e);
+
+    float weight(int e);
+
+    default int degree(int v) {
+        return endEdge(v) - firstEdge(v);
+    }
+}
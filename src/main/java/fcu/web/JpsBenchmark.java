@@ -0,0 +1,147 @@
+package fcu.web;
+
+import java.util.Arrays;
+
+// 跳點搜索與 A* 的比較：先以 BFS 的最短路徑長度驗證 JPS 與 JPS+，再比較查詢時間與展開數
+// 開放地圖 (少量隨機障礙) 與走廊迷宮 (回溯法生成) 各測一次
+// 用法: JpsBenchmark [迷宮大小] [查詢數] [種子]
+public final class JpsBenchmark {
+    // 開放地圖中每格為障礙的機率
+    private static final double OBSTACLE_RATE = 0.2;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DY = {0, 0, 1, -1};
+
+    private JpsBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1001;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+
+        BitGrid open = new BitGrid(size);
+        FastRandom random = new FastRandom(seed);
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                if (random.nextDouble() < OBSTACLE_RATE) open.set(x, y);
+            }
+        }
+        run("開放地圖", open, queries, new FastRandom(seed + 1));
+
+        BitGrid corridors = new BitGrid(size);
+        corridors.setAll();
+        MazeGenerator.of("Backtracker").generate(corridors, 0, 0, new FastRandom(seed));
+        run("走廊迷宮", corridors, queries, new FastRandom(seed + 1));
+    }
+
+    private static void run(String name, BitGrid walls, int queries, FastRandom random) {
+        int size = walls.size();
+        int[] starts = new int[queries], ends = new int[queries], lengths = new int[queries];
+        int[] distance = new int[size * size];
+        int[] queue = new int[size * size];
+        // 只保留有路徑的起訖點，並記錄 BFS 的最短距離
+        for (int q = 0; q < queries; ) {
+            int s = randomOpenCell(walls, random), t = randomOpenCell(walls, random);
+            int length = bfsDistance(walls, s, t, distance, queue);
+            if (length < 0) continue;
+            starts[q] = s;
+            ends[q] = t;
+            lengths[q] = length;
+            q++;
+        }
+
+        long tableStart = System.nanoTime();
+        GridJps.JumpTable table = GridJps.JumpTable.compute(walls);
+        long tableNanos = System.nanoTime() - tableStart;
+
+        GridAStar aStar = new GridAStar();
+        GridJps jps = new GridJps();
+        long aStarNanos = 0, jpsNanos = 0, jpsPlusNanos = 0;
+        long aStarExpanded = 0, jpsExpanded = 0;
+        for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+            boolean measured = round == WARMUP_ROUNDS;
+            for (int q = 0; q < queries; q++) {
+                int sx = starts[q] / size, sy = starts[q] % size, ex = ends[q] / size, ey = ends[q] % size;
+
+                long t0 = System.nanoTime();
+                aStar.search(walls, sx, sy, ex, ey);
+                long t1 = System.nanoTime();
+                jps.search(walls, sx, sy, ex, ey);
+                long t2 = System.nanoTime();
+                check("JPS", jps, lengths[q], walls);
+                int expanded = jps.expandedCount();
+                long t3 = System.nanoTime();
+                jps.search(walls, table, sx, sy, ex, ey);
+                long t4 = System.nanoTime();
+                check("JPS+", jps, lengths[q], walls);
+                if (aStar.path().length - 1 != lengths[q]) {
+                    throw new IllegalStateException("A* 路徑長度錯誤");
+                }
+
+                if (measured) {
+                    aStarNanos += t1 - t0;
+                    jpsNanos += t2 - t1;
+                    jpsPlusNanos += t4 - t3;
+                    aStarExpanded += aStar.expandedCount();
+                    jpsExpanded += expanded;
+                }
+            }
+        }
+
+        System.out.printf("%s %,d x %,d, %d 次查詢 (路徑長度皆與 BFS 相同)%n", name, size, size, queries);
+        System.out.printf("  A*   平均 %.3f 毫秒, 展開 %,d 格%n", aStarNanos / 1e6 / queries, aStarExpanded / queries);
+        System.out.printf("  JPS  平均 %.3f 毫秒, 展開 %,d 個跳點, 加速 %.2f 倍%n",
+                jpsNanos / 1e6 / queries, jpsExpanded / queries, (double) aStarNanos / jpsNanos);
+        System.out.printf("  JPS+ 平均 %.3f 毫秒, 加速 %.2f 倍 (預先計算 %.1f 毫秒, %,d 位元組)%n",
+                jpsPlusNanos / 1e6 / queries, (double) aStarNanos / jpsPlusNanos, tableNanos / 1e6, table.memoryBytes());
+    }
+
+    // 路徑必須與 BFS 等長，且每一步都走在相鄰的通道格上
+    private static void check(String name, GridJps jps, int expected, BitGrid walls) {
+        int size = walls.size();
+        int[] path = jps.path();
+        if (path.length - 1 != expected) {
+            throw new IllegalStateException(name + " 路徑長度 " + (path.length - 1) + "，BFS 為 " + expected);
+        }
+        for (int i = 0; i < path.length; i++) {
+            int x = path[i] / size, y = path[i] % size;
+            if (walls.get(x, y)) throw new IllegalStateException(name + " 路徑穿過牆壁");
+            if (i > 0) {
+                int px = path[i - 1] / size, py = path[i - 1] % size;
+                if (Math.abs(px - x) + Math.abs(py - y) != 1) throw new IllegalStateException(name + " 路徑不連續");
+            }
+        }
+    }
+
+    private static int randomOpenCell(BitGrid walls, FastRandom random) {
+        int size = walls.size();
+        while (true) {
+            int x = random.nextInt(size), y = random.nextInt(size);
+            if (!walls.get(x, y)) return x * size + y;
+        }
+    }
+
+    // 單向 BFS 的最短距離，不可達時回傳 -1
+    private static int bfsDistance(BitGrid walls, int source, int target, int[] distance, int[] queue) {
+        int size = walls.size();
+        Arrays.fill(distance, -1);
+        int head = 0, tail = 0;
+        queue[tail++] = source;
+        distance[source] = 0;
+        while (head < tail) {
+            int cell = queue[head++];
+            if (cell == target) return distance[cell];
+            int x = cell / size, y = cell % size;
+            for (int d = 0; d < 4; d++) {
+                int nx = x + DX[d], ny = y + DY[d];
+                if (nx < 0 || nx >= size || ny < 0 || ny >= size || walls.get(nx, ny)) continue;
+                int next = nx * size + ny;
+                if (distance[next] >= 0) continue;
+                distance[next] = distance[cell] + 1;
+                queue[tail++] = next;
+            }
+        }
+        return -1;
+    }
+}
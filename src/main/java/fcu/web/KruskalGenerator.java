@@ -0,0 +1,54 @@
+package fcu.web;
+
+// 隨機 Kruskal 法：打亂所有格點間的牆，以並查集合併不同集合
+public final class KruskalGenerator implements MazeGenerator {
+    @Override
+    public String name() {
+        return "Kruskal";
+    }
+
+    @Override
+    public void generate(BitGrid walls, int startX, int startY, FastRandom random) {
+        MazeLattice lattice = new MazeLattice(walls.size(), startX, startY);
+        int cells = lattice.cells();
+        if (cells == 0) return;
+        int rows = lattice.rows, cols = lattice.cols;
+        int[] parent = new int[cells];
+        for (int i = 0; i < cells; i++) {
+            parent[i] = i;
+        }
+
+        // 牆的編碼為 cell * 2 + 方向 (0 向下, 1 向右)
+        int[] candidates = new int[2 * cells];
+        int count = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            int r = cell / cols, c = cell - r * cols;
+            if (r + 1 < rows) candidates[count++] = cell << 1;
+            if (c + 1 < cols) candidates[count++] = (cell << 1) | 1;
+        }
+        walls.clear(lattice.cellX(0), lattice.cellY(0));
+        int remaining = cells - 1;
+        for (int i = 0; i < count && remaining > 0; i++) {
+            // 逐步進行 Fisher-Yates 洗牌，提早結束時不必洗完
+            int j = i + random.nextInt(count - i);
+            int wall = candidates[j];
+            candidates[j] = candidates[i];
+            int a = wall >>> 1;
+            int b = (wall & 1) == 0 ? a + cols : a + 1;
+            int ra = find(parent, a), rb = find(parent, b);
+            if (ra != rb) {
+                parent[ra] = rb;
+                lattice.carve(walls, a, b);
+                remaining--;
+            }
+        }
+    }
+
+    private static int find(int[] parent, int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+}
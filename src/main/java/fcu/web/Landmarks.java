@@ -0,0 +1,396 @@
+package fcu.web;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// ALT (A*, Landmarks, Triangle inequality) 的地標與距離表
+// from[v * k + i] = d(L_i, v)，to[v * k + i] = d(v, L_i)；以頂點為主序，查詢時同一頂點的 k 個距離相鄰
+// 無向圖 (forward == backward) 只存一張表；不可達的距離為正無限大
+//
+// 地標檔格式 (小端序): 標頭 64 位元組 magic "LMKS", 版本, 旗標, 頂點數, 地標數，
+// 之後為地標編號 int[k]、from float[V * k]，非對稱時再接 to float[V * k]
+public final class Landmarks {
+    public static final int MAGIC = 0x534b4d4c; // "LMKS"
+    public static final int VERSION = 1;
+    public static final int FLAG_SYMMETRIC = 1;
+    private static final int HEADER_BYTES = 64;
+
+    public enum Selection {
+        // 每次選離現有地標最遠 (最小距離最大) 的頂點
+        FARTHEST,
+        // Goldberg 與 Werneck 的 avoid：在隨機根的最短路徑樹中，選下界最差且沒有地標的子樹的葉節點
+        AVOID
+    }
+
+    private final int vertexCount;
+    private final int[] landmarks;
+    private final float[] from, to;
+
+    private Landmarks(int vertexCount, int[] landmarks, float[] from, float[] to) {
+        this.vertexCount = vertexCount;
+        this.landmarks = landmarks;
+        this.from = from;
+        this.to = to;
+    }
+
+    // 選出 count 個地標後，在 pool 上平行計算每個地標的正向與反向距離表
+    // backward 為反向圖，無向圖時傳入與 forward 相同的圖
+    public static Landmarks build(IntGraph forward, IntGraph backward, int count, Selection selection,
+                                  long seed, ForkJoinPool pool) {
+        return build(forward, backward, count, selection, seed, pool, null);
+    }
+
+    // 可取消的版本：選出每個地標與計算每欄距離表之前檢查 monitor，取消或逾時時拋出 CancellationException
+    public static Landmarks build(IntGraph forward, IntGraph backward, int count, Selection selection,
+                                  long seed, ForkJoinPool pool, SearchMonitor monitor) {
+        int n = forward.vertexCount();
+        count = Math.min(count, n);
+        int[] chosen = selection == Selection.AVOID
+                ? selectAvoid(forward, count, new Random(seed), monitor)
+                : selectFarthest(forward, count, new Random(seed), monitor);
+        return compute(forward, backward, chosen, pool, monitor);
+    }
+
+    // 以指定的地標計算距離表，每個地標的每個方向各是一個平行任務
+    public static Landmarks compute(IntGraph forward, IntGraph backward, int[] landmarks, ForkJoinPool pool) {
+        return compute(forward, backward, landmarks, pool, null);
+    }
+
+    // 工作執行緒以 shouldStop() 略過剩下的欄，全部結束後在呼叫端的執行緒拋出 CancellationException
+    public static Landmarks compute(IntGraph forward, IntGraph backward, int[] landmarks, ForkJoinPool pool,
+                                    SearchMonitor monitor) {
+        int n = forward.vertexCount();
+        int k = landmarks.length;
+        boolean symmetric = forward == backward;
+        float[] from = new float[n * k];
+        float[] to = symmetric ? from : new float[n * k];
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < k; i++) {
+            int column = i;
+            tasks.add(ForkJoinTask.adapt(() -> fill(forward, landmarks[column], from, k, column, monitor)));
+            if (!symmetric) {
+                tasks.add(ForkJoinTask.adapt(() -> fill(backward, landmarks[column], to, k, column, monitor)));
+            }
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        if (monitor != null) monitor.checkpoint();
+        return new Landmarks(n, landmarks.clone(), from, to);
+    }
+
+    // 從地標做完整的 Dijkstra，寫入表中的第 column 欄
+    private static void fill(IntGraph graph, int landmark, float[] table, int k, int column, SearchMonitor monitor) {
+        if (monitor != null && monitor.shouldStop()) return;
+        DijkstraSearch search = new DijkstraSearch(graph);
+        search.search(landmark, -1);
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            table[v * k + column] = (float) search.distance(v);
+        }
+    }
+
+    private static int[] selectFarthest(IntGraph graph, int count, Random random, SearchMonitor monitor) {
+        int n = graph.vertexCount();
+        int[] chosen = new int[count];
+        if (count == 0) return chosen;
+        double[] nearest = new double[n];
+        Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+        DijkstraSearch search = new DijkstraSearch(graph);
+        // 從隨機頂點出發找到的最遠頂點作為第一個地標
+        int next = farthest(search, random.nextInt(n), null);
+        for (int i = 0; i < count; i++) {
+            if (monitor != null) monitor.checkpoint();
+            chosen[i] = next;
+            next = farthest(search, next, nearest);
+        }
+        return chosen;
+    }
+
+    // 從 source 搜索並更新每個頂點到最近地標的距離，回傳該距離最大的頂點；
+    // 不可達的頂點視為最遠，讓不連通的部分也能分到地標
+    private static int farthest(DijkstraSearch search, int source, double[] nearest) {
+        search.search(source, -1);
+        int n = search.graph().vertexCount();
+        int best = source;
+        double bestDistance = -1;
+        for (int v = 0; v < n; v++) {
+            double d = search.distance(v);
+            if (nearest != null) {
+                nearest[v] = Math.min(nearest[v], d);
+                d = nearest[v];
+            }
+            if (d > bestDistance && d > 0) {
+                best = v;
+                bestDistance = d;
+            }
+        }
+        return best;
+    }
+
+    private static int[] selectAvoid(IntGraph graph, int count, Random random, SearchMonitor monitor) {
+        int n = graph.vertexCount();
+        int[] chosen = new int[0];
+        float[] table = new float[0];
+        DijkstraSearch search = new DijkstraSearch(graph);
+        int[] order = new int[n];
+        int[] childOffsets = new int[n + 1];
+        int[] children = new int[n];
+        double[] size = new double[n];
+        boolean[] isLandmark = new boolean[n];
+        boolean[] covered = new boolean[n];
+        int[] bestChild = new int[n];
+        while (chosen.length < count) {
+            if (monitor != null) monitor.checkpoint();
+            int root = random.nextInt(n);
+            search.search(root, -1);
+            // 以後序走訪最短路徑樹，子樹大小由下往上累加
+            int reached = postOrder(search, root, order, childOffsets, children);
+            Arrays.fill(bestChild, -1);
+            for (int i = 0; i < reached; i++) {
+                int v = order[i];
+                size[v] = 0;
+                covered[v] = isLandmark[v];
+            }
+            for (int i = 0; i < reached; i++) {
+                int v = order[i];
+                // 權重為真實距離與目前下界的差距，差距越大代表地標越不足
+                double weight = search.distance(v) - lowerBound(table, chosen.length, root, v);
+                if (covered[v]) {
+                    size[v] = 0;
+                } else {
+                    size[v] += weight;
+                }
+                int p = search.parent(v);
+                if (p < 0) continue;
+                if (covered[v]) {
+                    covered[p] = true;
+                } else {
+                    size[p] += size[v];
+                    if (bestChild[p] < 0 || size[v] > size[bestChild[p]]) bestChild[p] = v;
+                }
+            }
+            // 從子樹最大的頂點沿最大子樹往下走到葉節點
+            int start = root;
+            for (int i = 0; i < reached; i++) {
+                int v = order[i];
+                if (!covered[v] && size[v] > size[start]) start = v;
+            }
+            int leaf = start;
+            while (bestChild[leaf] >= 0 && !covered[bestChild[leaf]]) leaf = bestChild[leaf];
+            if (isLandmark[leaf]) {
+                // 整棵樹都已被覆蓋，改用隨機的非地標頂點
+                do {
+                    leaf = random.nextInt(n);
+                } while (isLandmark[leaf] && chosen.length < n);
+            }
+            isLandmark[leaf] = true;
+            chosen = Arrays.copyOf(chosen, chosen.length + 1);
+            chosen[chosen.length - 1] = leaf;
+            table = extend(table, chosen.length - 1, graph, leaf, search);
+        }
+        return chosen;
+    }
+
+    // 在頂點主序的表中加入一欄新地標的距離 (只用於 avoid 選擇時的下界估計，假設圖為對稱)
+    private static float[] extend(float[] table, int k, IntGraph graph, int landmark, DijkstraSearch search) {
+        int n = graph.vertexCount();
+        float[] wider = new float[n * (k + 1)];
+        for (int v = 0; v < n; v++) {
+            System.arraycopy(table, v * k, wider, v * (k + 1), k);
+        }
+        search.search(landmark, -1);
+        for (int v = 0; v < n; v++) {
+            wider[v * (k + 1) + k] = (float) search.distance(v);
+        }
+        return wider;
+    }
+
+    private static double lowerBound(float[] table, int k, int s, int t) {
+        double best = 0;
+        for (int i = 0; i < k; i++) {
+            double bound = Math.abs(table[t * k + i] - table[s * k + i]);
+            if (bound > best && bound != Double.POSITIVE_INFINITY) best = bound;
+        }
+        return best;
+    }
+
+    // 將 search 的最短路徑樹以後序 (子節點在父節點之前) 寫入 order，回傳可達頂點數
+    private static int postOrder(DijkstraSearch search, int root, int[] order, int[] childOffsets, int[] children) {
+        int n = search.graph().vertexCount();
+        Arrays.fill(childOffsets, 0);
+        for (int v = 0; v < n; v++) {
+            int p = search.parent(v);
+            if (p >= 0) childOffsets[p + 1]++;
+        }
+        for (int v = 0; v < n; v++) childOffsets[v + 1] += childOffsets[v];
+        int[] next = Arrays.copyOf(childOffsets, n);
+        for (int v = 0; v < n; v++) {
+            int p = search.parent(v);
+            if (p >= 0) children[next[p]++] = v;
+        }
+        // 先序 (根、子) 反轉後即為「子在父之前」的順序
+        int count = 0;
+        int[] stack = next;
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int v = stack[--top];
+            order[count++] = v;
+            for (int c = childOffsets[v]; c < childOffsets[v + 1]; c++) {
+                stack[top++] = children[c];
+            }
+        }
+        for (int i = 0, j = count - 1; i < j; i++, j--) {
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+        return count;
+    }
+
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    public int count() {
+        return landmarks.length;
+    }
+
+    public int landmark(int i) {
+        return landmarks[i];
+    }
+
+    // d(L_i, v)
+    public float fromLandmark(int i, int v) {
+        return from[v * landmarks.length + i];
+    }
+
+    // d(v, L_i)
+    public float toLandmark(int i, int v) {
+        return to[v * landmarks.length + i];
+    }
+
+    public boolean symmetric() {
+        return from == to;
+    }
+
+    // 三角不等式給出的 d(v, t) 下界，只使用 active 中的地標
+    public double lowerBound(int v, int t, int[] active, int activeCount) {
+        int k = landmarks.length;
+        int vb = v * k, tb = t * k;
+        double best = 0;
+        for (int a = 0; a < activeCount; a++) {
+            int i = active[a];
+            // d(L, t) - d(L, v) 與 d(v, L) - d(t, L)；不可達造成的 NaN 比較結果為 false 而被略過
+            double forward = (double) from[tb + i] - from[vb + i];
+            double backward = (double) to[vb + i] - to[tb + i];
+            if (forward > best) best = forward;
+            if (backward > best) best = backward;
+        }
+        return best;
+    }
+
+    public long memoryBytes() {
+        return 4L * landmarks.length + 4L * from.length + (symmetric() ? 0L : 4L * to.length) + 48L;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("地標: %d 個, %,d 個頂點, %,d 位元組", landmarks.length, vertexCount, memoryBytes());
+    }
+
+    // 將地標與距離表寫入檔案
+    public void write(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(symmetric() ? FLAG_SYMMETRIC : 0)
+                    .putInt(vertexCount).putInt(landmarks.length);
+            while (buffer.position() < HEADER_BYTES) {
+                buffer.put((byte) 0);
+            }
+            for (int landmark : landmarks) {
+                buffer = ensure(channel, buffer);
+                buffer.putInt(landmark);
+            }
+            buffer = putFloats(channel, buffer, from);
+            if (!symmetric()) {
+                buffer = putFloats(channel, buffer, to);
+            }
+            flush(channel, buffer);
+        }
+    }
+
+    // 讀入以 write 寫出的地標檔
+    public static Landmarks read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("檔案太小，不是地標檔: " + file);
+            }
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (data.getInt() != MAGIC) {
+                throw new IOException("檔案標記錯誤，不是地標檔: " + file);
+            }
+            int version = data.getInt();
+            if (version != VERSION) {
+                throw new IOException("不支援的地標檔版本: " + version);
+            }
+            boolean symmetric = (data.getInt() & FLAG_SYMMETRIC) != 0;
+            int n = data.getInt();
+            int k = data.getInt();
+            long cells = (long) n * k;
+            long expected = HEADER_BYTES + 4L * k + 4L * cells * (symmetric ? 1 : 2);
+            if (n < 0 || k < 0 || cells > Integer.MAX_VALUE || channel.size() < expected) {
+                throw new IOException("地標檔損壞或被截斷: " + file);
+            }
+            data.position(HEADER_BYTES);
+            int[] landmarks = new int[k];
+            data.asIntBuffer().get(landmarks);
+            data.position(data.position() + 4 * k);
+            float[] from = getFloats(data, (int) cells);
+            float[] to = symmetric ? from : getFloats(data, (int) cells);
+            return new Landmarks(n, landmarks, from, to);
+        }
+    }
+
+    private static float[] getFloats(ByteBuffer data, int count) {
+        float[] values = new float[count];
+        FloatBuffer floats = data.asFloatBuffer();
+        floats.get(values);
+        data.position(data.position() + 4 * count);
+        return values;
+    }
+
+    private static ByteBuffer putFloats(FileChannel channel, ByteBuffer buffer, float[] values) throws IOException {
+        for (float value : values) {
+            buffer = ensure(channel, buffer);
+            buffer.putFloat(value);
+        }
+        return buffer;
+    }
+
+    private static ByteBuffer ensure(FileChannel channel, ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < 4) {
+            flush(channel, buffer);
+            buffer.clear();
+        }
+        return buffer;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package fcu.web;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+// 直接讀取記憶體映射檔案的唯讀圖，由 GraphFile.open 建立
+public final class MappedGraph implements IntGraph {
+    private final int vertexCount;
+    private final int edgeCount;
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+    // 無權圖時為 null
+    private final FloatBuffer weights;
+    // 節點座標 x0, y0, x1, y1, ...，沒有座標時為 null
+    private final FloatBuffer coordinates;
+
+    MappedGraph(int vertexCount, int edgeCount, IntBuffer offsets, IntBuffer targets,
+                FloatBuffer weights, FloatBuffer coordinates) {
+        this.vertexCount = vertexCount;
+        this.edgeCount = edgeCount;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.coordinates = coordinates;
+    }
+
+    @Override
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    @Override
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    @Override
+    public boolean hasWeights() {
+        return weights != null;
+    }
+
+    @Override
+    public int firstEdge(int v) {
+        return offsets.get(v);
+    }
+
+    @Override
+    public int endEdge(int v) {
+        return offsets.get(v + 1);
+    }
+
+    @Override
+    public int target(int e) {
+        return targets.get(e);
+    }
+
+    @Override
+    public float weight(int e) {
+        return weights == null ? 1f : weights.get(e);
+    }
+
+    public boolean hasCoordinates() {
+        return coordinates != null;
+    }
+
+    public float x(int v) {
+        return coordinates.get(2 * v);
+    }
+
+    public float y(int v) {
+        return coordinates.get(2 * v + 1);
+    }
+
+    // 映射區段的總位元組數 (不在 Java 堆積內)
+    public long mappedBytes() {
+        long bytes = 4L * (vertexCount + 1) + 4L * edgeCount;
+        if (weights != null) bytes += 4L * edgeCount;
+        if (coordinates != null) bytes += 8L * vertexCount;
+        return bytes;
+    }
+}
@@ -2,23 +2,55 @@ package fcu.web;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class MazeGame extends JFrame {
     // 迷宮大小
     private int size;
-    // 迷宮數組，0表示通路，1表示牆壁，2表示搜索路徑
-    private int[][] maze;
+    // 迷宮牆壁，1表示牆壁，0表示通路；可為記憶體內的位元格或磁碟上的分塊迷宮
+    private MazeView maze;
     // 起點和終點的坐標
     private int startX, startY, endX, endY;
-    // 用於繪製迷宮的面板
-    private JPanel mazePanel;
+    // 用於繪製迷宮的面板，可縮放與平移，牆壁以分塊影像快取
+    private MazePanel mazePanel;
     // 輸入迷宮大小的文本框
     private JTextField sizeInput;
+    // 搜索的時間上限 (秒)，0 表示不限時間
+    private JTextField timeoutInput;
     // 各種操作按鈕
-    private JButton generateButton, dfsButton, bfsButton, aStarButton, iddfsButton;
+    private JButton generateButton, dfsButton, bfsButton, aStarButton, iddfsButton, biBfsButton, jpsButton,
+            lpaButton, streamButton, openButton, exportButton, cancelButton;
+    // 勾選時使用 JPS+ 預先計算的跳躍距離表
+    private JCheckBox jpsPlusBox;
+    // 勾選時記錄每次搜索的詳細指標 (SearchMetrics)，可匯出為 JSON 或 CSV
+    private JCheckBox metricsBox;
+    private final List<SearchMetrics> metricsHistory = new ArrayList<>();
     // 顯示搜索時間的標籤
     private JLabel timeLabel;
+    // 選擇迷宮生成演算法
+    private JComboBox<String> generatorBox;
+    // 分塊迷宮在記憶體中保留的分塊數 (每塊 8 KB)
+    private static final int TILE_CACHE_SIZE = 512;
+    // 搜索引擎以 int 編碼格子 (x * size + y)，可搜索的迷宮最多 46340 x 46340；更大的分塊迷宮只能生成與瀏覽
+    private static final int MAX_SEARCH_SIZE = 46340;
+    // 目前迷宮的 JPS+ 跳躍距離表，第一次使用時在背景執行緒上計算，換迷宮或改動牆壁時清除
+    private GridJps.JumpTable jumpTable;
+    // 換迷宮或改動牆壁時遞增；背景計算的跳躍距離表只在版本未變時保留
+    private long mazeVersion;
+    // 增量 A* (LPA*) 的狀態；最近一次搜索是它時，點擊切換牆壁後就地修補路徑
+    private final GridLpaStar lpaSearch = new GridLpaStar();
+    private boolean lpaActive;
+    // 搜索在背景執行緒上執行，進行中的開放集合以淺綠色繪製，每秒最多重繪 FRAME_RATE 次
+    private static final int FRAME_RATE = 30;
+    private final SearchRunner runner;
+    // 串流生成到檔案時 runner 的進度是已寫入的列數
+    private boolean streaming;
 
     // 構造函數
     public MazeGame() {
@@ -30,61 +62,80 @@ public class MazeGame extends JFrame {
         // 創建控制面板
         JPanel controlPanel = new JPanel();
         sizeInput = new JTextField(5);
+        generatorBox = new JComboBox<>(MazeGenerator.names());
         generateButton = new JButton("生成迷宮");
         dfsButton = new JButton("DFS搜索");
         bfsButton = new JButton("BFS搜索");
         aStarButton = new JButton("A*搜索");
         iddfsButton = new JButton("IDDFS搜索");
+        biBfsButton = new JButton("雙向BFS搜索");
+        jpsButton = new JButton("JPS搜索");
+        jpsPlusBox = new JCheckBox("JPS+");
+        lpaButton = new JButton("增量A*搜索");
+        streamButton = new JButton("串流生成到檔案");
+        openButton = new JButton("載入迷宮檔");
+        metricsBox = new JCheckBox("記錄指標", SearchMetrics.enabled());
+        exportButton = new JButton("匯出指標");
+        timeoutInput = new JTextField("30", 3);
+        cancelButton = new JButton("取消搜索");
+        cancelButton.setEnabled(false);
         timeLabel = new JLabel("搜索時間: ");
 
         // 添加組件到控制面板
         controlPanel.add(new JLabel("迷宮大小: "));
         controlPanel.add(sizeInput);
+        controlPanel.add(generatorBox);
         controlPanel.add(generateButton);
         controlPanel.add(dfsButton);
         controlPanel.add(bfsButton);
         controlPanel.add(aStarButton);
         controlPanel.add(iddfsButton);
+        controlPanel.add(biBfsButton);
+        controlPanel.add(jpsButton);
+        controlPanel.add(jpsPlusBox);
+        controlPanel.add(lpaButton);
+        controlPanel.add(streamButton);
+        controlPanel.add(openButton);
+        controlPanel.add(metricsBox);
+        controlPanel.add(exportButton);
+        controlPanel.add(new JLabel("逾時(秒): "));
+        controlPanel.add(timeoutInput);
+        controlPanel.add(cancelButton);
         controlPanel.add(timeLabel);
 
         add(controlPanel, BorderLayout.NORTH);
 
-        // 創建迷宮面板
-        mazePanel = new JPanel() {
+        // 創建迷宮面板，滾輪縮放、拖曳平移
+        mazePanel = new MazePanel();
+
+        // 點擊格子切換牆壁
+        mazePanel.addMouseListener(new MouseAdapter() {
             @Override
-            protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                if (maze != null) {
-                    int cellSize = Math.min(getWidth(), getHeight()) / size;
-                    for (int i = 0; i < size; i++) {
-                        for (int j = 0; j < size; j++) {
-                            if (maze[i][j] == 1) {
-                                g.setColor(Color.BLACK);
-                                g.fillRect(j * cellSize, i * cellSize, cellSize, cellSize);
-                            } else if (i == startX && j == startY) {
-                                g.setColor(Color.GREEN);
-                                g.fillRect(j * cellSize, i * cellSize, cellSize, cellSize);
-                            } else if (i == endX && j == endY) {
-                                g.setColor(Color.RED);
-                                g.fillRect(j * cellSize, i * cellSize, cellSize, cellSize);
-                            } else if (maze[i][j] == 2) {
-                                g.setColor(Color.BLUE);
-                                g.fillRect(j * cellSize, i * cellSize, cellSize, cellSize);
-                            }
-                        }
-                    }
-                }
+            public void mouseClicked(MouseEvent e) {
+                toggleWall(e.getX(), e.getY());
             }
-        };
+        });
 
         add(mazePanel, BorderLayout.CENTER);
 
+        runner = new SearchRunner(this::showProgress, FRAME_RATE);
+        // 搜索中讀取最新的快照，不等待背景執行緒
+        mazePanel.setFrontier(runner::snapshot);
+
         // 添加按鈕監聽器
         generateButton.addActionListener(e -> generateMaze());
         dfsButton.addActionListener(e -> search("DFS"));
         bfsButton.addActionListener(e -> search("BFS"));
         aStarButton.addActionListener(e -> search("A*"));
         iddfsButton.addActionListener(e -> search("IDDFS"));
+        biBfsButton.addActionListener(e -> search("雙向BFS"));
+        jpsButton.addActionListener(e -> search("JPS"));
+        lpaButton.addActionListener(e -> search("增量A*"));
+        streamButton.addActionListener(e -> streamMaze());
+        openButton.addActionListener(e -> openMazeFile());
+        metricsBox.addActionListener(e -> SearchMetrics.setEnabled(metricsBox.isSelected()));
+        exportButton.addActionListener(e -> exportMetrics());
+        cancelButton.addActionListener(e -> cancelSearch());
 
         setVisible(true);
     }
@@ -97,223 +148,334 @@ public class MazeGame extends JFrame {
                 JOptionPane.showMessageDialog(this, "迷宮大小必須至少為5");
                 return;
             }
-            maze = new int[size][size];
-            for (int i = 0; i < size; i++) {
-                Arrays.fill(maze[i], 1);
-            }
+            BitGrid walls = new BitGrid(size);
+            walls.setAll();
+            setMaze(walls);
 
-            // 隨機生成起點和終點
-            Random rand = new Random();
+            // 隨機生成起點，終點取與起點同奇偶的格點，確保兩者連通
+            FastRandom rand = new FastRandom(System.nanoTime());
             startX = rand.nextInt(size);
             startY = rand.nextInt(size);
             do {
-                endX = rand.nextInt(size);
-                endY = rand.nextInt(size);
+                endX = (startX & 1) + 2 * rand.nextInt((size - (startX & 1) + 1) / 2);
+                endY = (startY & 1) + 2 * rand.nextInt((size - (startY & 1) + 1) / 2);
             } while (endX == startX && endY == startY);
 
-            generatePath(startX, startY);
-            maze[startX][startY] = 0;
-            maze[endX][endY] = 0;
+            MazeGenerator generator = MazeGenerator.of((String) generatorBox.getSelectedItem());
+            generator.generate(walls, startX, startY, rand);
 
-            mazePanel.repaint();
+            mazePanel.setEndpoints(startX, startY, endX, endY);
+            mazePanel.wallsChanged();
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(this, "請輸入有效的迷宮大小");
         }
     }
 
-    // 遞迴生成迷宮路徑
-    private void generatePath(int x, int y) {
-        int[][] directions = {{0, 1}, {1, 0}, {0, -1}, {-1, 0}};
-        Collections.shuffle(Arrays.asList(directions));
-        for (int[] dir : directions) {
-            int nx = x + dir[0] * 2;
-            int ny = y + dir[1] * 2;
-            if (nx >= 0 && nx < size && ny >= 0 && ny < size && maze[nx][ny] == 1) {
-                maze[x + dir[0]][y + dir[1]] = 0;
-                maze[nx][ny] = 0;
-                generatePath(nx, ny);
-            }
-        }
-    }
-
-    // 執行搜索
+    // 在背景執行緒上執行搜索，完成後在 EDT 上標記路徑；開始新的搜索會取消進行中的搜索
     private void search(String method) {
         if (maze == null) {
             JOptionPane.showMessageDialog(this, "請先生成迷宮");
             return;
         }
 
-        // 清除之前的搜索路徑
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                if (maze[i][j] == 2) maze[i][j] = 0;
-            }
+        if (size > MAX_SEARCH_SIZE) {
+            JOptionPane.showMessageDialog(this, "迷宮太大，無法搜索：搜索最多支援 " + MAX_SEARCH_SIZE + " x "
+                    + MAX_SEARCH_SIZE + " 的迷宮 (格子以 int 編碼)，更大的分塊迷宮只能生成與瀏覽");
+            return;
         }
 
-        long startTime = System.nanoTime();
-        boolean found = false;
-        switch (method) {
-            case "DFS":
-                found = dfs(startX, startY);
-                break;
-            case "BFS":
-                found = bfs();
-                break;
-            case "A*":
-                found = aStar();
-                break;
-            case "IDDFS":
-                found = iddfs();
-                break;
+        if ((method.equals("A*") || method.equals("JPS") || method.equals("增量A*")) && !(maze instanceof BitGrid)) {
+            JOptionPane.showMessageDialog(this, method + " 需要記憶體內的迷宮");
+            return;
+        }
+
+        long timeout;
+        try {
+            timeout = SearchRunner.timeoutMillis(timeoutInput.getText());
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "請輸入有效的逾時秒數 (0 表示不限時間)");
+            return;
         }
-        long endTime = System.nanoTime();
 
-        if (found) {
-            long duration = endTime - startTime;
-            timeLabel.setText("搜索時間: " + duration + " 奈秒");
+        // 清除之前的搜索路徑；先停止進行中的搜索，增量 A* 的狀態才不會同時被兩個搜索修改
+        runner.cancelAndWait();
+        mazePanel.setPath(null);
+        lpaActive = false;
+
+        // 背景執行緒只讀取這些在開始時取得的值
+        MazeView current = maze;
+        int sx = startX, sy = startY, ex = endX, ey = endY;
+        boolean jpsPlus = method.equals("JPS") && jpsPlusBox.isSelected();
+        if (jpsPlus && jumpTable == null && !jumpTableFits()) return;
+        GridJps.JumpTable cachedTable = jumpTable;
+        long version = mazeVersion;
+        streaming = false;
+        cancelButton.setEnabled(true);
+        timeLabel.setText("搜索中...");
+        runner.start(monitor -> {
+                    if (method.equals("增量A*")) return lpaStar(current, sx, sy, ex, ey, monitor);
+                    GridJps.JumpTable table = !jpsPlus ? null
+                            : cachedTable != null ? cachedTable : buildJumpTable(current, version, monitor);
+                    return MazeSolver.solve(current, table, MazeSolver.Algorithm.of(method), sx, sy, ex, ey, monitor);
+                },
+                timeout, result -> showResult(method, result), message -> {
+                    cancelButton.setEnabled(false);
+                    timeLabel.setText(message);
+                    mazePanel.repaint();
+                });
+        mazePanel.repaint();
+    }
+
+    private void showResult(String method, PathResult result) {
+        cancelButton.setEnabled(false);
+        markPath(result.path());
+        lpaActive = method.equals("增量A*");
+
+        if (result.found()) {
+            timeLabel.setText("搜索時間: " + result.nanos() + " 奈秒 路徑 " + (long) result.cost() + " 步 展開 "
+                    + result.expandedCount() + (method.equals("JPS") ? " 個跳點" : " 格"));
+            if (maze instanceof TiledMaze) {
+                timeLabel.setText(timeLabel.getText() + " " + ((TiledMaze) maze).cache().stats());
+            }
+            recordMetrics(result.metrics());
             JOptionPane.showMessageDialog(this, "找到路徑！");
         } else {
             timeLabel.setText("未找到路徑");
+            recordMetrics(result.metrics());
             JOptionPane.showMessageDialog(this, "未找到路徑。請嘗試重新生成迷宮。");
         }
 
         mazePanel.repaint();
     }
 
-    // 深度優先搜索
-    private boolean dfs(int x, int y) {
-        if (x < 0 || x >= size || y < 0 || y >= size || maze[x][y] == 1 || maze[x][y] == 2) return false;
-        if (x == endX && y == endY) return true;
-
-        maze[x][y] = 2;
-
-        if (dfs(x + 1, y) || dfs(x - 1, y) || dfs(x, y + 1) || dfs(x, y - 1)) return true;
-
-        maze[x][y] = 0;
-        return false;
+    // 跳躍距離表每格 16 位元組，迷宮太大或可用記憶體不足時顯示訊息並回傳 false
+    private boolean jumpTableFits() {
+        if (size > GridJps.JumpTable.MAX_SIZE) {
+            JOptionPane.showMessageDialog(this, "迷宮太大，JPS+ 最多支援 " + GridJps.JumpTable.MAX_SIZE + " x "
+                    + GridJps.JumpTable.MAX_SIZE);
+            return false;
+        }
+        Runtime runtime = Runtime.getRuntime();
+        long available = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        long required = GridJps.JumpTable.memoryBytes(size);
+        if (required > available) {
+            JOptionPane.showMessageDialog(this, String.format("JPS+ 跳躍距離表需要 %,d MB 記憶體，可用的只有 %,d MB",
+                    required >> 20, available >> 20));
+            return false;
+        }
+        return true;
     }
 
-    // 廣度優先搜索
-    private boolean bfs() {
-        Queue<int[]> queue = new LinkedList<>();
-        boolean[][] visited = new boolean[size][size];
-        int[][] dirs = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
-
-        queue.offer(new int[]{startX, startY});
-        visited[startX][startY] = true;
+    // 在背景執行緒上計算跳躍距離表 (可取消)，交回 EDT 快取；期間迷宮改變時丟棄
+    private GridJps.JumpTable buildJumpTable(MazeView maze, long version, SearchMonitor monitor) {
+        GridJps.JumpTable table = GridJps.JumpTable.compute(maze, monitor);
+        SwingUtilities.invokeLater(() -> {
+            if (mazeVersion == version) jumpTable = table;
+        });
+        return table;
+    }
 
-        while (!queue.isEmpty()) {
-            int[] curr = queue.poll();
-            int x = curr[0], y = curr[1];
+    // 搜索期間由 runner 定時呼叫，顯示最新快照的展開數並重繪開放集合
+    private void showProgress() {
+        SearchMonitor.Snapshot snapshot = runner.snapshot();
+        if (snapshot != null) {
+            timeLabel.setText((streaming ? "生成中... 已寫入 " + snapshot.expandedCount() + " 列"
+                    : "搜索中... 已展開 " + snapshot.expandedCount()));
+        }
+        mazePanel.repaint();
+    }
 
-            if (x == endX && y == endY) return true;
+    // 串流生成被取消時，背景執行緒停止後刪除寫到一半的檔案
+    private void cancelSearch() {
+        runner.cancel();
+        cancelButton.setEnabled(false);
+        timeLabel.setText(streaming ? "生成已取消" : "搜索已取消");
+        streaming = false;
+        mazePanel.repaint();
+    }
 
-            for (int[] dir : dirs) {
-                int nx = x + dir[0], ny = y + dir[1];
-                if (nx >= 0 && nx < size && ny >= 0 && ny < size && maze[nx][ny] != 1 && !visited[nx][ny]) {
-                    queue.offer(new int[]{nx, ny});
-                    visited[nx][ny] = true;
-                    maze[nx][ny] = 2;
-                }
-            }
+    // 增量 A*：第一次從頭搜索，之後切換牆壁時由 toggleWall 修補；在背景執行緒上執行
+    private PathResult lpaStar(MazeView maze, int startX, int startY, int endX, int endY, SearchMonitor monitor) {
+        SearchMetrics.Recorder recorder = SearchMetrics.start("增量A*");
+        long startTime = System.nanoTime();
+        boolean found;
+        lpaSearch.setMonitor(monitor);
+        try {
+            found = lpaSearch.search(maze, startX, startY, endX, endY);
+        } finally {
+            lpaSearch.setMonitor(null);
         }
-
-        return false;
+        if (recorder != null) recorder.phase("search");
+        int[] cells = found ? lpaSearch.path() : new int[0];
+        if (recorder != null) recorder.phase("path");
+        long nanos = System.nanoTime() - startTime;
+        SearchMetrics metrics = recorder == null ? null
+                : recorder.finish(cells, cells.length - 1, lpaSearch.expandedCount(), lpaSearch);
+        return new PathResult("增量A*", cells, cells.length - 1, lpaSearch.expandedCount(), nanos, metrics);
     }
 
-    // A*搜索算法
-    private boolean aStar() {
-        PriorityQueue<Node> openList = new PriorityQueue<>();
-        boolean[][] closedList = new boolean[size][size];
-        int[][] dirs = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    // 把指標加入歷史並顯示在標籤的提示中；未啟用時 metrics 為 null
+    private void recordMetrics(SearchMetrics metrics) {
+        if (metrics == null) return;
+        metricsHistory.add(metrics);
+        timeLabel.setToolTipText(metrics.toString());
+    }
 
-        openList.offer(new Node(startX, startY, 0, heuristic(startX, startY)));
+    // 匯出目前記錄的指標，副檔名為 .csv 時寫入 CSV，否則寫入 JSON
+    private void exportMetrics() {
+        if (metricsHistory.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "尚未記錄任何指標，請先勾選「記錄指標」再搜索");
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        try {
+            SearchMetrics.write(chooser.getSelectedFile().toPath(), metricsHistory);
+            timeLabel.setText("已匯出 " + metricsHistory.size() + " 筆指標");
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "無法寫入指標檔: " + ex.getMessage());
+        }
+    }
 
-        while (!openList.isEmpty()) {
-            Node current = openList.poll();
-            int x = current.x, y = current.y;
+    private void markPath(int[] cells) {
+        mazePanel.setPath(cells);
+    }
 
-            if (x == endX && y == endY) {
-                while (current != null) {
-                    maze[current.x][current.y] = 2;
-                    current = current.parent;
-                }
-                return true;
+    // 切換滑鼠所在格子的牆壁 (起點與終點除外)；增量 A* 啟用時只修補受影響的部分
+    private void toggleWall(int mouseX, int mouseY) {
+        if (!(maze instanceof BitGrid)) return;
+        long cell = mazePanel.cellAt(mouseX, mouseY);
+        if (cell < 0) return;
+        int x = (int) (cell / size), y = (int) (cell % size);
+        if ((x == startX && y == startY) || (x == endX && y == endY)) return;
+        // 搜索中的迷宮不可被修改，先停止背景搜索；串流生成不讀取目前的迷宮，不必停止
+        if (runner.isRunning() && !streaming) {
+            runner.cancelAndWait();
+            cancelButton.setEnabled(false);
+            timeLabel.setText("搜索已取消");
+        }
+        BitGrid walls = (BitGrid) maze;
+        walls.set(x, y, !walls.get(x, y));
+        jumpTable = null;
+        mazeVersion++;
+        mazePanel.wallChanged(x, y);
+        mazePanel.setPath(null);
+        if (lpaActive) {
+            SearchMetrics.Recorder recorder = SearchMetrics.start("增量A*修補");
+            long startTime = System.nanoTime();
+            boolean found = lpaSearch.cellChanged(x, y);
+            long duration = System.nanoTime() - startTime;
+            if (recorder != null) recorder.phase("repair");
+            int[] cells = found ? lpaSearch.path() : new int[0];
+            if (recorder != null) {
+                recorder.phase("path");
+                recordMetrics(recorder.finish(cells, cells.length - 1, lpaSearch.expandedCount(), lpaSearch));
             }
-
-            closedList[x][y] = true;
-
-            for (int[] dir : dirs) {
-                int nx = x + dir[0], ny = y + dir[1];
-                if (nx >= 0 && nx < size && ny >= 0 && ny < size && maze[nx][ny] != 1 && !closedList[nx][ny]) {
-                    Node neighbor = new Node(nx, ny, current.g + 1, heuristic(nx, ny));
-                    neighbor.parent = current;
-                    if (!openList.contains(neighbor)) {
-                        openList.offer(neighbor);
-                    }
-                }
+            if (found) {
+                markPath(cells);
+                timeLabel.setText("修補時間: " + duration + " 奈秒 展開 " + lpaSearch.expandedCount() + " 格");
+            } else {
+                timeLabel.setText("未找到路徑");
             }
         }
-
-        return false;
-    }
-
-    // 啟發函數
-    private int heuristic(int x, int y) {
-        return Math.abs(x - endX) + Math.abs(y - endY);
+        mazePanel.repaint();
     }
 
-    // 迭代加深深度優先搜索
-    private boolean iddfs() {
-        for (int depth = 0; depth < size * size; depth++) {
-            boolean[][] visited = new boolean[size][size];
-            if (dfsWithDepthLimit(startX, startY, depth, visited)) {
-                return true;
+    // 換成新的迷宮並重新配置搜索標記，關閉先前開啟的迷宮檔
+    private void setMaze(MazeView newMaze) {
+        // 背景搜索可能仍在讀取舊的迷宮 (分塊迷宮的檔案即將關閉)
+        runner.cancelAndWait();
+        streaming = false;
+        cancelButton.setEnabled(false);
+        if (maze instanceof TiledMaze) {
+            try {
+                ((TiledMaze) maze).close();
+            } catch (IOException ex) {
+                // 關閉唯讀檔案失敗不影響新的迷宮
             }
         }
-        return false;
+        maze = newMaze;
+        jumpTable = null;
+        mazeVersion++;
+        lpaActive = false;
+        size = newMaze.size();
+        mazePanel.setMaze(newMaze);
     }
 
-    // 有深度限制的深度優先搜索
-    private boolean dfsWithDepthLimit(int x, int y, int depth, boolean[][] visited) {
-        if (x < 0 || x >= size || y < 0 || y >= size || maze[x][y] == 1 || visited[x][y]) return false;
-        if (x == endX && y == endY) {
-            maze[x][y] = 2;
-            return true;
+    // 以 Eller 演算法逐列生成迷宮並直接寫入分塊檔案，適用於超過記憶體的迷宮
+    private void streamMaze() {
+        int newSize;
+        try {
+            newSize = Integer.parseInt(sizeInput.getText());
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "請輸入有效的迷宮大小");
+            return;
         }
-        if (depth == 0) return false;
-
-        visited[x][y] = true;
-        maze[x][y] = 2;
-
-        int[][] dirs = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
-        for (int[] dir : dirs) {
-            int nx = x + dir[0], ny = y + dir[1];
-            if (dfsWithDepthLimit(nx, ny, depth - 1, visited)) {
-                return true;
-            }
+        if (newSize < 5) {
+            JOptionPane.showMessageDialog(this, "迷宮大小必須至少為5");
+            return;
         }
-
-        maze[x][y] = 0;
-        return false;
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File file = chooser.getSelectedFile();
+        FastRandom rand = new FastRandom(System.nanoTime());
+        int half = (newSize + 1) / 2;
+        int sx = 2 * rand.nextInt(half), sy = 2 * rand.nextInt(half);
+        int goalX, goalY;
+        do {
+            goalX = 2 * rand.nextInt(half);
+            goalY = 2 * rand.nextInt(half);
+        } while (goalX == sx && goalY == sy);
+        // 在背景執行緒上寫入檔案，可取消；取消或失敗時檔案被刪除，完成後才開啟
+        int ex = goalX, ey = goalY;
+        long startTime = System.nanoTime();
+        streaming = true;
+        cancelButton.setEnabled(true);
+        timeLabel.setText("生成中...");
+        runner.start(monitor -> {
+            try {
+                TiledMazeFile.generate(file.toPath(), newSize, TiledMazeFile.DEFAULT_TILE_SIZE, sx, sy, ex, ey, rand,
+                        monitor);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return System.nanoTime() - startTime;
+        }, 0, duration -> {
+            streaming = false;
+            cancelButton.setEnabled(false);
+            try {
+                loadTiledMaze(file);
+                timeLabel.setText("生成時間: " + duration + " 奈秒");
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, "無法載入迷宮檔: " + e.getMessage());
+            }
+        }, message -> {
+            streaming = false;
+            cancelButton.setEnabled(false);
+            timeLabel.setText(message);
+            JOptionPane.showMessageDialog(this, "無法寫入迷宮檔: " + message);
+        });
     }
 
-    // A*算法的節點類
-    private class Node implements Comparable<Node> {
-        int x, y, g, h;
-        Node parent;
-
-        Node(int x, int y, int g, int h) {
-            this.x = x;
-            this.y = y;
-            this.g = g;
-            this.h = h;
+    private void openMazeFile() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        try {
+            loadTiledMaze(chooser.getSelectedFile());
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "無法載入迷宮檔: " + ex.getMessage());
         }
+    }
 
-        @Override
-        public int compareTo(Node other) {
-            return Integer.compare(this.g + this.h, other.g + other.h);
-        }
+    private void loadTiledMaze(File file) throws IOException {
+        TiledMaze tiled = TiledMazeFile.open(file.toPath(), TILE_CACHE_SIZE);
+        setMaze(tiled);
+        startX = tiled.startX();
+        startY = tiled.startY();
+        endX = tiled.endX();
+        endY = tiled.endY();
+        mazePanel.setEndpoints(startX, startY, endX, endY);
+        mazePanel.repaint();
     }
 
     // 主方法
@@ -0,0 +1,27 @@
+package fcu.web;
+
+// 迷宮生成器：在全為牆壁的位元格上挖出完美迷宮
+// 格點為與起點同奇偶的 (x, y)，相鄰格點之間的格子作為通道
+public interface MazeGenerator {
+    String name();
+
+    void generate(BitGrid walls, int startX, int startY, FastRandom random);
+
+    // 依名稱取得生成器
+    static MazeGenerator of(String name) {
+        switch (name) {
+            case "Eller":
+                return new EllerGenerator();
+            case "Kruskal":
+                return new KruskalGenerator();
+            case "Wilson":
+                return new WilsonGenerator();
+            default:
+                return new BacktrackerGenerator();
+        }
+    }
+
+    static String[] names() {
+        return new String[]{"Backtracker", "Eller", "Kruskal", "Wilson"};
+    }
+}
@@ -0,0 +1,33 @@
+package fcu.web;
+
+// 迷宮生成器吞吐量測試，以每秒生成的格子數回報
+// 用法: MazeGeneratorBenchmark [迷宮大小] [種子]
+public final class MazeGeneratorBenchmark {
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    private MazeGeneratorBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 2001;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+        BitGrid walls = new BitGrid(size);
+        for (String name : MazeGenerator.names()) {
+            MazeGenerator generator = MazeGenerator.of(name);
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+                walls.setAll();
+                long startTime = System.nanoTime();
+                generator.generate(walls, 0, 0, new FastRandom(seed + round));
+                long duration = System.nanoTime() - startTime;
+                if (round >= WARMUP_ROUNDS) {
+                    best = Math.min(best, duration);
+                }
+            }
+            double cellsPerSecond = walls.cellCount() * 1e9 / best;
+            System.out.printf("%-12s %,d x %,d: %.1f 毫秒, %,.0f 格/秒%n",
+                    generator.name(), size, size, best / 1e6, cellsPerSecond);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package fcu.web;
+
+// 迷宮格點座標換算：格點 (r, c) 對應迷宮格子 (originX + 2r, originY + 2c)
+final class MazeLattice {
+    final int size, originX, originY, rows, cols;
+
+    MazeLattice(int size, int startX, int startY) {
+        this.size = size;
+        this.originX = startX & 1;
+        this.originY = startY & 1;
+        this.rows = (size - originX + 1) / 2;
+        this.cols = (size - originY + 1) / 2;
+    }
+
+    int cells() {
+        return rows * cols;
+    }
+
+    int cellX(int cell) {
+        return originX + 2 * (cell / cols);
+    }
+
+    int cellY(int cell) {
+        return originY + 2 * (cell % cols);
+    }
+
+    int cellOf(int x, int y) {
+        return ((x - originX) / 2) * cols + (y - originY) / 2;
+    }
+
+    // 挖開兩個相鄰格點以及它們之間的通道
+    void carve(BitGrid walls, int a, int b) {
+        int ax = cellX(a), ay = cellY(a), bx = cellX(b), by = cellY(b);
+        walls.clear(ax, ay);
+        walls.clear((ax + bx) >>> 1, (ay + by) >>> 1);
+        walls.clear(bx, by);
+    }
+}
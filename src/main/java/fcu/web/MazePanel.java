@@ -0,0 +1,246 @@
+package fcu.web;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.function.Supplier;
+
+// 迷宮的繪製面板，支援滾輪縮放與拖曳平移，只繪製看得到的部分
+// 牆壁是靜態圖層：依目前的縮放倍率切成 TILE x TILE 像素的分塊，第一次看到時繪製成 BufferedImage，
+// 以 LRU 快取保留；平移只需繪製新露出的分塊，重繪時直接貼上快取的影像
+// 路徑、起點與終點畫在與面板同大的疊加圖層上，只在路徑或視窗改變時重畫；搜索中的前緣每一幀直接繪製
+// 縮小到每格不足 1 像素時，每個像素取其左上角的格子
+final class MazePanel extends JPanel {
+    private static final int TILE = 256;
+    private static final int TILE_CACHE_SIZE = 96;
+    // 每格最多 64 像素
+    private static final double MAX_SCALE = 64.0;
+    private static final int WALL_RGB = Color.BLACK.getRGB();
+    private static final Color PATH_COLOR = Color.BLUE;
+    private static final Color FRONTIER_COLOR = new Color(144, 238, 144);
+
+    private final Viewport viewport = new Viewport();
+    private MazeView maze;
+    private int size;
+    // 目前縮放倍率下的牆壁分塊，鍵為 分塊列 * tileColumns + 分塊行
+    private TileCache<BufferedImage> tiles;
+    private int tileColumns;
+    private int[] path;
+    private int startX, startY, endX, endY;
+    private BufferedImage overlay;
+    private boolean overlayDirty = true;
+    private Supplier<SearchMonitor.Snapshot> frontier = () -> null;
+
+    MazePanel() {
+        viewport.install(this, zoomed -> {
+            if (zoomed) tiles = null;
+            overlayDirty = true;
+            repaint();
+        });
+    }
+
+    // 換成新的迷宮 (或迷宮的內容整個改變)，回到符合視窗的大小
+    void setMaze(MazeView maze) {
+        this.maze = maze;
+        this.size = maze.size();
+        this.path = null;
+        viewport.fit(0, 0, size, size, Math.max(1, getWidth()), Math.max(1, getHeight()));
+        tiles = null;
+        overlayDirty = true;
+        repaint();
+    }
+
+    // 牆壁全部改變，例如生成器在同一個迷宮上重新生成
+    void wallsChanged() {
+        tiles = null;
+        repaint();
+    }
+
+    // 單一格子的牆壁改變，只重畫涵蓋它的分塊
+    void wallChanged(int x, int y) {
+        if (tiles != null) {
+            double scale = viewport.scale();
+            int top = (int) Math.floor(x * scale), left = (int) Math.floor(y * scale);
+            int bottom = (int) Math.floor((x + 1) * scale), right = (int) Math.floor((y + 1) * scale);
+            for (int row = top / TILE; row <= Math.max(top, bottom - 1) / TILE; row++) {
+                for (int column = left / TILE; column <= Math.max(left, right - 1) / TILE; column++) {
+                    tiles.invalidate(row * tileColumns + column);
+                }
+            }
+        }
+        repaint();
+    }
+
+    // 路徑為 x * size + y 編碼的格子，null 表示清除
+    void setPath(int[] cells) {
+        path = cells;
+        overlayDirty = true;
+        repaint();
+    }
+
+    void setEndpoints(int startX, int startY, int endX, int endY) {
+        this.startX = startX;
+        this.startY = startY;
+        this.endX = endX;
+        this.endY = endY;
+        overlayDirty = true;
+    }
+
+    // 每一幀讀取最新的搜索快照，閒置時回傳 null
+    void setFrontier(Supplier<SearchMonitor.Snapshot> frontier) {
+        this.frontier = frontier;
+    }
+
+    // 面板座標所在的格子 (x * size + y)，不在迷宮內時回傳 -1
+    long cellAt(int screenX, int screenY) {
+        if (maze == null) return -1;
+        int y = (int) Math.floor(viewport.toWorldX(screenX));
+        int x = (int) Math.floor(viewport.toWorldY(screenY));
+        if (x < 0 || x >= size || y < 0 || y >= size) return -1;
+        return (long) x * size + y;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        if (maze == null) return;
+        int width = getWidth(), height = getHeight();
+        double fitScale = Math.min(width, height) / (double) size;
+        viewport.setLimits(Math.min(fitScale, MAX_SCALE), maxScale());
+        if (viewport.isFitted() && viewport.fit(0, 0, size, size, width, height)) {
+            tiles = null;
+            overlayDirty = true;
+        }
+        drawWalls(g, width, height);
+
+        if (overlay == null || overlay.getWidth() != width || overlay.getHeight() != height) {
+            overlay = new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_ARGB);
+            overlayDirty = true;
+        }
+        if (overlayDirty) {
+            drawOverlay();
+            overlayDirty = false;
+        }
+        g.drawImage(overlay, 0, 0, null);
+
+        SearchMonitor.Snapshot snapshot = frontier.get();
+        if (snapshot != null) {
+            g.setColor(FRONTIER_COLOR);
+            for (int cell : snapshot.frontier()) {
+                fillCell(g, cell / size, cell % size, width, height);
+            }
+        }
+    }
+
+    // 分塊的鍵為 int，極大的迷宮限制最大倍率使分塊數不超過 int 範圍
+    private double maxScale() {
+        return Math.min(MAX_SCALE, 46340.0 * TILE / size);
+    }
+
+    private void drawWalls(Graphics g, int width, int height) {
+        double scale = viewport.scale();
+        long extent = (long) Math.ceil(size * scale);
+        if (tiles == null) {
+            tileColumns = (int) ((extent + TILE - 1) / TILE);
+            tiles = new TileCache<>(TILE_CACHE_SIZE, this::renderTile);
+        }
+        int originX = (int) Math.floor(viewport.originX()), originY = (int) Math.floor(viewport.originY());
+        int firstColumn = Math.max(0, Math.floorDiv(originX, TILE));
+        int firstRow = Math.max(0, Math.floorDiv(originY, TILE));
+        long lastColumn = Math.min(tileColumns - 1, Math.floorDiv(originX + width - 1, TILE));
+        long lastRow = Math.min(tileColumns - 1, Math.floorDiv(originY + height - 1, TILE));
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                g.drawImage(tiles.get(row * tileColumns + column), column * TILE - originX, row * TILE - originY, null);
+            }
+        }
+    }
+
+    // 在目前的縮放倍率下繪製一個牆壁分塊；超出迷宮的部分為背景色
+    private BufferedImage renderTile(int key) {
+        int row = key / tileColumns, column = key % tileColumns;
+        double scale = viewport.scale();
+        int background = getBackground().getRGB();
+        BufferedImage image = new BufferedImage(TILE, TILE, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        // 每個像素行對應的迷宮行 (y)，超出迷宮時為 -1
+        int[] cellColumn = new int[TILE];
+        for (int px = 0; px < TILE; px++) {
+            int y = (int) (((long) column * TILE + px) / scale);
+            cellColumn[px] = y < size ? y : -1;
+        }
+        int previousX = -1;
+        for (int py = 0; py < TILE; py++) {
+            int x = (int) (((long) row * TILE + py) / scale);
+            int offset = py * TILE;
+            if (x >= size) {
+                java.util.Arrays.fill(pixels, offset, offset + TILE, background);
+            } else if (x == previousX) {
+                // 放大時相鄰的像素列屬於同一列格子
+                System.arraycopy(pixels, offset - TILE, pixels, offset, TILE);
+            } else {
+                int lastY = -2, rgb = background;
+                for (int px = 0; px < TILE; px++) {
+                    int y = cellColumn[px];
+                    if (y != lastY) {
+                        rgb = y >= 0 && maze.get(x, y) ? WALL_RGB : background;
+                        lastY = y;
+                    }
+                    pixels[offset + px] = rgb;
+                }
+            }
+            previousX = x;
+        }
+        return image;
+    }
+
+    // 重畫路徑、起點與終點；縮小時多個相連的格子落在同一個像素，只畫一次
+    private void drawOverlay() {
+        int width = overlay.getWidth(), height = overlay.getHeight();
+        Graphics2D g = overlay.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, width, height);
+        g.setComposite(AlphaComposite.SrcOver);
+        if (path != null) {
+            g.setColor(PATH_COLOR);
+            int lastLeft = Integer.MIN_VALUE, lastTop = Integer.MIN_VALUE;
+            for (int cell : path) {
+                int x = cell / size, y = cell % size;
+                int left = screenLeft(y), top = screenTop(x);
+                if (left == lastLeft && top == lastTop) continue;
+                lastLeft = left;
+                lastTop = top;
+                fillCell(g, x, y, width, height);
+            }
+        }
+        // 起點與終點至少 3 像素，縮小時仍看得到
+        g.setColor(Color.GREEN);
+        fillMarker(g, startX, startY);
+        g.setColor(Color.RED);
+        fillMarker(g, endX, endY);
+        g.dispose();
+    }
+
+    private int screenLeft(int y) {
+        return (int) Math.floor(viewport.toScreenX(y));
+    }
+
+    private int screenTop(int x) {
+        return (int) Math.floor(viewport.toScreenY(x));
+    }
+
+    // 填滿格子 (x, y)，在面板外時不畫
+    private void fillCell(Graphics g, int x, int y, int width, int height) {
+        int left = screenLeft(y), top = screenTop(x);
+        int right = Math.max(left + 1, screenLeft(y + 1)), bottom = Math.max(top + 1, screenTop(x + 1));
+        if (right <= 0 || bottom <= 0 || left >= width || top >= height) return;
+        g.fillRect(left, top, right - left, bottom - top);
+    }
+
+    private void fillMarker(Graphics g, int x, int y) {
+        int left = screenLeft(y), top = screenTop(x);
+        int side = Math.max(3, screenLeft(y + 1) - left);
+        g.fillRect(left, top, side, side);
+    }
+}
@@ -0,0 +1,218 @@
+package fcu.web;
+
+import java.util.Arrays;
+
+// 方格迷宮的 DFS、BFS 與 IDDFS，格子以 x * size + y 編碼為 int，回傳起點到終點的有序格子編號
+// 三者都以明確堆疊或隊列實作，不受遞迴深度限制；標記用 BitGrid，BFS 的來向以兩個位元格記錄，
+// 每格共 3 位元，可用於超過記憶體的分塊迷宮
+// 鄰居順序與 MazeGame 原本的遞迴版本相同 (x+1, x-1, y+1, y-1)
+// 非執行緒安全：暫存狀態在多次搜索之間重複使用，每個執行緒應使用自己的實例
+public final class MazeSearch implements SearchCounters {
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DY = {0, 0, 1, -1};
+    private static final int[] EMPTY = new int[0];
+
+    private int size = -1;
+    // 已走訪標記
+    private BitGrid marked;
+    // BFS 到達每格時的方向編號 (0 到 3) 的低位與高位
+    private BitGrid cameLow, cameHigh;
+    // DFS 的堆疊：格子編號與下一個要嘗試的方向
+    private int[] stack = new int[64];
+    private byte[] next = new byte[64];
+    private int[] queue = new int[0];
+    private int expanded, peak;
+    private long relaxed;
+    private SearchMonitor monitor;
+
+    private void prepare(MazeView maze) {
+        if (maze.size() != size) {
+            size = maze.size();
+            marked = new BitGrid(size);
+            cameLow = null;
+            cameHigh = null;
+        } else {
+            marked.clearAll();
+        }
+        expanded = 0;
+        relaxed = 0;
+        peak = 0;
+    }
+
+    private boolean open(MazeView maze, int x, int y) {
+        return x >= 0 && x < size && y >= 0 && y < size && !maze.get(x, y);
+    }
+
+    // 深度優先搜索，找到的路徑不保證最短
+    // 走訪過的格子退回後仍保留標記，成本與可達格數成正比，有迴路的迷宮也不會重複走訪
+    public int[] dfs(MazeView maze, int startX, int startY, int endX, int endY) {
+        prepare(maze);
+        if (!open(maze, startX, startY)) return EMPTY;
+        int top = push(0, startX * size + startY);
+        marked.set(startX, startY);
+        if (startX == endX && startY == endY) return Arrays.copyOf(stack, 1);
+
+        while (top > 0) {
+            int cell = stack[top - 1];
+            int d = next[top - 1]++;
+            if (d == 4) {
+                top--;
+                continue;
+            }
+            int nx = cell / size + DX[d], ny = cell % size + DY[d];
+            if (!open(maze, nx, ny)) continue;
+            relaxed++;
+            if (marked.get(nx, ny)) continue;
+            top = push(top, nx * size + ny);
+            if (nx == endX && ny == endY) return Arrays.copyOf(stack, top);
+            marked.set(nx, ny);
+        }
+        return EMPTY;
+    }
+
+    // 迭代加深深度優先搜索：每一輪清除走訪標記並從頭走訪，走訪過的格子在同一輪內不再進入
+    public int[] iddfs(MazeView maze, int startX, int startY, int endX, int endY) {
+        prepare(maze);
+        if (!open(maze, startX, startY)) return EMPTY;
+        if (startX == endX && startY == endY) return new int[]{startX * size + startY};
+        for (int depth = 1; depth < size * size; depth++) {
+            marked.clearAll();
+            int top = push(0, startX * size + startY);
+            marked.set(startX, startY);
+            while (top > 0) {
+                int cell = stack[top - 1];
+                int d = next[top - 1]++;
+                if (d == 4) {
+                    top--;
+                    continue;
+                }
+                int nx = cell / size + DX[d], ny = cell % size + DY[d];
+                if (!open(maze, nx, ny)) continue;
+                relaxed++;
+                if (marked.get(nx, ny)) continue;
+                if (nx == endX && ny == endY) {
+                    top = push(top, nx * size + ny);
+                    return Arrays.copyOf(stack, top);
+                }
+                // 堆疊中有 top 格，再往下一格即用完深度
+                if (top == depth) continue;
+                top = push(top, nx * size + ny);
+                marked.set(nx, ny);
+            }
+        }
+        return EMPTY;
+    }
+
+    private int push(int top, int cell) {
+        if (top == stack.length) {
+            stack = Arrays.copyOf(stack, 2 * top);
+            next = Arrays.copyOf(next, 2 * top);
+        }
+        stack[top] = cell;
+        next[top] = 0;
+        expanded++;
+        if (top >= peak) peak = top + 1;
+        if (monitor != null && (expanded & SearchMonitor.CHECK_MASK) == 0 && monitor.checkpoint()) {
+            monitor.publish(stack, 0, top + 1, expanded);
+        }
+        return top + 1;
+    }
+
+    // 廣度優先搜索，回傳最短路徑
+    public int[] bfs(MazeView maze, int startX, int startY, int endX, int endY) {
+        prepare(maze);
+        if (!open(maze, startX, startY)) return EMPTY;
+        if (cameLow == null) {
+            cameLow = new BitGrid(size);
+            cameHigh = new BitGrid(size);
+        }
+        // 以 x * size + y 編碼的 int 隊列，依需要擴充，只佔用實際的搜索前緣
+        if (queue.length == 0) queue = new int[Math.min(size * size, 1 << 16)];
+        int head = 0, tail = 0;
+
+        queue[tail++] = startX * size + startY;
+        marked.set(startX, startY);
+
+        while (head < tail) {
+            int curr = queue[head++];
+            expanded++;
+            if (monitor != null && (expanded & SearchMonitor.CHECK_MASK) == 0 && monitor.checkpoint()) {
+                monitor.publish(queue, head, tail, expanded);
+            }
+            int x = curr / size, y = curr % size;
+
+            if (x == endX && y == endY) return trace(startX, startY, endX, endY);
+
+            for (int d = 0; d < 4; d++) {
+                int nx = x + DX[d], ny = y + DY[d];
+                if (!open(maze, nx, ny)) continue;
+                relaxed++;
+                if (!marked.get(nx, ny)) {
+                    if (tail == queue.length) {
+                        if (head > 0) {
+                            System.arraycopy(queue, head, queue, 0, tail - head);
+                            tail -= head;
+                            head = 0;
+                        } else {
+                            queue = Arrays.copyOf(queue, Math.min(size * size, 2 * queue.length));
+                        }
+                    }
+                    queue[tail++] = nx * size + ny;
+                    if (tail - head > peak) peak = tail - head;
+                    marked.set(nx, ny);
+                    cameLow.set(nx, ny, (d & 1) != 0);
+                    cameHigh.set(nx, ny, (d & 2) != 0);
+                }
+            }
+        }
+
+        return EMPTY;
+    }
+
+    // 設定之後搜索使用的 SearchMonitor (取消、逾時與進度快照)，null 表示不監看
+    public void setMonitor(SearchMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    // 由終點沿著記錄的來向走回起點
+    private int[] trace(int startX, int startY, int endX, int endY) {
+        int length = 0;
+        int x = endX, y = endY;
+        while (true) {
+            if (length == stack.length) {
+                stack = Arrays.copyOf(stack, 2 * length);
+                next = Arrays.copyOf(next, 2 * length);
+            }
+            stack[length++] = x * size + y;
+            if (x == startX && y == startY) break;
+            int d = (cameLow.get(x, y) ? 1 : 0) | (cameHigh.get(x, y) ? 2 : 0);
+            x -= DX[d];
+            y -= DY[d];
+        }
+        int[] path = new int[length];
+        for (int i = 0; i < length; i++) path[i] = stack[length - 1 - i];
+        return path;
+    }
+
+    // 最近一次搜索進入 (DFS、IDDFS) 或取出 (BFS) 的格子數，IDDFS 為各輪的總和
+    @Override
+    public int expandedCount() {
+        return expanded;
+    }
+
+    @Override
+    public long relaxedCount() {
+        return relaxed;
+    }
+
+    // 堆疊 (DFS、IDDFS) 或隊列 (BFS) 的最大大小
+    @Override
+    public int peakOpenSize() {
+        return peak;
+    }
+
+    @Override
+    public long heapOperations() {
+        return 0;
+    }
+}
@@ -0,0 +1,195 @@
+package fcu.web;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// 方格迷宮的無介面尋路 API，可在伺服器或批次程式中使用，不載入 AWT/Swing
+// 執行緒安全：各演算法的暫存狀態放在 ThreadLocal 中，每個執行緒第一次使用時建立並在之後重複使用；
+// 搜索期間迷宮不可被修改 (唯讀的 BitGrid、TiledMaze 與 JPS+ 跳躍距離表可由多個執行緒共用)
+// A* 與 JPS 的暫存陣列為每格數個 int，DFS、BFS 與 IDDFS 每格只用數個位元，適合超過記憶體的分塊迷宮
+public final class MazeSolver {
+    public enum Algorithm {
+        DFS("DFS"),
+        BFS("BFS"),
+        A_STAR("A*"),
+        IDDFS("IDDFS"),
+        BIDIRECTIONAL_BFS("雙向BFS"),
+        JPS("JPS");
+
+        private final String label;
+
+        Algorithm(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+
+        // 依 MazeGame 按鈕上的名稱取得演算法
+        public static Algorithm of(String label) {
+            for (Algorithm algorithm : values()) {
+                if (algorithm.label.equals(label)) return algorithm;
+            }
+            throw new IllegalArgumentException("未知的搜索方法: " + label);
+        }
+    }
+
+    // 每個執行緒的暫存狀態，需要時才建立
+    private static final class Engines {
+        MazeSearch mazeSearch;
+        GridAStar aStar;
+        GridBidirectionalBfs biBfs;
+        GridJps jps;
+
+        // 搜索結束 (包括被取消) 後解除監看，避免之後的搜索沿用
+        void setMonitor(SearchMonitor monitor) {
+            if (mazeSearch != null) mazeSearch.setMonitor(monitor);
+            if (aStar != null) aStar.setMonitor(monitor);
+            if (biBfs != null) biBfs.setMonitor(monitor);
+            if (jps != null) jps.setMonitor(monitor);
+        }
+    }
+
+    private static final ThreadLocal<Engines> ENGINES = ThreadLocal.withInitial(Engines::new);
+
+    private MazeSolver() {
+    }
+
+    public static PathResult solve(MazeView maze, Algorithm algorithm, int startX, int startY, int endX, int endY) {
+        return solve(maze, null, algorithm, startX, startY, endX, endY);
+    }
+
+    // jumpTable 不為 null 時 JPS 改用 JPS+；其他演算法忽略此參數
+    public static PathResult solve(MazeView maze, GridJps.JumpTable jumpTable, Algorithm algorithm,
+                                   int startX, int startY, int endX, int endY) {
+        return solve(maze, jumpTable, algorithm, startX, startY, endX, endY, null);
+    }
+
+    // 可取消的版本，供背景執行緒使用：monitor 取消或逾時時拋出 CancellationException，
+    // 搜索中定期把開放集合發佈到 monitor.snapshot()；monitor 為 null 時與上面相同
+    public static PathResult solve(MazeView maze, GridJps.JumpTable jumpTable, Algorithm algorithm,
+                                   int startX, int startY, int endX, int endY, SearchMonitor monitor) {
+        int size = maze.size();
+        Objects.checkIndex(startX, size);
+        Objects.checkIndex(startY, size);
+        Objects.checkIndex(endX, size);
+        Objects.checkIndex(endY, size);
+        if (jumpTable != null && jumpTable.size() != size) {
+            throw new IllegalArgumentException("跳躍距離表與迷宮大小不符: " + jumpTable.size() + " / " + size);
+        }
+        String name = algorithm == Algorithm.JPS && jumpTable != null ? "JPS+" : algorithm.label;
+        SearchMetrics.Recorder recorder = SearchMetrics.start(name);
+        Engines engines = ENGINES.get();
+        try {
+            return search(engines, maze, jumpTable, algorithm, name, recorder, startX, startY, endX, endY, monitor);
+        } finally {
+            if (monitor != null) engines.setMonitor(null);
+        }
+    }
+
+    private static PathResult search(Engines engines, MazeView maze, GridJps.JumpTable jumpTable, Algorithm algorithm,
+                                     String name, SearchMetrics.Recorder recorder,
+                                     int startX, int startY, int endX, int endY, SearchMonitor monitor) {
+        long startTime = System.nanoTime();
+        int[] path;
+        SearchCounters counters;
+        // 階段: setup (取得或建立引擎)、search、path (由搜索結果建立路徑，DFS/BFS/IDDFS 與雙向 BFS 含在 search 中)
+        switch (algorithm) {
+            case A_STAR: {
+                if (engines.aStar == null) engines.aStar = new GridAStar();
+                GridAStar search = engines.aStar;
+                search.setMonitor(monitor);
+                if (recorder != null) recorder.phase("setup");
+                boolean found = search.search(maze, startX, startY, endX, endY);
+                if (recorder != null) recorder.phase("search");
+                path = found ? search.path() : new int[0];
+                if (recorder != null) recorder.phase("path");
+                counters = search;
+                break;
+            }
+            case BIDIRECTIONAL_BFS: {
+                if (engines.biBfs == null) engines.biBfs = new GridBidirectionalBfs();
+                engines.biBfs.setMonitor(monitor);
+                if (recorder != null) recorder.phase("setup");
+                path = engines.biBfs.search(maze, startX, startY, endX, endY);
+                if (recorder != null) recorder.phase("search");
+                counters = engines.biBfs;
+                break;
+            }
+            case JPS: {
+                if (engines.jps == null) engines.jps = new GridJps();
+                GridJps search = engines.jps;
+                search.setMonitor(monitor);
+                if (recorder != null) recorder.phase("setup");
+                boolean found = search.search(maze, jumpTable, startX, startY, endX, endY);
+                if (recorder != null) recorder.phase("search");
+                path = found ? search.path() : new int[0];
+                if (recorder != null) recorder.phase("path");
+                counters = search;
+                break;
+            }
+            default: {
+                if (engines.mazeSearch == null) engines.mazeSearch = new MazeSearch();
+                MazeSearch search = engines.mazeSearch;
+                search.setMonitor(monitor);
+                if (recorder != null) recorder.phase("setup");
+                if (algorithm == Algorithm.DFS) {
+                    path = search.dfs(maze, startX, startY, endX, endY);
+                } else if (algorithm == Algorithm.BFS) {
+                    path = search.bfs(maze, startX, startY, endX, endY);
+                } else {
+                    path = search.iddfs(maze, startX, startY, endX, endY);
+                }
+                if (recorder != null) recorder.phase("search");
+                counters = search;
+                break;
+            }
+        }
+        long nanos = System.nanoTime() - startTime;
+        int expanded = counters.expandedCount();
+        SearchMetrics metrics = recorder == null ? null : recorder.finish(path, path.length - 1, expanded, counters);
+        return new PathResult(name, path, path.length - 1, expanded, nanos, metrics);
+    }
+
+    // 多個執行緒同時在同一個迷宮上搜索，確認最短路徑演算法的結果一致: MazeSolver [迷宮大小] [執行緒數] [種子]
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1001;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+        BitGrid maze = new BitGrid(size);
+        maze.setAll();
+        MazeGenerator.of("Backtracker").generate(maze, 0, 0, new FastRandom(seed));
+        int end = (size - 1) & ~1;
+        GridJps.JumpTable table = GridJps.JumpTable.compute(maze);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<PathResult>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                for (Algorithm algorithm : Algorithm.values()) {
+                    // IDDFS 的成本約為路徑長度乘以格數，只在小迷宮上執行
+                    if (algorithm == Algorithm.IDDFS && size > 201) continue;
+                    results.add(pool.submit(() -> solve(maze, table, algorithm, 0, 0, end, end)));
+                }
+            }
+            double shortest = -1;
+            for (Future<PathResult> future : results) {
+                PathResult result = future.get();
+                System.out.println(result);
+                if (result.algorithm().equals("DFS") || result.algorithm().equals("IDDFS")) continue;
+                if (shortest < 0) shortest = result.cost();
+                if (result.cost() != shortest) {
+                    throw new IllegalStateException(result.algorithm() + " 的路徑長度 " + result.cost() + "，預期 " + shortest);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
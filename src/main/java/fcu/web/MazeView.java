@@ -0,0 +1,9 @@
+package fcu.web;
+
+// 唯讀的正方形迷宮牆壁視圖，get(x, y) 為 true 表示 (x, y) 是牆壁
+// 可由記憶體內的 BitGrid 或磁碟上的分塊迷宮檔實作
+public interface MazeView {
+    int size();
+
+    boolean get(int x, int y);
+}
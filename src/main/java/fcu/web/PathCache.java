@@ -0,0 +1,183 @@
+package fcu.web;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+
+// 最短路徑查詢結果的 LRU 快取，鍵為 (圖的版本, 演算法, 起點, 終點)，路徑以 int[] 存放
+// 容量以項目數與路徑頂點總數兩者限制，任一超過時淘汰最久未使用的項目
+// 也可登錄已算好的最短路徑樹 (例如全源 BFS、DynamicDijkstra)：同一起點到任何終點的查詢直接由樹重建路徑
+// 版本由呼叫端維護，圖改變時遞增；查詢或加入較新的版本時自動清除所有舊項目，較舊版本的結果 (背景搜索在圖改變前開始) 被忽略
+// 所有方法皆同步，可由背景搜索執行緒直接加入結果
+public final class PathCache {
+    // 以 source 為根的最短路徑樹
+    public interface Tree {
+        int vertexCount();
+
+        // 根與不可達的頂點為 -1
+        int parent(int v);
+
+        // 不可達的頂點為正無限大
+        double distance(int v);
+    }
+
+    private static final class Key {
+        final String algorithm;
+        final int source, target;
+
+        Key(String algorithm, int source, int target) {
+            this.algorithm = algorithm;
+            this.source = source;
+            this.target = target;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return source == other.source && target == other.target && algorithm.equals(other.algorithm);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(algorithm, source, target);
+        }
+    }
+
+    private static final class Entry {
+        final int[] path;
+        final double cost;
+
+        Entry(int[] path, double cost) {
+            this.path = path;
+            this.cost = cost;
+        }
+    }
+
+    // 每棵樹佔用 O(V) 記憶體，只保留最近登錄的幾棵
+    private static final int MAX_TREES = 4;
+
+    private final int capacity;
+    private final long maxCells;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // 樹的鍵為 (演算法, 起點, -1)
+    private final LinkedHashMap<Key, Tree> trees = new LinkedHashMap<>(16, 0.75f, true);
+    private long version = Long.MIN_VALUE;
+    private long cells;
+    private long hits, treeHits, misses, evictions;
+
+    // 最多 capacity 個項目，所有路徑合計最多 maxCells 個頂點
+    public PathCache(int capacity, long maxCells) {
+        if (capacity < 1) throw new IllegalArgumentException("快取容量至少為 1: " + capacity);
+        this.capacity = capacity;
+        this.maxCells = maxCells;
+    }
+
+    // 快取的結果 (展開數為 0，時間為查詢快取的時間)；沒有時回傳 null
+    public synchronized PathResult get(long version, String algorithm, int source, int target) {
+        if (!advance(version)) {
+            misses++;
+            return null;
+        }
+        long startTime = System.nanoTime();
+        Key key = new Key(algorithm, source, target);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            Tree tree = trees.get(new Key(algorithm, source, -1));
+            if (tree == null || target < 0 || target >= tree.vertexCount()) {
+                misses++;
+                return null;
+            }
+            entry = fromTree(tree, target);
+            store(key, entry);
+            treeHits++;
+        } else {
+            hits++;
+        }
+        return new PathResult(algorithm, entry.path, entry.cost, 0, System.nanoTime() - startTime);
+    }
+
+    // 加入一次查詢的結果 (包括找不到路徑)
+    public synchronized void put(long version, String algorithm, int source, int target, PathResult result) {
+        if (!advance(version)) return;
+        store(new Key(algorithm, source, target), new Entry(result.path(), result.cost()));
+    }
+
+    // 登錄以 source 為根的最短路徑樹；樹的內容在 version 改變之前不應修改
+    public synchronized void putTree(long version, String algorithm, int source, Tree tree) {
+        if (!advance(version)) return;
+        trees.put(new Key(algorithm, source, -1), tree);
+        if (trees.size() > MAX_TREES) {
+            Iterator<Key> eldest = trees.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        trees.clear();
+        cells = 0;
+    }
+
+    // version 較新時清除所有項目；較舊時回傳 false
+    private boolean advance(long version) {
+        if (version < this.version) return false;
+        if (version > this.version) {
+            clear();
+            this.version = version;
+        }
+        return true;
+    }
+
+    private void store(Key key, Entry entry) {
+        Entry old = entries.put(key, entry);
+        if (old != null) cells -= old.path.length;
+        cells += entry.path.length;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > 1 && (entries.size() > capacity || cells > maxCells)) {
+            cells -= eldest.next().path.length;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private static Entry fromTree(Tree tree, int target) {
+        double cost = tree.distance(target);
+        if (cost == Double.POSITIVE_INFINITY) return new Entry(new int[0], cost);
+        int length = 0;
+        for (int at = target; at != -1; at = tree.parent(at)) length++;
+        int[] path = new int[length];
+        for (int at = target, i = length - 1; at != -1; at = tree.parent(at)) {
+            path[i--] = at;
+        }
+        return new Entry(path, cost);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long hits() {
+        return hits + treeHits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    public synchronized void resetStats() {
+        hits = treeHits = misses = evictions = 0;
+    }
+
+    public synchronized String stats() {
+        long total = hits + treeHits + misses;
+        return String.format("路徑快取: 命中 %,d (由最短路徑樹 %,d), 未命中 %,d, 淘汰 %,d (命中率 %.1f%%), %,d 條路徑 %,d 個頂點",
+                hits + treeHits, treeHits, misses, evictions, total == 0 ? 0.0 : 100.0 * (hits + treeHits) / total,
+                entries.size(), cells);
+    }
+}
@@ -0,0 +1,49 @@
+package fcu.web;
+
+// 可重複查詢的點對點最短路徑引擎
+// 實作非執行緒安全，暫存陣列在多次查詢之間重複使用；多執行緒時每個執行緒應持有自己的實例
+public interface PathEngine {
+    // 回傳由 start 到 end 的最短路徑，不可達時回傳空陣列
+    int[] search(int start, int end);
+
+    // 只計算最短距離，不建立路徑陣列；不可達時為無限大
+    double shortestDistance(int start, int end);
+
+    // 最近一次搜索的最短距離，不可達時為無限大
+    double distance();
+
+    // 最近一次搜索展開的頂點數
+    int expandedCount();
+
+    // 以單向 Dijkstra 實作，找到終點即停止
+    static PathEngine dijkstra(IntGraph graph) {
+        DijkstraSearch dijkstra = new DijkstraSearch(graph);
+        return new PathEngine() {
+            private int end = -1;
+
+            @Override
+            public int[] search(int start, int end) {
+                dijkstra.search(start, end);
+                this.end = end;
+                return dijkstra.path(end);
+            }
+
+            @Override
+            public double shortestDistance(int start, int end) {
+                dijkstra.search(start, end);
+                this.end = end;
+                return dijkstra.distance(end);
+            }
+
+            @Override
+            public double distance() {
+                return end < 0 ? Double.POSITIVE_INFINITY : dijkstra.distance(end);
+            }
+
+            @Override
+            public int expandedCount() {
+                return dijkstra.settledCount();
+            }
+        };
+    }
+}
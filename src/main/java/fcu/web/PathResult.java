@@ -0,0 +1,62 @@
+package fcu.web;
+
+// 一次最短路徑查詢的結果：路徑、成本與統計，不可變
+// 路徑為起點到終點的頂點編號 (方格迷宮為 x * size + y)，找不到時為空陣列；呼叫端不應修改 path() 回傳的陣列
+public final class PathResult {
+    private final String algorithm;
+    private final int[] path;
+    private final double cost;
+    private final int expanded;
+    private final long nanos;
+    private final SearchMetrics metrics;
+
+    public PathResult(String algorithm, int[] path, double cost, int expanded, long nanos) {
+        this(algorithm, path, cost, expanded, nanos, null);
+    }
+
+    public PathResult(String algorithm, int[] path, double cost, int expanded, long nanos, SearchMetrics metrics) {
+        this.algorithm = algorithm;
+        this.path = path;
+        this.cost = path.length == 0 ? Double.POSITIVE_INFINITY : cost;
+        this.expanded = expanded;
+        this.nanos = nanos;
+        this.metrics = metrics;
+    }
+
+    public String algorithm() {
+        return algorithm;
+    }
+
+    public boolean found() {
+        return path.length > 0;
+    }
+
+    public int[] path() {
+        return path;
+    }
+
+    // 路徑的總權重 (無權重的圖與迷宮為步數)，找不到時為無限大
+    public double cost() {
+        return cost;
+    }
+
+    // 搜索展開的頂點或格子數，各演算法的計算方式見對應的搜索類別
+    public int expandedCount() {
+        return expanded;
+    }
+
+    public long nanos() {
+        return nanos;
+    }
+
+    // 啟用 SearchMetrics 時的詳細指標，停用時為 null
+    public SearchMetrics metrics() {
+        return metrics;
+    }
+
+    @Override
+    public String toString() {
+        if (!found()) return algorithm + ": 未找到路徑, 展開 " + expanded + ", " + nanos + " 奈秒";
+        return algorithm + ": " + path.length + " 個頂點, 成本 " + cost + ", 展開 " + expanded + ", " + nanos + " 奈秒";
+    }
+}
@@ -1,21 +1,105 @@
+import fcu.web.AltSearch;
+import fcu.web.ChQuery;
+import fcu.web.ContractionHierarchy;
+import fcu.web.CsrGraph;
+import fcu.web.DynamicDijkstra;
+import fcu.web.DynamicGraph;
+import fcu.web.GraphFile;
+import fcu.web.GraphSolver;
+import fcu.web.IntGraph;
+import fcu.web.Landmarks;
+import fcu.web.MappedGraph;
+import fcu.web.PathCache;
+import fcu.web.PathResult;
+import fcu.web.RoadMapGenerator;
+import fcu.web.SearchMonitor;
+import fcu.web.SearchRunner;
+import fcu.web.SpatialGrid;
+import fcu.web.Viewport;
+
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 public class RandomRoadMapGUI extends JFrame {
     private static final int MAP_SIZE = 600;
     private static final int NODE_SIZE = 20;
     private static final int NODE_COUNT = 10;
+    // Average spacing between generated nodes; small maps still fill the default panel
+    private static final int NODE_SPACING = 60;
+    // Above this many nodes in view, nodes are drawn as unlabeled dots and roads without antialiasing
+    private static final int DETAIL_LIMIT = 2000;
+    // Repeated queries are answered from a cache of up to this many routes and route nodes in total
+    private static final int ROUTE_CACHE_SIZE = 1024;
+    private static final long ROUTE_CACHE_NODES = 1L << 22;
+    private static final int LANDMARK_COUNT = 16;
+    private static final float CONGESTION_FACTOR = 3f;
+    // Searches run on a background thread; abandoned after this long and repainted at most this often
+    private static final long SEARCH_TIMEOUT_MILLIS = 30_000;
+    private static final int FRAME_RATE = 30;
+    private static final Color FRONTIER_COLOR = new Color(144, 238, 144);
+    // Shared by every paint instead of being allocated per edge and per label
+    private static final Font LABEL_FONT = new Font("Arial", Font.BOLD, 12);
+    private static final BasicStroke ROAD_STROKE = new BasicStroke(1);
+    private static final BasicStroke CONGESTED_STROKE = new BasicStroke(2);
+    private static final BasicStroke ROUTE_STROKE = new BasicStroke(3);
 
     private ArrayList<Point> nodes;
-    private ArrayList<int[]> edges;
+    // Node corners as interleaved floats (x0, y0, x1, y1, ...) and a grid index over them for picking,
+    // snapping and culling
+    private float[] coordinates;
+    private SpatialGrid nodeIndex;
+    // Longest road on the map; nodes this far outside the view may still have roads crossing it
+    private double maxRoadLength;
+    // Connected component of each node; routes between components are rejected without searching
+    private int[] componentOf;
+    private IntGraph roadGraph;
+    // Bumped whenever the map or its weights change; cached routes from older versions are dropped
+    private long graphVersion;
+    private final PathCache routeCache = new PathCache(ROUTE_CACHE_SIZE, ROUTE_CACHE_NODES);
+    // Headless search API for the engines that need no preprocessing
+    private GraphSolver solver;
+    // Contraction Hierarchies query engine; preprocessed on first use and dropped when the map changes
+    private ChQuery chQuery;
+    // ALT engine; landmark tables are computed on first use and dropped when the map changes
+    private AltSearch altSearch;
+    // Mutable copy of the road graph, created on the first traffic update
+    private DynamicGraph dynamicGraph;
+    // Shortest-path tree from the start node, repaired in place after each traffic update
+    private DynamicDijkstra liveRoutes;
+    private ArrayList<int[]> congestedRoads = new ArrayList<>();
+    private JComboBox<String> engineBox;
+    private JLabel statusLabel;
     private JPanel mapPanel;
     private JButton generateButton;
     private JButton shortestPathButton;
+    private JButton saveButton;
+    private JButton loadButton;
+    private JButton trafficButton;
+    private JButton cancelButton;
+    private JTextField nodeCountField;
+    // Blank for a different map on every click
+    private JTextField seedField;
+    private final SearchRunner runner;
     private int startNode = -1;
     private int endNode = -1;
-    private ArrayList<Integer> shortestPath;
+    private int[] shortestPath;
+    // Wheel zoom and drag pan over map coordinates; nodes keep their on-screen size
+    private final Viewport viewport = new Viewport();
+    // Bounding box of the nodes, fitted to the panel until the user zooms or pans
+    private double worldLeft, worldTop, worldWidth, worldHeight;
+    // Roads, congestion and nodes rendered once per map, traffic update or view change; the route,
+    // frontier and endpoints are drawn over it on every repaint
+    private BufferedImage mapLayer;
+    private boolean mapLayerDirty = true;
 
     public RandomRoadMapGUI() {
         setTitle("Random Road Map Generator");
@@ -30,12 +114,17 @@ public class RandomRoadMapGUI extends JFrame {
             }
         };
         mapPanel.setPreferredSize(new Dimension(MAP_SIZE, MAP_SIZE));
+        runner = new SearchRunner(this::showProgress, FRAME_RATE);
         mapPanel.addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
-                selectNode(e.getX(), e.getY());
+                selectNode(e.getX(), e.getY(), e.isShiftDown());
             }
         });
+        viewport.install(mapPanel, zoomed -> {
+            mapLayerDirty = true;
+            mapPanel.repaint();
+        });
 
         JPanel buttonPanel = new JPanel();
         generateButton = new JButton("Generate New Map");
@@ -43,8 +132,40 @@ public class RandomRoadMapGUI extends JFrame {
         shortestPathButton = new JButton("Find Shortest Path");
         shortestPathButton.addActionListener(e -> findShortestPath());
 
+        saveButton = new JButton("Save Map");
+        saveButton.addActionListener(e -> saveMap());
+        loadButton = new JButton("Load Map");
+        loadButton.addActionListener(e -> loadMapFile());
+        trafficButton = new JButton("Traffic Update");
+        trafficButton.addActionListener(e -> applyTraffic());
+        cancelButton = new JButton("Cancel");
+        cancelButton.setEnabled(false);
+        cancelButton.addActionListener(e -> {
+            runner.cancel();
+            cancelButton.setEnabled(false);
+            statusLabel.setText("Search cancelled");
+            mapPanel.repaint();
+        });
+
+        nodeCountField = new JTextField(Integer.toString(NODE_COUNT), 7);
+        seedField = new JTextField(6);
+        buttonPanel.add(new JLabel("Nodes:"));
+        buttonPanel.add(nodeCountField);
+        buttonPanel.add(new JLabel("Seed:"));
+        buttonPanel.add(seedField);
         buttonPanel.add(generateButton);
         buttonPanel.add(shortestPathButton);
+        buttonPanel.add(saveButton);
+        buttonPanel.add(loadButton);
+        buttonPanel.add(trafficButton);
+        buttonPanel.add(cancelButton);
+
+        engineBox = new JComboBox<>(new String[]{"Dijkstra", "Bidirectional Dijkstra", "Bidirectional A*",
+                "Contraction Hierarchies", "ALT"});
+        engineBox.addActionListener(e -> findShortestPath());
+        statusLabel = new JLabel(" ");
+        buttonPanel.add(engineBox);
+        buttonPanel.add(statusLabel);
 
         add(mapPanel, BorderLayout.CENTER);
         add(buttonPanel, BorderLayout.SOUTH);
@@ -54,153 +175,524 @@ public class RandomRoadMapGUI extends JFrame {
         generateMap();
     }
 
+    // Scatter the requested number of nodes and join each one to its nearest neighbours. The generator
+    // guarantees a connected map and runs on the background thread, so large maps do not block the UI
     private void generateMap() {
-        nodes = new ArrayList<>();
-        edges = new ArrayList<>();
-        Random random = new Random();
-
-        // Generate nodes
-        for (int i = 0; i < NODE_COUNT; i++) {
-            int x = random.nextInt(MAP_SIZE - NODE_SIZE);
-            int y = random.nextInt(MAP_SIZE - NODE_SIZE);
-            nodes.add(new Point(x, y));
-        }
-
-        // Generate edges
-        for (int i = 0; i < NODE_COUNT; i++) {
-            for (int j = i + 1; j < NODE_COUNT; j++) {
-                if (random.nextDouble() < 0.3) { // 30% chance to create an edge
-                    edges.add(new int[]{i, j});
-                }
+        int count;
+        long seed;
+        try {
+            count = Integer.parseInt(nodeCountField.getText().trim());
+            String seedText = seedField.getText().trim();
+            seed = seedText.isEmpty() ? System.nanoTime() : Long.parseLong(seedText);
+        } catch (NumberFormatException ex) {
+            statusLabel.setText("Enter a node count and an optional numeric seed");
+            return;
+        }
+        if (count < 1) {
+            statusLabel.setText("The map needs at least one node");
+            return;
+        }
+        int side = Math.max(MAP_SIZE - NODE_SIZE, (int) Math.ceil(Math.sqrt(count) * NODE_SPACING));
+        long startTime = System.nanoTime();
+        cancelButton.setEnabled(true);
+        statusLabel.setText(String.format("Generating %,d nodes...", count));
+        runner.start(monitor -> RoadMapGenerator.generate(count, side, RoadMapGenerator.DEFAULT_NEIGHBORS, seed), 0,
+                map -> {
+                    float[] coordinates = map.coordinates();
+                    ArrayList<Point> generated = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        generated.add(new Point((int) coordinates[2 * i], (int) coordinates[2 * i + 1]));
+                    }
+                    loadMap(generated, map.graph());
+                    statusLabel.setText(String.format("Generated %,d nodes and %,d roads in %.0f ms", count,
+                            map.graph().edgeCount() / 2, (System.nanoTime() - startTime) / 1e6));
+                }, message -> {
+                    cancelButton.setEnabled(false);
+                    statusLabel.setText(message);
+                });
+    }
+
+    // Load an existing road graph; roads are drawn straight from its adjacency
+    public void loadMap(ArrayList<Point> nodes, IntGraph graph) {
+        stopSearch();
+        this.nodes = nodes;
+        graphVersion++;
+        coordinates = new float[2 * nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            coordinates[2 * i] = nodes.get(i).x;
+            coordinates[2 * i + 1] = nodes.get(i).y;
+        }
+        nodeIndex = new SpatialGrid(coordinates);
+        attachEngines(graph);
+        dynamicGraph = null;
+        liveRoutes = null;
+        congestedRoads = new ArrayList<>();
+        componentOf = componentLabels(graph);
+        maxRoadLength = 0;
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                int w = graph.target(e);
+                maxRoadLength = Math.max(maxRoadLength, Math.hypot(coordinates[2 * v] - coordinates[2 * w],
+                        coordinates[2 * v + 1] - coordinates[2 * w + 1]));
             }
         }
 
         startNode = -1;
         endNode = -1;
         shortestPath = null;
+        fitMap();
         mapPanel.repaint();
     }
 
+    // Fit the bounding box of all nodes to the panel
+    private void fitMap() {
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (Point node : nodes) {
+            minX = Math.min(minX, node.x);
+            minY = Math.min(minY, node.y);
+            maxX = Math.max(maxX, node.x);
+            maxY = Math.max(maxY, node.y);
+        }
+        if (nodes.isEmpty()) {
+            minX = minY = 0;
+            maxX = maxY = MAP_SIZE - NODE_SIZE;
+        }
+        // Points are node corners, so the box spans the full discs of the outermost nodes
+        worldLeft = minX;
+        worldTop = minY;
+        worldWidth = maxX - minX + NODE_SIZE;
+        worldHeight = maxY - minY + NODE_SIZE;
+        viewport.fit(worldLeft, worldTop, worldWidth, worldHeight,
+                Math.max(1, mapPanel.getWidth()), Math.max(1, mapPanel.getHeight()));
+        mapLayerDirty = true;
+    }
+
+    // Point the search engines at a graph; preprocessed engines are rebuilt on next use
+    private void attachEngines(IntGraph graph) {
+        this.roadGraph = graph;
+        // Roads are undirected, so the graph is its own reverse
+        this.solver = new GraphSolver(graph, graph, coordinates);
+        this.chQuery = null;
+        this.altSearch = null;
+    }
+
+    // Congest a road on the current route and repair the shortest-path tree instead of searching again
+    private void applyTraffic() {
+        if (startNode == -1 || endNode == -1 || shortestPath == null || shortestPath.length < 2) {
+            statusLabel.setText("Select a start and end node with a route first");
+            return;
+        }
+        // The weight change below must not race a background search over the same graph
+        stopSearch();
+        if (dynamicGraph == null) {
+            dynamicGraph = DynamicGraph.copyOf(roadGraph);
+            attachEngines(dynamicGraph);
+        }
+        if (liveRoutes == null) {
+            liveRoutes = new DynamicDijkstra(dynamicGraph, dynamicGraph);
+        }
+        if (liveRoutes.source() != startNode) {
+            liveRoutes.compute(startNode);
+        }
+        int i = new Random().nextInt(shortestPath.length - 1);
+        int a = shortestPath[i], b = shortestPath[i + 1];
+
+        long startTime = System.nanoTime();
+        dynamicGraph.setUndirectedWeight(a, b, dynamicGraph.weightOf(a, b) * CONGESTION_FACTOR);
+        int repaired = liveRoutes.edgeChanged(a, b) + liveRoutes.edgeChanged(b, a);
+        long duration = System.nanoTime() - startTime;
+        congestedRoads.add(new int[]{a, b});
+        mapLayerDirty = true;
+        // Shortcuts and landmark distances were computed for the old weights
+        chQuery = null;
+        altSearch = null;
+        // Routes cached for the old weights are stale; the repaired tree answers Dijkstra queries from the start
+        graphVersion++;
+        routeCache.putTree(graphVersion, "Dijkstra", startNode, liveRoutes);
+
+        int[] path = liveRoutes.path(endNode);
+        shortestPath = path.length > 0 ? path : null;
+        statusLabel.setText(String.format("Traffic on %d-%d: route repaired in %.1f us, %d nodes updated",
+                a, b, duration / 1e3, repaired));
+        mapPanel.repaint();
+    }
+
+    // Write the current map (graph and node coordinates) in the binary graph format
+    private void saveMap() {
+        if (roadGraph == null) return;
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        Path file = chooser.getSelectedFile().toPath();
+        try {
+            GraphFile.write(file, roadGraph, coordinates);
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Cannot save map: " + ex.getMessage());
+            return;
+        }
+        // Store the CH overlay next to the map so loading it skips preprocessing. Without one yet, the graph
+        // is contracted on the background thread and the overlay written when it finishes
+        if (chQuery != null) {
+            writeOverlay(file, chQuery);
+            return;
+        }
+        IntGraph graph = roadGraph;
+        long version = graphVersion;
+        cancelButton.setEnabled(true);
+        statusLabel.setText("Map saved; contracting for the CH overlay...");
+        runner.start(monitor -> buildContractionHierarchy(graph, monitor), 0, query -> {
+            cancelButton.setEnabled(false);
+            if (graphVersion == version) chQuery = query;
+            writeOverlay(file, query);
+        }, message -> {
+            cancelButton.setEnabled(false);
+            statusLabel.setText("Map saved without a CH overlay: " + message);
+        });
+    }
+
+    private void writeOverlay(Path mapFile, ChQuery query) {
+        try {
+            query.hierarchy().write(overlayPath(mapFile));
+            statusLabel.setText("Map and CH overlay saved");
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Cannot save CH overlay: " + ex.getMessage());
+        }
+    }
+
+    // Memory-map a saved map; nodes without stored coordinates are placed on a circle
+    private void loadMapFile() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File file = chooser.getSelectedFile();
+        try {
+            MappedGraph graph = GraphFile.open(file.toPath());
+            ArrayList<Point> loaded = new ArrayList<>(graph.vertexCount());
+            for (int i = 0; i < graph.vertexCount(); i++) {
+                if (graph.hasCoordinates()) {
+                    loaded.add(new Point((int) graph.x(i), (int) graph.y(i)));
+                } else {
+                    double angle = 2 * Math.PI * i / graph.vertexCount();
+                    int radius = (MAP_SIZE - NODE_SIZE) / 2;
+                    loaded.add(new Point(radius + (int) (Math.cos(angle) * radius),
+                            radius + (int) (Math.sin(angle) * radius)));
+                }
+            }
+            loadMap(loaded, graph);
+            loadOverlay(overlayPath(file.toPath()), graph);
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Cannot load map: " + ex.getMessage());
+        }
+    }
+
+    // Use a saved CH overlay only if it was built from this exact graph; otherwise CH is rebuilt on first use
+    private void loadOverlay(Path overlay, IntGraph graph) {
+        if (!Files.exists(overlay)) return;
+        try {
+            ContractionHierarchy ch = ContractionHierarchy.read(overlay);
+            if (ch.matches(graph)) {
+                chQuery = new ChQuery(ch);
+            } else {
+                statusLabel.setText("Ignored a CH overlay built for a different map");
+            }
+        } catch (IOException ex) {
+            statusLabel.setText("Ignored an unreadable CH overlay: " + ex.getMessage());
+        }
+    }
+
+    private static Path overlayPath(Path mapFile) {
+        return Paths.get(mapFile + ".ch");
+    }
+
+    // A null monitor builds to completion; otherwise the build stops when the monitor is cancelled
+    private static ChQuery buildContractionHierarchy(IntGraph graph, SearchMonitor monitor) {
+        return new ChQuery(ContractionHierarchy.build(graph, ForkJoinPool.commonPool(), monitor));
+    }
+
+    // Pick landmarks with the avoid heuristic and compute their distance tables in parallel
+    private static AltSearch buildAltSearch(IntGraph graph, SearchMonitor monitor) {
+        Landmarks landmarks = Landmarks.build(graph, graph, LANDMARK_COUNT, Landmarks.Selection.AVOID,
+                0L, ForkJoinPool.commonPool(), monitor);
+        return new AltSearch(graph, landmarks);
+    }
+
+    // Label the connected components of an undirected graph with a breadth-first search from each unlabeled node
+    private static int[] componentLabels(IntGraph graph) {
+        int n = graph.vertexCount();
+        int[] label = new int[n];
+        Arrays.fill(label, -1);
+        int[] queue = new int[n];
+        int components = 0;
+        for (int source = 0; source < n; source++) {
+            if (label[source] != -1) continue;
+            int head = 0, tail = 0;
+            queue[tail++] = source;
+            label[source] = components;
+            while (head < tail) {
+                int v = queue[head++];
+                for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                    int w = graph.target(e);
+                    if (label[w] == -1) {
+                        label[w] = components;
+                        queue[tail++] = w;
+                    }
+                }
+            }
+            components++;
+        }
+        return label;
+    }
+
+    // Screen position of a node's centre
+    private int screenX(int node) {
+        return (int) Math.round(viewport.toScreenX(nodes.get(node).x + NODE_SIZE / 2));
+    }
+
+    private int screenY(int node) {
+        return (int) Math.round(viewport.toScreenY(nodes.get(node).y + NODE_SIZE / 2));
+    }
+
     private void drawMap(Graphics g) {
+        // The first map is still being generated
+        if (nodes == null) return;
         Graphics2D g2d = (Graphics2D) g;
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-        // Draw edges
-        g2d.setColor(Color.BLACK);
-        g2d.setStroke(new BasicStroke(1));
-        for (int[] edge : edges) {
-            Point start = nodes.get(edge[0]);
-            Point end = nodes.get(edge[1]);
-            g2d.drawLine(start.x + NODE_SIZE/2, start.y + NODE_SIZE/2,
-                    end.x + NODE_SIZE/2, end.y + NODE_SIZE/2);
+        int width = mapPanel.getWidth(), height = mapPanel.getHeight();
+        if (viewport.isFitted() && viewport.fit(worldLeft, worldTop, worldWidth, worldHeight, width, height)) {
+            mapLayerDirty = true;
         }
+        if (mapLayer == null || mapLayer.getWidth() != width || mapLayer.getHeight() != height) {
+            mapLayer = new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_RGB);
+            mapLayerDirty = true;
+        }
+        if (mapLayerDirty) {
+            drawMapLayer(width, height);
+            mapLayerDirty = false;
+        }
+        g2d.drawImage(mapLayer, 0, 0, null);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setFont(LABEL_FONT);
 
         // Draw shortest path
         if (shortestPath != null) {
-            g2d.setColor(Color.ORANGE);
-            g2d.setStroke(new BasicStroke(3));
-            for (int i = 0; i < shortestPath.size() - 1; i++) {
-                Point start = nodes.get(shortestPath.get(i));
-                Point end = nodes.get(shortestPath.get(i + 1));
-                g2d.drawLine(start.x + NODE_SIZE/2, start.y + NODE_SIZE/2,
-                        end.x + NODE_SIZE/2, end.y + NODE_SIZE/2);
+            g2d.setStroke(ROUTE_STROKE);
+            for (int i = 0; i < shortestPath.length - 1; i++) {
+                int x1 = screenX(shortestPath[i]), y1 = screenY(shortestPath[i]);
+                int x2 = screenX(shortestPath[i + 1]), y2 = screenY(shortestPath[i + 1]);
+                if (!segmentVisible(x1, y1, x2, y2, width, height)) continue;
+                g2d.setColor(Color.ORANGE);
+                g2d.drawLine(x1, y1, x2, y2);
 
                 // Draw path order
-                int midX = (start.x + end.x) / 2;
-                int midY = (start.y + end.y) / 2;
+                int midX = (x1 + x2) / 2;
+                int midY = (y1 + y2) / 2;
                 g2d.setColor(Color.WHITE);
                 g2d.fillOval(midX - 10, midY - 10, 20, 20);
                 g2d.setColor(Color.BLACK);
-                g2d.setFont(new Font("Arial", Font.BOLD, 12));
                 g2d.drawString(Integer.toString(i + 1), midX - 4, midY + 4);
-                g2d.setColor(Color.ORANGE);
             }
         }
 
-        // Draw nodes
-        for (int i = 0; i < nodes.size(); i++) {
-            Point node = nodes.get(i);
-            if (i == startNode) {
-                g2d.setColor(Color.GREEN);
-            } else if (i == endNode) {
-                g2d.setColor(Color.RED);
-            } else {
-                g2d.setColor(Color.BLUE);
+        // Frontier of the search in progress, read from its latest snapshot without waiting
+        SearchMonitor.Snapshot snapshot = runner.snapshot();
+        if (snapshot != null) {
+            g2d.setColor(FRONTIER_COLOR);
+            for (int v : snapshot.frontier()) {
+                if (v >= nodes.size()) continue;
+                int x = screenX(v), y = screenY(v);
+                if (!nodeVisible(x, y, width, height)) continue;
+                g2d.fillOval(x - NODE_SIZE / 2 - 4, y - NODE_SIZE / 2 - 4, NODE_SIZE + 8, NODE_SIZE + 8);
             }
-            g2d.fillOval(node.x, node.y, NODE_SIZE, NODE_SIZE);
-            g2d.setColor(Color.WHITE);
-            g2d.setFont(new Font("Arial", Font.BOLD, 12));
-            g2d.drawString(Integer.toString(i), node.x + 6, node.y + 15);
         }
+
+        // Nodes on the route and the endpoints go back on top of the route and frontier
+        if (shortestPath != null) {
+            for (int v : shortestPath) drawNode(g2d, v, Color.BLUE, width, height);
+        }
+        if (startNode != -1) drawNode(g2d, startNode, Color.GREEN, width, height);
+        if (endNode != -1) drawNode(g2d, endNode, Color.RED, width, height);
     }
 
-    private void selectNode(int x, int y) {
-        for (int i = 0; i < nodes.size(); i++) {
-            Point node = nodes.get(i);
-            if (x >= node.x && x <= node.x + NODE_SIZE &&
-                    y >= node.y && y <= node.y + NODE_SIZE) {
-                if (startNode == -1) {
-                    startNode = i;
-                } else if (endNode == -1) {
-                    endNode = i;
-                    findShortestPath();
-                } else {
-                    startNode = i;
-                    endNode = -1;
-                    shortestPath = null;
-                }
-                mapPanel.repaint();
-                break;
+    // Roads and nodes clipped to the panel; anything entirely outside is skipped
+    private void drawMapLayer(int width, int height) {
+        Graphics2D g2d = mapLayer.createGraphics();
+        g2d.setColor(mapPanel.getBackground());
+        g2d.fillRect(0, 0, width, height);
+
+        // Draw edges: every road crossing the view has an end within maxRoadLength of it. A road is drawn
+        // from its lower end, or from the end in range when the other one is not
+        double margin = maxRoadLength + NODE_SIZE / viewport.scale();
+        double left = viewport.toWorldX(0) - NODE_SIZE / 2 - margin;
+        double right = viewport.toWorldX(width) - NODE_SIZE / 2 + margin;
+        double top = viewport.toWorldY(0) - NODE_SIZE / 2 - margin;
+        double bottom = viewport.toWorldY(height) - NODE_SIZE / 2 + margin;
+        double pad = NODE_SIZE / viewport.scale();
+        int[] visible = nodeIndex.range(left + margin - pad, top + margin - pad,
+                right - margin + pad, bottom - margin + pad);
+        boolean detailed = visible.length <= DETAIL_LIMIT;
+        if (detailed) g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setColor(Color.BLACK);
+        g2d.setStroke(ROAD_STROKE);
+        for (int v : nodeIndex.range(left, top, right, bottom)) {
+            int x1 = screenX(v), y1 = screenY(v);
+            for (int e = roadGraph.firstEdge(v); e < roadGraph.endEdge(v); e++) {
+                int w = roadGraph.target(e);
+                float wx = coordinates[2 * w], wy = coordinates[2 * w + 1];
+                if (w < v && wx >= left && wx <= right && wy >= top && wy <= bottom) continue;
+                int x2 = screenX(w), y2 = screenY(w);
+                if (segmentVisible(x1, y1, x2, y2, width, height)) g2d.drawLine(x1, y1, x2, y2);
             }
         }
-    }
 
-    private void findShortestPath() {
-        if (startNode == -1 || endNode == -1) return;
+        // Draw congested roads
+        g2d.setColor(Color.RED);
+        g2d.setStroke(CONGESTED_STROKE);
+        for (int[] road : congestedRoads) {
+            int x1 = screenX(road[0]), y1 = screenY(road[0]), x2 = screenX(road[1]), y2 = screenY(road[1]);
+            if (segmentVisible(x1, y1, x2, y2, width, height)) g2d.drawLine(x1, y1, x2, y2);
+        }
 
-        // Dijkstra's algorithm
-        int[] distances = new int[NODE_COUNT];
-        int[] previousNodes = new int[NODE_COUNT];
-        boolean[] visited = new boolean[NODE_COUNT];
-        Arrays.fill(distances, Integer.MAX_VALUE);
-        distances[startNode] = 0;
-
-        for (int i = 0; i < NODE_COUNT; i++) {
-            int current = -1;
-            for (int j = 0; j < NODE_COUNT; j++) {
-                if (!visited[j] && (current == -1 || distances[j] < distances[current])) {
-                    current = j;
-                }
+        // Draw nodes
+        g2d.setFont(LABEL_FONT);
+        g2d.setColor(Color.BLUE);
+        for (int v : visible) {
+            if (detailed) {
+                drawNode(g2d, v, Color.BLUE, width, height);
+            } else {
+                g2d.fillRect(screenX(v) - 1, screenY(v) - 1, 3, 3);
             }
+        }
+        g2d.dispose();
+    }
 
-            if (distances[current] == Integer.MAX_VALUE) break;
+    private void drawNode(Graphics2D g2d, int node, Color color, int width, int height) {
+        int x = screenX(node) - NODE_SIZE / 2, y = screenY(node) - NODE_SIZE / 2;
+        if (!nodeVisible(x + NODE_SIZE / 2, y + NODE_SIZE / 2, width, height)) return;
+        g2d.setColor(color);
+        g2d.fillOval(x, y, NODE_SIZE, NODE_SIZE);
+        g2d.setColor(Color.WHITE);
+        g2d.drawString(Integer.toString(node), x + 6, y + 15);
+    }
+
+    private static boolean nodeVisible(int x, int y, int width, int height) {
+        return x + NODE_SIZE >= 0 && y + NODE_SIZE >= 0 && x - NODE_SIZE < width && y - NODE_SIZE < height;
+    }
 
-            visited[current] = true;
+    // False when the segment's bounding box misses the panel
+    private static boolean segmentVisible(int x1, int y1, int x2, int y2, int width, int height) {
+        return Math.max(x1, x2) >= 0 && Math.max(y1, y2) >= 0 && Math.min(x1, x2) < width && Math.min(y1, y2) < height;
+    }
 
-            for (int[] edge : edges) {
-                int neighbor = -1;
-                if (edge[0] == current) neighbor = edge[1];
-                if (edge[1] == current) neighbor = edge[0];
+    // Clicks pick the nearest node if it is under the cursor; with Shift held the click snaps to the nearest
+    // node anywhere on the map
+    private void selectNode(int x, int y, boolean snap) {
+        if (nodeIndex == null) return;
+        int i = nodeIndex.nearest(viewport.toWorldX(x) - NODE_SIZE / 2, viewport.toWorldY(y) - NODE_SIZE / 2);
+        if (i == -1) return;
+        if (!snap && (Math.abs(x - screenX(i)) > NODE_SIZE / 2 || Math.abs(y - screenY(i)) > NODE_SIZE / 2)) return;
+        if (startNode == -1) {
+            startNode = i;
+        } else if (endNode == -1) {
+            endNode = i;
+            findShortestPath();
+        } else {
+            runner.cancel();
+            cancelButton.setEnabled(false);
+            startNode = i;
+            endNode = -1;
+            shortestPath = null;
+        }
+        mapPanel.repaint();
+    }
 
-                if (neighbor != -1 && !visited[neighbor]) {
-                    int distance = distances[current] + 1; // Assuming all edges have weight 1
-                    if (distance < distances[neighbor]) {
-                        distances[neighbor] = distance;
-                        previousNodes[neighbor] = current;
-                    }
-                }
-            }
+    // Runs on the background thread; everything it reads was captured on the EDT when the search started.
+    // CH and ALT preprocessing happens here too and is handed back to the EDT for reuse while the graph
+    // version is unchanged; a traffic update in the meantime makes it stale and it is dropped. Preprocessing
+    // checks for cancellation between parallel contraction steps and between landmarks, and the other
+    // engines stop within SearchMonitor.CHECK_INTERVAL expansions. CH and ALT queries take microseconds
+    // and are not checked.
+    private void findShortestPath() {
+        if (startNode == -1 || endNode == -1) return;
+        if (componentOf[startNode] != componentOf[endNode]) {
+            runner.cancel();
+            cancelButton.setEnabled(false);
+            shortestPath = null;
+            statusLabel.setText("No route: nodes " + startNode + " and " + endNode + " are not connected");
+            mapPanel.repaint();
+            return;
         }
 
-        // Reconstruct path
-        shortestPath = new ArrayList<>();
-        for (int at = endNode; at != -1; at = previousNodes[at]) {
-            shortestPath.add(at);
+        String engine = (String) engineBox.getSelectedItem();
+        long version = graphVersion;
+        PathResult cached = routeCache.get(version, engine, startNode, endNode);
+        if (cached != null) {
+            runner.cancel();
+            showRoute(engine + " (cached)", cached);
+            return;
         }
-        Collections.reverse(shortestPath);
+        IntGraph graph = roadGraph;
+        GraphSolver graphSolver = solver;
+        ChQuery ch = chQuery;
+        AltSearch alt = altSearch;
+        int start = startNode, end = endNode;
+        cancelButton.setEnabled(true);
+        statusLabel.setText(engine + " searching...");
+        runner.start(monitor -> {
+            if ("Bidirectional Dijkstra".equals(engine)) {
+                return graphSolver.solve(GraphSolver.Algorithm.BIDIRECTIONAL_DIJKSTRA, start, end, monitor);
+            } else if ("Bidirectional A*".equals(engine)) {
+                return graphSolver.solve(GraphSolver.Algorithm.BIDIRECTIONAL_A_STAR, start, end, monitor);
+            } else if ("ALT".equals(engine)) {
+                AltSearch query = alt != null ? alt : buildAltSearch(graph, monitor);
+                SwingUtilities.invokeLater(() -> {
+                    if (graphVersion == version) altSearch = query;
+                });
+                return GraphSolver.solve(engine, query, start, end);
+            } else if ("Contraction Hierarchies".equals(engine)) {
+                ChQuery query = ch != null ? ch : buildContractionHierarchy(graph, monitor);
+                SwingUtilities.invokeLater(() -> {
+                    if (graphVersion == version) chQuery = query;
+                });
+                return GraphSolver.solve(engine, query, start, end);
+            }
+            // Dijkstra's algorithm on the weighted adjacency with an indexed heap
+            return graphSolver.solve(GraphSolver.Algorithm.DIJKSTRA, start, end, monitor);
+        }, SEARCH_TIMEOUT_MILLIS, result -> {
+            routeCache.put(version, engine, start, end, result);
+            showRoute(engine, result);
+        }, message -> {
+            cancelButton.setEnabled(false);
+            statusLabel.setText(message);
+            mapPanel.repaint();
+        });
+        mapPanel.repaint();
+    }
+
+    private void showProgress() {
+        SearchMonitor.Snapshot snapshot = runner.snapshot();
+        if (snapshot != null) statusLabel.setText("Searching... " + snapshot.expandedCount() + " nodes expanded");
         mapPanel.repaint();
     }
 
+    // Cancel the background search and wait for it to stop before the graph it reads is changed
+    private void stopSearch() {
+        runner.cancelAndWait();
+        cancelButton.setEnabled(false);
+    }
+
+    private void showRoute(String engine, PathResult result) {
+        cancelButton.setEnabled(false);
+        shortestPath = result.found() ? result.path() : null;
+        statusLabel.setText((result.found()
+                ? String.format("%s expanded %d nodes, length %.1f", engine, result.expandedCount(), result.cost())
+                : engine + " found no route") + "; " + routeCacheStats());
+        // Detailed counters and phase timings when -Dfcu.web.metrics=true
+        statusLabel.setToolTipText(result.metrics() == null ? null : result.metrics().toString());
+        mapPanel.repaint();
+    }
+
+    private String routeCacheStats() {
+        return String.format("route cache: %,d hits, %,d misses, %,d evictions", routeCache.hits(),
+                routeCache.misses(), routeCache.evictions());
+    }
+
     public static void main(String[] args) {
         SwingUtilities.invokeLater(() -> new RandomRoadMapGUI().setVisible(true));
     }
@@ -0,0 +1,201 @@
+package fcu.web;
+
+import java.util.Arrays;
+
+// 隨機幾何道路圖：節點均勻撒在正方形上，每個節點連到最近的幾個節點 (k 近鄰圖)，邊權為歐氏距離
+// 近鄰以 SpatialGrid 查詢，整體約 O(n log n) (排序去除重複的邊)，不需檢查所有節點對
+// k 近鄰圖可能分成幾塊，之後把每個較小的連通分量接到最近的其他分量，直到全圖連通
+// 節點座標為整數 (存成 float)，邊權與 A* 的歐氏距離啟發函數一致
+// 鄰接直接寫成 CSR 陣列，不經過 CsrGraph.Builder 的暫存邊列表
+// 相同的參數與種子產生相同的圖
+public final class RoadMapGenerator {
+    public static final int DEFAULT_NEIGHBORS = 3;
+    // 連接分量時每個節點查看的近鄰數；都在同一分量內的節點 (分量的內部) 略過
+    private static final int LINK_CANDIDATES = 16;
+
+    // 生成的道路圖與節點座標 (交錯的 x, y)
+    public static final class RoadMap {
+        private final float[] coordinates;
+        private final CsrGraph graph;
+
+        RoadMap(float[] coordinates, CsrGraph graph) {
+            this.coordinates = coordinates;
+            this.graph = graph;
+        }
+
+        public float[] coordinates() {
+            return coordinates;
+        }
+
+        public CsrGraph graph() {
+            return graph;
+        }
+    }
+
+    private RoadMapGenerator() {
+    }
+
+    // nodeCount 個節點撒在 [0, side) x [0, side) 的整數座標上，每個節點連到最近的 neighbors 個節點
+    public static RoadMap generate(int nodeCount, int side, int neighbors, long seed) {
+        if (nodeCount < 1) throw new IllegalArgumentException("節點數至少為 1: " + nodeCount);
+        if (side < 1) throw new IllegalArgumentException("地圖邊長至少為 1: " + side);
+        if (neighbors < 1) throw new IllegalArgumentException("近鄰數至少為 1: " + neighbors);
+        FastRandom random = new FastRandom(seed);
+        float[] coordinates = new float[2 * nodeCount];
+        for (int i = 0; i < 2 * nodeCount; i++) {
+            coordinates[i] = random.nextInt(side);
+        }
+        SpatialGrid grid = new SpatialGrid(coordinates);
+
+        // 無向邊以 (較小端點 << 32 | 較大端點) 編碼，排序後去除重複 (互為近鄰的兩點各加入一次)
+        long[] edges = new long[(int) Math.min(Integer.MAX_VALUE - 8, (long) nodeCount * neighbors)];
+        int edgeCount = 0;
+        for (int v = 0; v < nodeCount; v++) {
+            int[] nearest = grid.nearest(coordinates[2 * v], coordinates[2 * v + 1], neighbors + 1);
+            int added = 0;
+            for (int w : nearest) {
+                if (w == v || added == neighbors) continue;
+                edges[edgeCount++] = key(v, w);
+                added++;
+            }
+        }
+        Arrays.sort(edges, 0, edgeCount);
+        edgeCount = unique(edges, edgeCount);
+
+        int[] parent = new int[nodeCount];
+        for (int v = 0; v < nodeCount; v++) parent[v] = v;
+        for (int i = 0; i < edgeCount; i++) {
+            union(parent, (int) (edges[i] >>> 32), (int) edges[i]);
+        }
+        long[] links = connectComponents(coordinates, grid, parent);
+        if (links.length > 0) {
+            edges = Arrays.copyOf(edges, edgeCount + links.length);
+            System.arraycopy(links, 0, edges, edgeCount, links.length);
+            edgeCount += links.length;
+        }
+        return new RoadMap(coordinates, toCsr(nodeCount, coordinates, edges, edgeCount));
+    }
+
+    private static long key(int v, int w) {
+        return (long) Math.min(v, w) << 32 | Math.max(v, w);
+    }
+
+    private static int unique(long[] sorted, int count) {
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (size == 0 || sorted[i] != sorted[size - 1]) sorted[size++] = sorted[i];
+        }
+        return size;
+    }
+
+    // 以路徑減半壓縮的 union-find
+    private static int find(int[] parent, int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    private static boolean union(int[] parent, int v, int w) {
+        int a = find(parent, v), b = find(parent, w);
+        if (a == b) return false;
+        parent[a] = b;
+        return true;
+    }
+
+    // 每一輪替最大分量以外的每個分量找一條連到其他分量的最短候選邊並加入，直到只剩一個分量
+    // 每一輪每個分量至少與另一個合併，分量數至少減半
+    private static long[] connectComponents(float[] coordinates, SpatialGrid grid, int[] parent) {
+        int n = parent.length;
+        long[] links = new long[0];
+        int linkCount = 0;
+        int[] size = new int[n];
+        double[] bestDistance = new double[n];
+        long[] bestLink = new long[n];
+        while (true) {
+            Arrays.fill(size, 0);
+            int largest = -1, components = 0;
+            for (int v = 0; v < n; v++) {
+                int root = find(parent, v);
+                if (size[root]++ == 0) components++;
+                if (largest == -1 || size[root] > size[largest]) largest = root;
+            }
+            if (components == 1) break;
+
+            Arrays.fill(bestDistance, Double.POSITIVE_INFINITY);
+            for (int v = 0; v < n; v++) {
+                int root = find(parent, v);
+                if (root == largest) continue;
+                double x = coordinates[2 * v], y = coordinates[2 * v + 1];
+                for (int w : grid.nearest(x, y, Math.min(n, LINK_CANDIDATES))) {
+                    if (find(parent, w) == root) continue;
+                    double d = Math.hypot(coordinates[2 * w] - x, coordinates[2 * w + 1] - y);
+                    if (d < bestDistance[root]) {
+                        bestDistance[root] = d;
+                        bestLink[root] = key(v, w);
+                    }
+                    break;
+                }
+            }
+            // 先記下這一輪的分量根，加入連接邊後根會改變
+            int[] roots = new int[components - 1];
+            int rootCount = 0;
+            for (int v = 0; v < n; v++) {
+                if (parent[v] == v && v != largest) roots[rootCount++] = v;
+            }
+            for (int root : roots) {
+                long link = bestLink[root];
+                if (bestDistance[root] == Double.POSITIVE_INFINITY) {
+                    // 每個節點的候選近鄰都在同一分量內 (分量很大)，逐一比較所有節點
+                    link = nearestOutside(coordinates, parent, root);
+                }
+                if (union(parent, (int) (link >>> 32), (int) link)) {
+                    if (linkCount == links.length) links = Arrays.copyOf(links, Math.max(16, 2 * linkCount));
+                    links[linkCount++] = link;
+                }
+            }
+        }
+        return Arrays.copyOf(links, linkCount);
+    }
+
+    // 分量 root 內的一個節點到分量外最近節點的邊，O(n)
+    private static long nearestOutside(float[] coordinates, int[] parent, int root) {
+        double x = coordinates[2 * root], y = coordinates[2 * root + 1];
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int w = 0; w < parent.length; w++) {
+            if (find(parent, w) == root) continue;
+            double d = Math.hypot(coordinates[2 * w] - x, coordinates[2 * w + 1] - y);
+            if (d < bestDistance) {
+                bestDistance = d;
+                best = w;
+            }
+        }
+        return key(root, best);
+    }
+
+    // 以計數排序把無向邊的兩個方向寫成 CSR
+    private static CsrGraph toCsr(int n, float[] coordinates, long[] edges, int edgeCount) {
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < edgeCount; i++) {
+            offsets[(int) (edges[i] >>> 32) + 1]++;
+            offsets[(int) edges[i] + 1]++;
+        }
+        for (int v = 0; v < n; v++) offsets[v + 1] += offsets[v];
+        int[] next = Arrays.copyOf(offsets, n);
+        int[] targets = new int[2 * edgeCount];
+        float[] weights = new float[2 * edgeCount];
+        for (int i = 0; i < edgeCount; i++) {
+            int v = (int) (edges[i] >>> 32), w = (int) edges[i];
+            float length = (float) Math.hypot(coordinates[2 * v] - coordinates[2 * w],
+                    coordinates[2 * v + 1] - coordinates[2 * w + 1]);
+            int a = next[v]++, b = next[w]++;
+            targets[a] = w;
+            weights[a] = length;
+            targets[b] = v;
+            weights[b] = length;
+        }
+        return new CsrGraph(n, offsets, targets, weights);
+    }
+}
@@ -0,0 +1,17 @@
+package fcu.web;
+
+// 搜索引擎在最近一次搜索中的計數，每次搜索開始時歸零
+// 計數只是欄位遞增，不論是否啟用 SearchMetrics 都會維護
+public interface SearchCounters {
+    // 展開 (取出或進入) 的頂點或格子數
+    int expandedCount();
+
+    // 檢查過的邊數；方格迷宮為檢查過的可通行相鄰格數，JPS 為找到的跳點後繼數
+    long relaxedCount();
+
+    // 開放集合 (堆、隊列或堆疊) 的最大大小
+    int peakOpenSize();
+
+    // 堆的插入、降鍵、取出與移除次數；不使用堆的搜索為 0
+    long heapOperations();
+}
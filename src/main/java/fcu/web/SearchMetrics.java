@@ -0,0 +1,335 @@
+package fcu.web;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// 一次搜索的詳細指標：展開數、鬆弛的邊數、開放集合的最大大小、堆操作次數、配置的位元組數與各階段的時間
+// 預設停用，以系統屬性 -Dfcu.web.metrics=true 或 setEnabled(true) 啟用；
+// 停用時 MazeSolver 與 GraphSolver 只多一次 volatile 讀取，不建立任何物件，PathResult.metrics() 為 null
+// 啟用時每次搜索另外提交一個 JFR 事件 (fcu.web.Search)，可用 -XX:StartFlightRecording 記錄
+// 計數由搜索引擎的 SearchCounters 提供，引擎未實作時為 -1；配置的位元組數為目前執行緒在整個查詢期間的配置量，
+// JVM 不支援時為 -1
+public final class SearchMetrics {
+    private static volatile boolean enabled = Boolean.getBoolean("fcu.web.metrics");
+
+    private final String algorithm;
+    private final boolean found;
+    private final double cost;
+    private final int pathLength;
+    private final int expanded;
+    private final long relaxed;
+    private final int peakOpen;
+    private final long heapOperations;
+    private final long allocatedBytes;
+    private final String[] phaseNames;
+    private final long[] phaseNanos;
+
+    private SearchMetrics(Recorder recorder, int[] path, double cost, int expanded, SearchCounters counters,
+                          long allocatedBytes) {
+        this.algorithm = recorder.algorithm;
+        this.found = path.length > 0;
+        this.cost = found ? cost : Double.POSITIVE_INFINITY;
+        this.pathLength = path.length;
+        this.expanded = expanded;
+        this.relaxed = counters == null ? -1 : counters.relaxedCount();
+        this.peakOpen = counters == null ? -1 : counters.peakOpenSize();
+        this.heapOperations = counters == null ? -1 : counters.heapOperations();
+        this.allocatedBytes = allocatedBytes;
+        this.phaseNames = Arrays.copyOf(recorder.phaseNames, recorder.phases);
+        this.phaseNanos = Arrays.copyOf(recorder.phaseNanos, recorder.phases);
+    }
+
+    public static boolean enabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    // 啟用時開始記錄一次搜索，停用時回傳 null
+    public static Recorder start(String algorithm) {
+        return enabled ? new Recorder(algorithm) : null;
+    }
+
+    // 一次搜索的記錄器，只在同一個執行緒中使用
+    public static final class Recorder {
+        private final String algorithm;
+        private final long startBytes;
+        private final SearchEvent event;
+        private String[] phaseNames = new String[4];
+        private long[] phaseNanos = new long[4];
+        private int phases;
+        private long last;
+
+        private Recorder(String algorithm) {
+            this.algorithm = algorithm;
+            this.startBytes = Allocation.currentThreadBytes();
+            SearchEvent e = new SearchEvent();
+            this.event = e.isEnabled() ? e : null;
+            if (event != null) event.begin();
+            this.last = System.nanoTime();
+        }
+
+        // 結束目前的階段並以 name 記錄其時間，下一個階段從現在開始
+        public void phase(String name) {
+            long now = System.nanoTime();
+            if (phases == phaseNames.length) {
+                phaseNames = Arrays.copyOf(phaseNames, 2 * phases);
+                phaseNanos = Arrays.copyOf(phaseNanos, 2 * phases);
+            }
+            phaseNames[phases] = name;
+            phaseNanos[phases++] = now - last;
+            last = now;
+        }
+
+        // counters 可為 null (引擎未提供計數)
+        public SearchMetrics finish(int[] path, double cost, int expanded, SearchCounters counters) {
+            long bytes = startBytes < 0 ? -1 : Allocation.currentThreadBytes() - startBytes;
+            SearchMetrics metrics = new SearchMetrics(this, path, cost, expanded, counters, bytes);
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.algorithm = algorithm;
+                    event.found = metrics.found;
+                    event.cost = metrics.cost;
+                    event.pathLength = metrics.pathLength;
+                    event.expanded = metrics.expanded;
+                    event.relaxed = metrics.relaxed;
+                    event.peakOpen = metrics.peakOpen;
+                    event.heapOperations = metrics.heapOperations;
+                    event.allocatedBytes = bytes;
+                    event.commit();
+                }
+            }
+            return metrics;
+        }
+    }
+
+    @Name("fcu.web.Search")
+    @Label("Path Search")
+    @Category("fcu.web")
+    static final class SearchEvent extends jdk.jfr.Event {
+        @Label("Algorithm")
+        String algorithm;
+        @Label("Found")
+        boolean found;
+        @Label("Cost")
+        double cost;
+        @Label("Path Length")
+        int pathLength;
+        @Label("Expanded")
+        int expanded;
+        @Label("Relaxed")
+        long relaxed;
+        @Label("Peak Open Size")
+        int peakOpen;
+        @Label("Heap Operations")
+        long heapOperations;
+        @Label("Allocated")
+        @DataAmount
+        long allocatedBytes;
+    }
+
+    // 第一次使用時才取得 ThreadMXBean
+    private static final class Allocation {
+        private static final com.sun.management.ThreadMXBean BEAN = bean();
+
+        private static com.sun.management.ThreadMXBean bean() {
+            try {
+                java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+                if (bean instanceof com.sun.management.ThreadMXBean) {
+                    com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) bean;
+                    if (sun.isThreadAllocatedMemorySupported() && sun.isThreadAllocatedMemoryEnabled()) return sun;
+                }
+            } catch (LinkageError | UnsupportedOperationException e) {
+                // 沒有 jdk.management 模組時不記錄配置量
+            }
+            return null;
+        }
+
+        static long currentThreadBytes() {
+            return BEAN == null ? -1 : BEAN.getCurrentThreadAllocatedBytes();
+        }
+    }
+
+    public String algorithm() {
+        return algorithm;
+    }
+
+    public boolean found() {
+        return found;
+    }
+
+    public double cost() {
+        return cost;
+    }
+
+    public int pathLength() {
+        return pathLength;
+    }
+
+    public int expandedCount() {
+        return expanded;
+    }
+
+    public long relaxedCount() {
+        return relaxed;
+    }
+
+    public int peakOpenSize() {
+        return peakOpen;
+    }
+
+    public long heapOperations() {
+        return heapOperations;
+    }
+
+    public long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public int phaseCount() {
+        return phaseNames.length;
+    }
+
+    public String phaseName(int i) {
+        return phaseNames[i];
+    }
+
+    public long phaseNanos(int i) {
+        return phaseNanos[i];
+    }
+
+    // 各階段時間的總和
+    public long totalNanos() {
+        long total = 0;
+        for (long nanos : phaseNanos) total += nanos;
+        return total;
+    }
+
+    public String toJson() {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("{\"algorithm\":");
+        quote(sb, algorithm);
+        sb.append(",\"found\":").append(found);
+        sb.append(",\"cost\":").append(found ? number(cost) : "null");
+        sb.append(",\"pathLength\":").append(pathLength);
+        sb.append(",\"expanded\":").append(expanded);
+        sb.append(",\"relaxed\":").append(relaxed);
+        sb.append(",\"peakOpen\":").append(peakOpen);
+        sb.append(",\"heapOperations\":").append(heapOperations);
+        sb.append(",\"allocatedBytes\":").append(allocatedBytes);
+        sb.append(",\"totalNanos\":").append(totalNanos());
+        sb.append(",\"phases\":{");
+        for (int i = 0; i < phaseNames.length; i++) {
+            if (i > 0) sb.append(',');
+            quote(sb, phaseNames[i]);
+            sb.append(':').append(phaseNanos[i]);
+        }
+        return sb.append("}}").toString();
+    }
+
+    // 階段數量依演算法而異，CSV 以單一欄位 "名稱=奈秒;..." 記錄
+    public static String csvHeader() {
+        return "algorithm,found,cost,pathLength,expanded,relaxed,peakOpen,heapOperations,allocatedBytes,totalNanos,phases";
+    }
+
+    public String toCsv() {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append('"').append(algorithm.replace("\"", "\"\"")).append('"');
+        sb.append(',').append(found);
+        sb.append(',').append(found ? number(cost) : "");
+        sb.append(',').append(pathLength);
+        sb.append(',').append(expanded);
+        sb.append(',').append(relaxed);
+        sb.append(',').append(peakOpen);
+        sb.append(',').append(heapOperations);
+        sb.append(',').append(allocatedBytes);
+        sb.append(',').append(totalNanos());
+        sb.append(',');
+        for (int i = 0; i < phaseNames.length; i++) {
+            if (i > 0) sb.append(';');
+            sb.append(phaseNames[i]).append('=').append(phaseNanos[i]);
+        }
+        return sb.toString();
+    }
+
+    // 以 JSON 陣列寫入，每筆一行
+    public static void writeJson(Path file, List<SearchMetrics> metrics) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write('[');
+            for (int i = 0; i < metrics.size(); i++) {
+                out.write(i == 0 ? "\n" : ",\n");
+                out.write(metrics.get(i).toJson());
+            }
+            out.write("\n]\n");
+        }
+    }
+
+    public static void writeCsv(Path file, List<SearchMetrics> metrics) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(csvHeader());
+            out.newLine();
+            for (SearchMetrics m : metrics) {
+                out.write(m.toCsv());
+                out.newLine();
+            }
+        }
+    }
+
+    // 依副檔名選擇格式：.csv 為 CSV，其他為 JSON
+    public static void write(Path file, List<SearchMetrics> metrics) throws IOException {
+        if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv")) {
+            writeCsv(file, metrics);
+        } else {
+            writeJson(file, metrics);
+        }
+    }
+
+    private static String number(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    private static void quote(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    // 單行摘要，供介面顯示
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(algorithm).append(": 展開 ").append(expanded);
+        if (relaxed >= 0) sb.append(", 鬆弛 ").append(relaxed);
+        if (peakOpen >= 0) sb.append(", 開放集合峰值 ").append(peakOpen);
+        if (heapOperations > 0) sb.append(", 堆操作 ").append(heapOperations);
+        if (allocatedBytes >= 0) sb.append(", 配置 ").append(allocatedBytes).append(" 位元組");
+        for (int i = 0; i < phaseNames.length; i++) {
+            sb.append(", ").append(phaseNames[i]).append(' ').append(phaseNanos[i] / 1000).append(" 微秒");
+        }
+        return sb.toString();
+    }
+}
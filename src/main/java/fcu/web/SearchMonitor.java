@@ -0,0 +1,126 @@
+package fcu.web;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+// 背景搜索的取消、逾時與進度快照，不依賴 Swing
+// 搜索引擎每展開 CHECK_INTERVAL 個節點呼叫一次 checkpoint()：已取消或逾時時拋出 CancellationException，
+// 距離上次快照超過指定間隔時回傳 true，引擎接著以 publish 發佈目前的開放集合 (隊列、堆疊或堆)
+// 快照是不可變的 Snapshot 物件，以 volatile 欄位發佈；繪製端隨時讀取最新一份，不需加鎖，也不會阻塞搜索
+// cancel() 與 snapshot() 可由任何執行緒呼叫；checkpoint 與 publish 只由執行搜索的執行緒呼叫
+public final class SearchMonitor {
+    // 引擎以 (expanded & CHECK_MASK) == 0 決定是否呼叫 checkpoint，平均每次展開只多一次位元運算
+    public static final int CHECK_INTERVAL = 1024;
+    public static final int CHECK_MASK = CHECK_INTERVAL - 1;
+    // 每份快照最多複製的節點數；超過時只保留最後加入的部分 (DFS 堆疊的頂端、BFS 隊列的尾端)
+    public static final int MAX_SNAPSHOT = 1 << 16;
+
+    // 進行中的搜索狀態，不可變
+    public static final class Snapshot {
+        private final int[] frontier;
+        private final int expanded;
+
+        Snapshot(int[] frontier, int expanded) {
+            this.frontier = frontier;
+            this.expanded = expanded;
+        }
+
+        // 開放集合中的節點編號 (方格迷宮為 x * size + y)；呼叫端不應修改
+        public int[] frontier() {
+            return frontier;
+        }
+
+        public int expandedCount() {
+            return expanded;
+        }
+    }
+
+    private static final Snapshot EMPTY = new Snapshot(new int[0], 0);
+
+    private final boolean limited;
+    private final long deadline;
+    private final long snapshotInterval;
+    private volatile boolean cancelled;
+    private volatile Snapshot snapshot = EMPTY;
+    private long nextSnapshot;
+    private volatile boolean timedOut;
+
+    // timeoutNanos <= 0 表示不限時間；snapshotIntervalNanos <= 0 表示不發佈快照
+    public SearchMonitor(long timeoutNanos, long snapshotIntervalNanos) {
+        long now = System.nanoTime();
+        this.limited = timeoutNanos > 0;
+        this.deadline = now + timeoutNanos;
+        this.snapshotInterval = snapshotIntervalNanos;
+        this.nextSnapshot = now;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // 最近一次 checkpoint 是否因逾時而停止搜索
+    public boolean timedOut() {
+        return timedOut;
+    }
+
+    // 最新的快照，搜索開始前為空
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    // 已取消或逾時時回傳 true，不拋出例外也不發佈快照；可由任何執行緒呼叫 (例如平行前處理的工作執行緒)
+    public boolean shouldStop() {
+        if (!cancelled && limited && System.nanoTime() - deadline >= 0) {
+            timedOut = true;
+            cancelled = true;
+        }
+        return cancelled;
+    }
+
+    // 已取消、執行緒被中斷或逾時時拋出 CancellationException；需要新快照時回傳 true
+    public boolean checkpoint() {
+        if (cancelled || Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("搜索已取消");
+        }
+        long now = System.nanoTime();
+        if (limited && now - deadline >= 0) {
+            timedOut = true;
+            cancelled = true;
+            throw new CancellationException("搜索逾時");
+        }
+        if (snapshotInterval <= 0 || now - nextSnapshot < 0) return false;
+        nextSnapshot = now + snapshotInterval;
+        return true;
+    }
+
+    // 發佈 nodes[from, to) 為新的快照
+    public void publish(int[] nodes, int from, int to, int expanded) {
+        from = Math.max(from, to - MAX_SNAPSHOT);
+        snapshot = new Snapshot(Arrays.copyOfRange(nodes, from, to), expanded);
+    }
+
+    // 發佈兩段節點 (雙向搜索的兩側前緣)
+    public void publish(int[] a, int fromA, int toA, int[] b, int fromB, int toB, int expanded) {
+        fromA = Math.max(fromA, toA - MAX_SNAPSHOT / 2);
+        fromB = Math.max(fromB, toB - MAX_SNAPSHOT / 2);
+        int[] nodes = Arrays.copyOf(Arrays.copyOfRange(a, fromA, toA), (toA - fromA) + (toB - fromB));
+        System.arraycopy(b, fromB, nodes, toA - fromA, toB - fromB);
+        snapshot = new Snapshot(nodes, expanded);
+    }
+
+    // 發佈堆中的元素
+    public void publish(IndexedMinHeap heap, int expanded) {
+        snapshot = new Snapshot(heap.elements(MAX_SNAPSHOT), expanded);
+    }
+
+    public void publish(IndexedMinHeap a, IndexedMinHeap b, int expanded) {
+        int[] first = a.elements(MAX_SNAPSHOT / 2), second = b.elements(MAX_SNAPSHOT / 2);
+        int[] nodes = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, nodes, first.length, second.length);
+        snapshot = new Snapshot(nodes, expanded);
+    }
+}
@@ -0,0 +1,114 @@
+package fcu.web;
+
+import javax.swing.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Swing 介面共用的背景搜索：搜索在單一的背景執行緒上執行，不阻塞 EDT
+// 單一執行緒讓 MazeSolver、GraphSolver 的 ThreadLocal 暫存陣列在多次搜索之間重複使用
+// 同一時間只執行一個搜索；開始新的搜索或取消時，先前搜索的結果被丟棄
+// 搜索期間以 Swing Timer 按最高幀率呼叫 repaint，面板以 snapshot() 讀取最新的開放集合，不會等待搜索
+// 除了建構之外的方法都應在 EDT 上呼叫，回呼也在 EDT 上執行
+public final class SearchRunner {
+    // 逾時的上限，避免 SearchMonitor 的期限溢位
+    private static final long MAX_TIMEOUT_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Timer repaintTimer;
+    private final long frameNanos;
+    // 目前的搜索，閒置時為 null
+    private SearchMonitor monitor;
+    // 每次開始或取消時遞增，回呼只處理仍是最新的搜索
+    private int generation;
+
+    // repaint 在搜索期間每秒最多呼叫 maxFps 次
+    public SearchRunner(Runnable repaint, int maxFps) {
+        int delay = Math.max(1, 1000 / maxFps);
+        frameNanos = TimeUnit.MILLISECONDS.toNanos(delay);
+        repaintTimer = new Timer(delay, e -> repaint.run());
+    }
+
+    // 把逾時欄位輸入的秒數轉為 start 的毫秒數：0 表示不限時間，超過一天時以一天計
+    // 負數、NaN、無限大或不是數字時拋出 NumberFormatException，由各介面顯示訊息
+    public static long timeoutMillis(String seconds) {
+        double value = Double.parseDouble(seconds.trim());
+        if (!(value >= 0) || Double.isInfinite(value)) {
+            throw new NumberFormatException("逾時秒數必須是非負的數字: " + seconds);
+        }
+        return Math.min(MAX_TIMEOUT_MILLIS, Math.round(value * 1000));
+    }
+
+    public boolean isRunning() {
+        return monitor != null;
+    }
+
+    // 進行中搜索的最新快照，閒置時為 null
+    public SearchMonitor.Snapshot snapshot() {
+        return monitor == null ? null : monitor.snapshot();
+    }
+
+    // search 在背景執行緒執行，timeoutMillis <= 0 表示不限時間
+    // 完成時呼叫 onDone；逾時或拋出例外時以訊息呼叫 onFailed；被 cancel() 或新的搜索取代時兩者都不呼叫
+    public <T> void start(Function<SearchMonitor, T> search, long timeoutMillis,
+                          Consumer<T> onDone, Consumer<String> onFailed) {
+        cancel();
+        SearchMonitor current = new SearchMonitor(TimeUnit.MILLISECONDS.toNanos(timeoutMillis), frameNanos);
+        int id = ++generation;
+        monitor = current;
+        executor.execute(() -> {
+            T result = null;
+            String error = null;
+            try {
+                result = search.apply(current);
+            } catch (CancellationException ex) {
+                error = ex.getMessage();
+            } catch (RuntimeException | OutOfMemoryError | StackOverflowError ex) {
+                error = "搜索失敗: " + (ex.getMessage() != null ? ex.getMessage() : ex.toString());
+            }
+            T finished = result;
+            String message = error;
+            SwingUtilities.invokeLater(() -> {
+                if (id != generation) return;
+                monitor = null;
+                repaintTimer.stop();
+                if (message == null) {
+                    onDone.accept(finished);
+                } else {
+                    onFailed.accept(message);
+                }
+            });
+        });
+        repaintTimer.start();
+    }
+
+    // 取消目前的搜索；背景執行緒在下一個檢查點停止，其結果被丟棄
+    public void cancel() {
+        if (monitor == null) return;
+        monitor.cancel();
+        monitor = null;
+        generation++;
+        repaintTimer.stop();
+    }
+
+    // 取消並等待背景執行緒停止，用於即將修改或關閉搜索中使用的資料 (例如改動牆壁、關閉迷宮檔)
+    // 支援 SearchMonitor 的引擎在 CHECK_INTERVAL 次展開內停止
+    public void cancelAndWait() {
+        cancel();
+        try {
+            executor.submit(() -> { }).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
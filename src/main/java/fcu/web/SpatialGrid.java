@@ -0,0 +1,200 @@
+package fcu.web;
+
+import java.util.Arrays;
+
+// 平面上點的均勻網格索引，支援最近鄰、k 近鄰與矩形範圍查詢
+// 座標與 GraphSolver、GraphFile 相同，為交錯的 float 陣列 (x0, y0, x1, y1, ...)
+// 網格依點的外接矩形切成平均每格約 BUCKET_SIZE 個點的正方形格子；點編號依所在格子排序存放在一個 int 陣列，
+// cellStart 為每格的起點 (與 CSR 的鄰接陣列相同)，不為每個點或每格配置物件
+// 分布大致均勻時 (例如道路節點)，最近鄰查詢只看查詢點附近的幾圈格子，範圍查詢只看與矩形相交的格子
+// 建立後不可變，可由多個執行緒同時查詢
+public final class SpatialGrid {
+    private static final int BUCKET_SIZE = 2;
+    private static final int[] EMPTY = new int[0];
+
+    private final float[] coordinates;
+    private final int count;
+    private final float minX, minY, cellSize;
+    private final int columns, rows;
+    // 格子 c 的點為 points[cellStart[c], cellStart[c + 1])，格子編號為 row * columns + column
+    private final int[] cellStart;
+    private final int[] points;
+
+    // coordinates 不會被複製，建立後呼叫端不應修改
+    public SpatialGrid(float[] coordinates) {
+        if ((coordinates.length & 1) != 0) throw new IllegalArgumentException("座標陣列長度必須為偶數");
+        this.coordinates = coordinates;
+        this.count = coordinates.length / 2;
+        float left = Float.MAX_VALUE, top = Float.MAX_VALUE, right = -Float.MAX_VALUE, bottom = -Float.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            left = Math.min(left, coordinates[2 * i]);
+            top = Math.min(top, coordinates[2 * i + 1]);
+            right = Math.max(right, coordinates[2 * i]);
+            bottom = Math.max(bottom, coordinates[2 * i + 1]);
+        }
+        if (count == 0) left = top = right = bottom = 0;
+        double width = Math.max(right - left, 1e-6), height = Math.max(bottom - top, 1e-6);
+        int cells = Math.max(1, count / BUCKET_SIZE);
+        double side = Math.sqrt(width * height / cells);
+        // 退化成一條線時以較長的一邊切格
+        side = Math.max(side, Math.max(width, height) / cells);
+        this.minX = left;
+        this.minY = top;
+        this.cellSize = (float) side;
+        this.columns = (int) Math.min(cells, (long) (width / side) + 1);
+        this.rows = (int) Math.min(cells, (long) (height / side) + 1);
+
+        // 計數排序：先數每格的點數，再依前綴和放入
+        cellStart = new int[columns * rows + 1];
+        int[] cellOf = new int[count];
+        for (int i = 0; i < count; i++) {
+            cellOf[i] = cellIndex(column(coordinates[2 * i]), row(coordinates[2 * i + 1]));
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < columns * rows; c++) cellStart[c + 1] += cellStart[c];
+        points = new int[count];
+        int[] cursor = Arrays.copyOf(cellStart, columns * rows);
+        for (int i = 0; i < count; i++) {
+            points[cursor[cellOf[i]]++] = i;
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public float x(int point) {
+        return coordinates[2 * point];
+    }
+
+    public float y(int point) {
+        return coordinates[2 * point + 1];
+    }
+
+    private int column(float x) {
+        return Math.max(0, Math.min(columns - 1, (int) Math.floor((x - minX) / cellSize)));
+    }
+
+    private int row(float y) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor((y - minY) / cellSize)));
+    }
+
+    private int cellIndex(int column, int row) {
+        return row * columns + column;
+    }
+
+    private double distanceSquared(int point, double x, double y) {
+        double dx = coordinates[2 * point] - x, dy = coordinates[2 * point + 1] - y;
+        return dx * dx + dy * dy;
+    }
+
+    // 查詢點到以 (column, row) 為中心、半徑 ring 圈的正方形邊界的距離；正方形外的點至少這麼遠
+    // 查詢點在網格外時可能為負，表示還不能停止
+    private double ringBound(double x, double y, int column, int row, int ring) {
+        double left = x - (minX + (double) (column - ring) * cellSize);
+        double right = minX + (double) (column + ring + 1) * cellSize - x;
+        double top = y - (minY + (double) (row - ring) * cellSize);
+        double bottom = minY + (double) (row + ring + 1) * cellSize - y;
+        return Math.min(Math.min(left, right), Math.min(top, bottom));
+    }
+
+    // 距離 (x, y) 最近的點，沒有點時回傳 -1；距離相同時回傳編號較小的點
+    public int nearest(double x, double y) {
+        if (count == 0) return -1;
+        int column = column((float) x), row = row((float) y);
+        int best = -1;
+        double bestDistance = Double.MAX_VALUE;
+        int maxRing = Math.max(columns, rows);
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int r = row - ring; r <= row + ring; r++) {
+                if (r < 0 || r >= rows) continue;
+                // 圈的上下兩列走訪整列，中間的列只走訪左右兩格
+                int step = r == row - ring || r == row + ring ? 1 : 2 * ring;
+                for (int c = column - ring; c <= column + ring; c += Math.max(1, step)) {
+                    if (c < 0 || c >= columns) continue;
+                    int cell = cellIndex(c, r);
+                    for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                        int p = points[i];
+                        double d = distanceSquared(p, x, y);
+                        if (d < bestDistance || (d == bestDistance && p < best)) {
+                            bestDistance = d;
+                            best = p;
+                        }
+                    }
+                }
+            }
+            double bound = ringBound(x, y, column, row, ring);
+            if (best != -1 && bound > 0 && bound * bound > bestDistance) break;
+        }
+        return best;
+    }
+
+    // 距離 (x, y) 最近的 k 個點，由近到遠；點數不足 k 時回傳全部
+    // 以大小為 k 的有序陣列保留候選，適用於小的 k (例如道路生成時連接的鄰居數)
+    public int[] nearest(double x, double y, int k) {
+        k = Math.min(k, count);
+        if (k <= 0) return EMPTY;
+        int[] best = new int[k];
+        double[] bestDistance = new double[k];
+        int found = 0;
+        int column = column((float) x), row = row((float) y);
+        int maxRing = Math.max(columns, rows);
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int r = row - ring; r <= row + ring; r++) {
+                if (r < 0 || r >= rows) continue;
+                int step = r == row - ring || r == row + ring ? 1 : 2 * ring;
+                for (int c = column - ring; c <= column + ring; c += Math.max(1, step)) {
+                    if (c < 0 || c >= columns) continue;
+                    int cell = cellIndex(c, r);
+                    for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                        int p = points[i];
+                        double d = distanceSquared(p, x, y);
+                        if (found == k && d >= bestDistance[k - 1]) continue;
+                        // 插入排序，超過 k 個時丟棄最遠的
+                        int at = found < k ? found++ : k - 1;
+                        while (at > 0 && bestDistance[at - 1] > d) {
+                            best[at] = best[at - 1];
+                            bestDistance[at] = bestDistance[at - 1];
+                            at--;
+                        }
+                        best[at] = p;
+                        bestDistance[at] = d;
+                    }
+                }
+            }
+            double bound = ringBound(x, y, column, row, ring);
+            if (found == k && bound > 0 && bound * bound > bestDistance[k - 1]) break;
+        }
+        return best;
+    }
+
+    // 把每個查詢座標 (交錯的 x, y) 對應到最近的點，例如把一批任意座標吸附到道路節點
+    public int[] nearestAll(float[] queries) {
+        int[] result = new int[queries.length / 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = nearest(queries[2 * i], queries[2 * i + 1]);
+        }
+        return result;
+    }
+
+    // 座標在 [left, right] x [top, bottom] 內的點，依格子順序
+    public int[] range(double left, double top, double right, double bottom) {
+        if (count == 0 || left > right || top > bottom) return EMPTY;
+        int firstColumn = column((float) left), lastColumn = column((float) right);
+        int firstRow = row((float) top), lastRow = row((float) bottom);
+        int[] result = new int[16];
+        int size = 0;
+        for (int r = firstRow; r <= lastRow; r++) {
+            // 同一列相鄰格子的點在 points 中連續存放
+            int from = cellStart[cellIndex(firstColumn, r)], to = cellStart[cellIndex(lastColumn, r) + 1];
+            for (int i = from; i < to; i++) {
+                int p = points[i];
+                float px = coordinates[2 * p], py = coordinates[2 * p + 1];
+                if (px < left || px > right || py < top || py > bottom) continue;
+                if (size == result.length) result = Arrays.copyOf(result, size * 2);
+                result[size++] = p;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+}
@@ -0,0 +1,80 @@
+package fcu.web;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// 以存取順序淘汰的 LRU 分塊快取，記錄命中、未命中與淘汰次數
+public final class TileCache<T> {
+    // 載入一個分塊，可能讀取磁碟
+    public interface Loader<T> {
+        T load(int tile);
+    }
+
+    private final int capacity;
+    private final Loader<T> loader;
+    private final LinkedHashMap<Integer, T> tiles;
+    private long hits, misses, evictions;
+
+    public TileCache(int capacity, Loader<T> loader) {
+        if (capacity < 1) throw new IllegalArgumentException("快取容量至少為 1: " + capacity);
+        this.capacity = capacity;
+        this.loader = loader;
+        this.tiles = new LinkedHashMap<Integer, T>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, T> eldest) {
+                if (size() > TileCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized T get(int tile) {
+        T value = tiles.get(tile);
+        if (value != null) {
+            hits++;
+            return value;
+        }
+        misses++;
+        value = loader.load(tile);
+        tiles.put(tile, value);
+        return value;
+    }
+
+    // 丟棄一個分塊，下次 get 時重新載入 (例如分塊的內容已改變)
+    public synchronized void invalidate(int tile) {
+        tiles.remove(tile);
+    }
+
+    public synchronized void clear() {
+        tiles.clear();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    public synchronized void resetStats() {
+        hits = misses = evictions = 0;
+    }
+
+    public synchronized String stats() {
+        long total = hits + misses;
+        return String.format("分塊快取: 命中 %,d, 未命中 %,d, 淘汰 %,d (命中率 %.1f%%)",
+                hits, misses, evictions, total == 0 ? 0.0 : 100.0 * hits / total);
+    }
+}
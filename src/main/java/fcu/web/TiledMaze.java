@@ -0,0 +1,108 @@
+package fcu.web;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+// 磁碟上的分塊迷宮，牆壁查詢透過 LRU 分塊快取按需讀入，由 TiledMazeFile.open 建立
+// 每個執行緒記住最近讀取的分塊，連續查詢同一分塊時不經過快取 (不取鎖、不裝箱)；快取只在換分塊時使用，
+// 其命中與未命中次數因此是分塊切換的次數，而不是格子查詢的次數
+public final class TiledMaze implements MazeView, Closeable {
+    // 執行緒最近讀取的分塊編號與內容，-1 表示尚未讀取
+    private static final class LastTile {
+        int tile = -1;
+        long[] words;
+    }
+
+    private final FileChannel channel;
+    private final int size, tileShift, tilesPerSide;
+    private final int startX, startY, endX, endY;
+    private final TileCache<long[]> cache;
+    private final ByteBuffer readBuffer;
+    // 搜索執行緒與繪製的 EDT 各自保留一份，互不干擾
+    private final ThreadLocal<LastTile> lastTile = ThreadLocal.withInitial(LastTile::new);
+
+    TiledMaze(FileChannel channel, int size, int tileSize, int startX, int startY, int endX, int endY,
+              int cacheTiles) {
+        this.channel = channel;
+        this.size = size;
+        this.tileShift = Integer.numberOfTrailingZeros(tileSize);
+        this.tilesPerSide = (size + tileSize - 1) / tileSize;
+        this.startX = startX;
+        this.startY = startY;
+        this.endX = endX;
+        this.endY = endY;
+        this.readBuffer = ByteBuffer.allocateDirect((int) TiledMazeFile.tileBytes(tileSize))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        this.cache = new TileCache<>(cacheTiles, this::readTile);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean get(int x, int y) {
+        int index = (x >>> tileShift) * tilesPerSide + (y >>> tileShift);
+        LastTile last = lastTile.get();
+        if (last.tile != index) {
+            last.words = cache.get(index);
+            last.tile = index;
+        }
+        int mask = (1 << tileShift) - 1;
+        int bit = ((x & mask) << tileShift) | (y & mask);
+        return (last.words[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    public int tileSize() {
+        return 1 << tileShift;
+    }
+
+    public int startX() {
+        return startX;
+    }
+
+    public int startY() {
+        return startY;
+    }
+
+    public int endX() {
+        return endX;
+    }
+
+    public int endY() {
+        return endY;
+    }
+
+    public TileCache<long[]> cache() {
+        return cache;
+    }
+
+    // 快取未命中時從檔案讀入一個分塊 (只會在持有快取鎖時呼叫)
+    private long[] readTile(int tile) {
+        long position = TiledMazeFile.HEADER_BYTES + tile * TiledMazeFile.tileBytes(tileSize());
+        readBuffer.clear();
+        try {
+            while (readBuffer.hasRemaining()) {
+                if (channel.read(readBuffer, position + readBuffer.position()) < 0) {
+                    throw new IOException("迷宮檔案被截斷");
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        readBuffer.flip();
+        long[] words = new long[readBuffer.remaining() / 8];
+        readBuffer.asLongBuffer().get(words);
+        return words;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,177 @@
+package fcu.web;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// 分塊迷宮檔案格式 (小端序):
+//   標頭 64 位元組: magic "MAZT", 版本, 迷宮大小, 分塊邊長, 起點 x/y, 終點 x/y, 其餘保留為 0
+//   之後依列為主序存放 tilesPerSide^2 個分塊，每個分塊為 tileSize^2 位元 (1 為牆)，分塊內也是列為主序
+// 超出迷宮範圍的位元一律為牆壁
+public final class TiledMazeFile {
+    public static final int MAGIC = 0x545A414D; // "MAZT"
+    public static final int VERSION = 1;
+    public static final int DEFAULT_TILE_SIZE = 256;
+    static final int HEADER_BYTES = 64;
+
+    private TiledMazeFile() {
+    }
+
+    private static final int[] NO_CELLS = new int[0];
+
+    // 以 Eller 演算法逐列串流生成迷宮並寫入檔案，記憶體只需要一條分塊列
+    public static void generate(Path file, int size, int tileSize, int startX, int startY,
+                                int endX, int endY, FastRandom random) throws IOException {
+        generate(file, size, tileSize, startX, startY, endX, endY, random, null);
+    }
+
+    // 可取消的版本：每寫入一列呼叫 monitor.checkpoint()，快照的展開數為已寫入的列數
+    // 取消、逾時 (CancellationException) 或寫入失敗時刪除寫到一半的檔案
+    public static void generate(Path file, int size, int tileSize, int startX, int startY,
+                                int endX, int endY, FastRandom random, SearchMonitor monitor) throws IOException {
+        try (Writer writer = new Writer(file, size, tileSize, startX, startY, endX, endY)) {
+            new EllerGenerator().generateRows(size, startX, startY, random, (x, bits) -> {
+                if (monitor != null && monitor.checkpoint()) monitor.publish(NO_CELLS, 0, 0, x);
+                writer.row(x, bits);
+            });
+        } catch (IOException | RuntimeException ex) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException deleteFailure) {
+                ex.addSuppressed(deleteFailure);
+            }
+            throw ex;
+        }
+    }
+
+    // 開啟分塊迷宮，最多在記憶體中保留 cacheTiles 個分塊
+    public static TiledMaze open(Path file, int cacheTiles) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("檔案太小，不是迷宮檔案: " + file);
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("檔案標記錯誤，不是迷宮檔案: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("不支援的迷宮檔案版本: " + version);
+            }
+            int size = header.getInt();
+            int tileSize = header.getInt();
+            if (size < 0 || tileSize < 64 || Integer.bitCount(tileSize) != 1) {
+                throw new IOException("迷宮檔案標頭損壞: " + file);
+            }
+            int startX = header.getInt(), startY = header.getInt();
+            int endX = header.getInt(), endY = header.getInt();
+            long tilesPerSide = (size + tileSize - 1) / tileSize;
+            if (channel.size() < HEADER_BYTES + tilesPerSide * tilesPerSide * tileBytes(tileSize)) {
+                throw new IOException("迷宮檔案被截斷: " + file);
+            }
+            return new TiledMaze(channel, size, tileSize, startX, startY, endX, endY, cacheTiles);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    static long tileBytes(int tileSize) {
+        return (long) tileSize * tileSize / 8;
+    }
+
+    // 接收 Eller 輸出的列，湊滿一條分塊列後映射檔案區段並寫入
+    public static final class Writer implements EllerGenerator.RowSink, Closeable {
+        private final FileChannel channel;
+        private final int size, tileSize, tilesPerSide, tileWords, rowWords;
+        // 目前分塊列的暫存，tileSize 列，每列 tilesPerSide * tileWords 個字組
+        private final long[] stripe;
+        private int stripeIndex;
+        private int rowsInStripe;
+
+        public Writer(Path file, int size, int tileSize, int startX, int startY, int endX, int endY) throws IOException {
+            if (tileSize < 64 || Integer.bitCount(tileSize) != 1) {
+                throw new IllegalArgumentException("分塊邊長必須是至少 64 的 2 的次方: " + tileSize);
+            }
+            this.size = size;
+            this.tileSize = tileSize;
+            this.tilesPerSide = (size + tileSize - 1) / tileSize;
+            this.tileWords = tileSize / 64;
+            this.rowWords = tilesPerSide * tileWords;
+            this.stripe = new long[tileSize * rowWords];
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(tileSize)
+                    .putInt(startX).putInt(startY).putInt(endX).putInt(endY);
+            header.clear();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        }
+
+        @Override
+        public void row(int x, long[] bits) {
+            int r = x - stripeIndex * tileSize;
+            if (r != rowsInStripe) {
+                throw new IllegalStateException("迷宮列必須依序寫入: " + x);
+            }
+            int base = r * rowWords;
+            int n = Math.min(bits.length, rowWords);
+            System.arraycopy(bits, 0, stripe, base, n);
+            // 迷宮寬度之外的位元視為牆壁
+            if ((size & 63) != 0) {
+                stripe[base + (size >>> 6)] |= -1L << size;
+            }
+            Arrays.fill(stripe, base + ((size + 63) >>> 6), base + rowWords, -1L);
+            if (++rowsInStripe == tileSize) {
+                flushStripe();
+            }
+        }
+
+        private void flushStripe() {
+            Arrays.fill(stripe, rowsInStripe * rowWords, stripe.length, -1L);
+            long tileBytes = tileBytes(tileSize);
+            long position = HEADER_BYTES + (long) stripeIndex * tilesPerSide * tileBytes;
+            try {
+                LongBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, position, tilesPerSide * tileBytes)
+                        .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+                for (int tc = 0; tc < tilesPerSide; tc++) {
+                    for (int r = 0; r < tileSize; r++) {
+                        out.put(stripe, r * rowWords + tc * tileWords, tileWords);
+                    }
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            stripeIndex++;
+            rowsInStripe = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (rowsInStripe > 0) {
+                    flushStripe();
+                }
+                if (stripeIndex * tileSize < size) {
+                    throw new IOException("迷宮列數不足: " + stripeIndex * tileSize + " / " + size);
+                }
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
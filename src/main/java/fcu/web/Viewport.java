@@ -0,0 +1,121 @@
+package fcu.web;
+
+import javax.swing.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+
+// 面板的平移與縮放：面板座標 = 世界座標 * scale - origin
+// 世界座標由使用者決定 (迷宮為格子，圖為頂點座標)；滾輪以游標為中心縮放，拖曳平移
+// 尚未縮放或平移前為「符合視窗」模式，面板大小改變時重新 fit
+// 只在 EDT 上使用
+public final class Viewport {
+    private static final double WHEEL_FACTOR = 1.25;
+
+    private double scale = 1.0, originX, originY;
+    private double minScale = 0.0, maxScale = Double.MAX_VALUE;
+    private boolean fitted = true;
+
+    public double scale() {
+        return scale;
+    }
+
+    public double originX() {
+        return originX;
+    }
+
+    public double originY() {
+        return originY;
+    }
+
+    public boolean isFitted() {
+        return fitted;
+    }
+
+    public double toScreenX(double worldX) {
+        return worldX * scale - originX;
+    }
+
+    public double toScreenY(double worldY) {
+        return worldY * scale - originY;
+    }
+
+    public double toWorldX(double screenX) {
+        return (screenX + originX) / scale;
+    }
+
+    public double toWorldY(double screenY) {
+        return (screenY + originY) / scale;
+    }
+
+    // 縮放範圍 (每個世界單位的像素數)
+    public void setLimits(double minScale, double maxScale) {
+        this.minScale = minScale;
+        this.maxScale = Math.max(minScale, maxScale);
+        scale = Math.max(this.minScale, Math.min(this.maxScale, scale));
+    }
+
+    // 把世界座標中的矩形置中放進 width x height 的面板，並回到符合視窗模式；回傳縮放倍率是否改變
+    public boolean fit(double worldLeft, double worldTop, double worldWidth, double worldHeight, int width, int height) {
+        double old = scale;
+        scale = Math.min(width / Math.max(worldWidth, 1e-9), height / Math.max(worldHeight, 1e-9));
+        if (!(scale > 0)) scale = 1.0;
+        originX = worldLeft * scale - (width - worldWidth * scale) / 2;
+        originY = worldTop * scale - (height - worldHeight * scale) / 2;
+        fitted = true;
+        return scale != old;
+    }
+
+    // 以面板座標 (anchorX, anchorY) 為中心縮放，該點下的世界座標不變；回傳縮放倍率是否改變
+    public boolean zoom(double factor, double anchorX, double anchorY) {
+        double next = Math.max(minScale, Math.min(maxScale, scale * factor));
+        if (next == scale) return false;
+        double worldX = toWorldX(anchorX), worldY = toWorldY(anchorY);
+        scale = next;
+        originX = worldX * scale - anchorX;
+        originY = worldY * scale - anchorY;
+        fitted = false;
+        return true;
+    }
+
+    public void pan(double dx, double dy) {
+        originX -= dx;
+        originY -= dy;
+        fitted = false;
+    }
+
+    // 在元件上加入滾輪縮放與拖曳平移；視窗改變後呼叫 changed (zoomed 表示縮放倍率改變)
+    public void install(JComponent component, Listener changed) {
+        MouseAdapter mouse = new MouseAdapter() {
+            private int lastX, lastY;
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                lastX = e.getX();
+                lastY = e.getY();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                pan(e.getX() - lastX, e.getY() - lastY);
+                lastX = e.getX();
+                lastY = e.getY();
+                changed.viewChanged(false);
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                if (zoom(Math.pow(WHEEL_FACTOR, -e.getPreciseWheelRotation()), e.getX(), e.getY())) {
+                    changed.viewChanged(true);
+                }
+            }
+        };
+        component.addMouseListener(mouse);
+        component.addMouseMotionListener(mouse);
+        component.addMouseWheelListener(mouse);
+    }
+
+    public interface Listener {
+        void viewChanged(boolean zoomed);
+    }
+}
@@ -0,0 +1,59 @@
+package fcu.web;
+
+// Wilson 演算法：以迴圈抹除隨機漫步產生均勻分佈的生成樹
+public final class WilsonGenerator implements MazeGenerator {
+    @Override
+    public String name() {
+        return "Wilson";
+    }
+
+    @Override
+    public void generate(BitGrid walls, int startX, int startY, FastRandom random) {
+        MazeLattice lattice = new MazeLattice(walls.size(), startX, startY);
+        int cells = lattice.cells();
+        if (cells == 0) return;
+        int rows = lattice.rows, cols = lattice.cols;
+        // 每個格點在漫步中最後離開的方向 (0 下, 1 上, 2 右, 3 左)
+        byte[] exit = new byte[cells];
+        boolean[] tree = new boolean[cells];
+
+        tree[lattice.cellOf(startX, startY)] = true;
+        walls.clear(startX, startY);
+        for (int origin = 0; origin < cells; origin++) {
+            if (tree[origin]) continue;
+            // 隨機漫步直到碰到樹，只記錄每格最後的出口即可抹除迴圈
+            int cell = origin;
+            while (!tree[cell]) {
+                int r = cell / cols, c = cell - r * cols;
+                int d;
+                while (true) {
+                    d = random.nextInt(4);
+                    if ((d == 0 && r + 1 < rows) || (d == 1 && r > 0) || (d == 2 && c + 1 < cols) || (d == 3 && c > 0)) break;
+                }
+                exit[cell] = (byte) d;
+                cell = step(cell, d, cols);
+            }
+            // 沿著出口把路徑加入樹中
+            cell = origin;
+            while (!tree[cell]) {
+                tree[cell] = true;
+                int next = step(cell, exit[cell], cols);
+                lattice.carve(walls, cell, next);
+                cell = next;
+            }
+        }
+    }
+
+    private static int step(int cell, int direction, int cols) {
+        switch (direction) {
+            case 0:
+                return cell + cols;
+            case 1:
+                return cell - cols;
+            case 2:
+                return cell + 1;
+            default:
+                return cell - 1;
+        }
+    }
+}